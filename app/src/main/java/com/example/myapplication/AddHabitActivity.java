@@ -1,29 +1,43 @@
 package com.example.myapplication;
 
 import android.os.Bundle;
+import android.view.View;
+import android.widget.AdapterView;
+import android.widget.ArrayAdapter;
 import android.widget.Button;
 import android.widget.EditText;
 import android.widget.Spinner;
 import android.widget.Toast;
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * AddHabitActivity:
  * -----------------
  * This activity allows the user to add a new habit by providing its
- * name, description, frequency, and category. The habit is then stored
+ * name, description, frequency, category and (comma-separated) tags. The habit is then stored
  * in the local SQLite database using HabitDatabaseHelper.
+ * Categories come from the user's category table; the last spinner entry
+ * lets the user define a custom category.
  */
 public class AddHabitActivity extends AppCompatActivity {
 
     // UI components
-    private EditText etHabitName, etHabitDescription;
+    private EditText etHabitName, etHabitDescription, etHabitTags;
     private Spinner spFrequency, spCategory;
     private Button btnSaveHabit;
 
     // Database helper object for habit operations
     private HabitDatabaseHelper dbHelper;
 
+    // Categories shown in spCategory (same order as the spinner, minus the "new" entry)
+    private List<Category> categories = new ArrayList<>();
+    private ArrayAdapter<String> categoryAdapter;
+    private int lastCategoryPosition;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -32,6 +46,7 @@ public class AddHabitActivity extends AppCompatActivity {
         // Initialize UI components
         etHabitName = findViewById(R.id.etHabitName);
         etHabitDescription = findViewById(R.id.etHabitDescription);
+        etHabitTags = findViewById(R.id.etHabitTags);
         spFrequency = findViewById(R.id.spFrequency);
         spCategory = findViewById(R.id.spCategory);
         btnSaveHabit = findViewById(R.id.btnSaveHabit);
@@ -39,13 +54,34 @@ public class AddHabitActivity extends AppCompatActivity {
         // Initialize database helper
         dbHelper = new HabitDatabaseHelper(this);
 
+        // Setup category spinner from the categories table
+        categoryAdapter = new ArrayAdapter<>(this, android.R.layout.simple_spinner_item, new ArrayList<>());
+        categoryAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        spCategory.setAdapter(categoryAdapter);
+        loadCategories(null);
+
+        // The trailing "+ New category…" entry opens a dialog instead of being selected
+        spCategory.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                if (position == categories.size()) {
+                    spCategory.setSelection(lastCategoryPosition);
+                    showNewCategoryDialog();
+                } else {
+                    lastCategoryPosition = position;
+                }
+            }
+            @Override
+            public void onNothingSelected(AdapterView<?> parent) {}
+        });
+
         // Handle save button click event
         btnSaveHabit.setOnClickListener(v -> {
             // Get user input values from fields
             String name = etHabitName.getText().toString().trim();
             String desc = etHabitDescription.getText().toString().trim();
             String freq = spFrequency.getSelectedItem().toString();
-            String category = spCategory.getSelectedItem().toString();
+            Category category = categories.get(lastCategoryPosition);
 
             // Validate habit name
             if (name.isEmpty()) {
@@ -55,14 +91,55 @@ public class AddHabitActivity extends AppCompatActivity {
 
             // Create a new Habit object
             // (dbHelper will automatically attach the currently logged-in user)
-            Habit habit = new Habit(name, freq, desc, category, false);
+            Habit habit = new Habit(name, freq, desc, category.getName(), false);
+            habit.setCategoryId(category.getId());
 
-            // Insert habit into database
-            dbHelper.addHabit(habit);
+            // Insert habit into database, then link its tags
+            long habitId = dbHelper.addHabit(habit);
+            List<String> tags = Tag.parseNames(etHabitTags.getText().toString());
+            if (habitId != -1 && !tags.isEmpty()) {
+                dbHelper.setHabitTags((int) habitId, tags);
+            }
 
             // Show confirmation and close the activity to return to Dashboard
             Toast.makeText(this, "Habit added!", Toast.LENGTH_SHORT).show();
             finish();
         });
     }
+
+    /**
+     * Reloads categories into the spinner and selects the one with the given name (if any).
+     */
+    private void loadCategories(String selectName) {
+        categories = dbHelper.getCategories();
+        categoryAdapter.clear();
+        int selection = 0;
+        for (int i = 0; i < categories.size(); i++) {
+            categoryAdapter.add(categories.get(i).getName());
+            if (categories.get(i).getName().equals(selectName)) selection = i;
+        }
+        categoryAdapter.add(getString(R.string.category_new));
+        lastCategoryPosition = selection;
+        spCategory.setSelection(selection);
+    }
+
+    /**
+     * Asks for a custom category name and stores it in the categories table.
+     */
+    private void showNewCategoryDialog() {
+        EditText input = new EditText(this);
+        input.setHint(R.string.category_new_hint);
+
+        new AlertDialog.Builder(this)
+                .setTitle(R.string.category_new_title)
+                .setView(input)
+                .setPositiveButton(R.string.btn_save, (dialog, which) -> {
+                    String name = input.getText().toString().trim();
+                    if (name.isEmpty()) return;
+                    dbHelper.addCategory(name);
+                    loadCategories(name);
+                })
+                .setNegativeButton(R.string.btn_cancel, null)
+                .show();
+    }
 }
@@ -0,0 +1,71 @@
+package com.example.myapplication;
+
+import android.os.Bundle;
+import android.widget.ArrayAdapter;
+import android.widget.ListView;
+import android.widget.Toast;
+
+import androidx.appcompat.app.AlertDialog;
+import androidx.appcompat.app.AppCompatActivity;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+Lists the logged-in user's archived habits (most recently archived first).
+Archived habits live in the archive tables, not in the active habit list.
+Tapping a habit asks to unarchive it, which moves it back to the dashboard.
+ */
+
+public class ArchiveActivity extends AppCompatActivity {
+
+    // 📦 Database helper for reading and restoring archived habits
+    private HabitDatabaseHelper dbHelper;
+
+    // 📋 Archived habits and their display labels (same order)
+    private List<Habit> archived;
+    private ArrayAdapter<String> labelAdapter;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_archive);
+
+        dbHelper = new HabitDatabaseHelper(this);
+
+        ListView listArchive = findViewById(R.id.listArchive);
+        listArchive.setEmptyView(findViewById(R.id.txtArchiveEmpty));
+        labelAdapter = new ArrayAdapter<>(this, android.R.layout.simple_list_item_1, new ArrayList<>());
+        listArchive.setAdapter(labelAdapter);
+
+        // 🔁 Tap → confirm → move the habit back to the active list
+        listArchive.setOnItemClickListener((parent, view, position, id) -> {
+            Habit habit = archived.get(position);
+            new AlertDialog.Builder(this)
+                    .setTitle(habit.getName())
+                    .setMessage("Move this habit back to your active habits?")
+                    .setPositiveButton("Unarchive", (dialog, which) -> {
+                        if (dbHelper.unarchiveHabit(habit.getId())) {
+                            Toast.makeText(this, "Habit restored!", Toast.LENGTH_SHORT).show();
+                        }
+                        loadArchive();
+                    })
+                    .setNegativeButton(android.R.string.cancel, null)
+                    .show();
+        });
+
+        loadArchive();
+    }
+
+    // 📥 Reads the archive and rebuilds the list labels ("Name · Category")
+    private void loadArchive() {
+        archived = dbHelper.getArchivedHabits();
+        labelAdapter.setNotifyOnChange(false);
+        labelAdapter.clear();
+        for (Habit habit : archived) {
+            labelAdapter.add(habit.getCategory() != null ?
+                    habit.getName() + " · " + habit.getCategory() : habit.getName());
+        }
+        labelAdapter.notifyDataSetChanged();
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.myapplication;
+
+/**
+ * Model class representing a habit Category.
+ * Categories live in their own dictionary table (one row per user and name),
+ * and habits refer to them by integer id. Each category also carries the
+ * number of live habits in it, which the DB helper keeps up to date.
+ */
+public class Category {
+
+    /** Pseudo id used by filters to mean "every category". */
+    public static final int ALL_ID = -1;
+
+    private final int id;           // Primary key in the categories table (or ALL_ID)
+    private final String name;      // Display name (e.g., "Health")
+    private final int habitCount;   // Number of the user's habits in this category
+
+    public Category(int id, String name, int habitCount) {
+        this.id = id;
+        this.name = name;
+        this.habitCount = habitCount;
+    }
+
+    public int getId() { return id; }
+    public String getName() { return name; }
+    public int getHabitCount() { return habitCount; }
+    public boolean isAll() { return id == ALL_ID; }
+
+    /**
+     * Spinner label, e.g. "Health (3)".
+     */
+    @Override
+    public String toString() {
+        return name + " (" + habitCount + ")";
+    }
+}
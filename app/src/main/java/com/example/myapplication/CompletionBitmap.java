@@ -0,0 +1,154 @@
+package com.example.myapplication;
+
+/**
+ * CompletionBitmap:
+ * -----------------
+ * Codec for one habit-year of completion history, stored as a single BLOB.
+ * Bit n (byte n / 8, bit n % 8) is set when the habit was completed on day-of-year n.
+ * Trailing zero bytes are trimmed, so a year costs at most 46 bytes and
+ * marking a later day only ever appends to the end of the blob.
+ *
+ * Streaks and counts are computed directly on the decoded 64-bit words
+ * (bitCount / numberOfLeadingZeros), never day by day. Plain Java.
+ */
+public final class CompletionBitmap {
+
+    // 366 days fit in 6 words
+    static final int WORDS = 6;
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private CompletionBitmap() {}
+
+    // ===============================
+    // 📌 Encoding
+    // ===============================
+
+    /**
+     * Returns a blob with the given day set or cleared. The input is not modified.
+     */
+    public static byte[] set(byte[] days, int dayOfYear, boolean done) {
+        if (days == null) days = EMPTY;
+        int index = dayOfYear >>> 3;
+        int mask = 1 << (dayOfYear & 7);
+
+        if (done) {
+            if (index < days.length && (days[index] & mask) != 0) return days;
+            byte[] result = new byte[Math.max(days.length, index + 1)];
+            System.arraycopy(days, 0, result, 0, days.length);
+            result[index] |= (byte) mask;
+            return result;
+        }
+
+        if (index >= days.length || (days[index] & mask) == 0) return days;
+        byte[] result = days.clone();
+        result[index] &= (byte) ~mask;
+        int length = result.length;
+        while (length > 0 && result[length - 1] == 0) length--;
+        if (length == result.length) return result;
+        byte[] trimmed = new byte[length];
+        System.arraycopy(result, 0, trimmed, 0, length);
+        return trimmed;
+    }
+
+    public static boolean isSet(byte[] days, int dayOfYear) {
+        int index = dayOfYear >>> 3;
+        return days != null && index < days.length && (days[index] & (1 << (dayOfYear & 7))) != 0;
+    }
+
+    // ===============================
+    // 📌 Decoding
+    // ===============================
+
+    /**
+     * Unpacks a blob into WORDS little-endian 64-bit words (bit n = day n).
+     */
+    public static void decodeInto(byte[] days, long[] words) {
+        for (int w = 0; w < WORDS; w++) words[w] = 0;
+        if (days == null) return;
+        int length = Math.min(days.length, WORDS * 8);
+        for (int i = 0; i < length; i++) {
+            words[i >>> 3] |= (days[i] & 0xFFL) << ((i & 7) << 3);
+        }
+    }
+
+    /**
+     * Number of completed days in [fromDay, toDay] (inclusive day-of-year bounds).
+     */
+    public static int count(long[] words, int fromDay, int toDay) {
+        return count(words, 0, fromDay, toDay);
+    }
+
+    /**
+     * Same as {@link #count(long[], int, int)} for a bitmap starting at words[offset]
+     * (bit n = day n), e.g. one habit's block in HistoryColumns.
+     */
+    static int count(long[] words, int offset, int fromDay, int toDay) {
+        if (fromDay > toDay) return 0;
+        int total = 0;
+        int firstWord = fromDay >>> 6;
+        int lastWord = toDay >>> 6;
+        for (int w = firstWord; w <= lastWord; w++) {
+            long bits = words[offset + w];
+            if (w == firstWord) bits &= -1L << (fromDay & 63);
+            if (w == lastWord && (toDay & 63) != 63) bits &= (1L << ((toDay & 63) + 1)) - 1;
+            total += Long.bitCount(bits);
+        }
+        return total;
+    }
+
+    /**
+     * Length of the run of completed days ending at dayOfYear (inclusive).
+     * A result of dayOfYear + 1 means the run continues into the previous year.
+     */
+    public static int runEndingAt(long[] words, int dayOfYear) {
+        return runEndingAt(words, 0, dayOfYear);
+    }
+
+    static int runEndingAt(long[] words, int offset, int day) {
+        int run = 0;
+        int w = day >>> 6;
+        int bit = day & 63;
+        // Align the word so the end day is the top bit, then count leading ones
+        long bits = words[offset + w] << (63 - bit);
+        while (true) {
+            int ones = Long.numberOfLeadingZeros(~bits);
+            if (ones > bit) ones = bit + 1;
+            run += ones;
+            if (ones <= bit || w == 0) return run;
+            w--;
+            bit = 63;
+            bits = words[offset + w];
+        }
+    }
+
+    /**
+     * Longest run of completed days within the year.
+     */
+    public static int longestRun(long[] words) {
+        return longestRun(words, 0, WORDS);
+    }
+
+    static int longestRun(long[] words, int offset, int wordCount) {
+        int longest = 0;
+        int current = 0;
+        for (int w = offset; w < offset + wordCount; w++) {
+            long bits = words[w];
+            if (bits == -1L) {
+                current += 64;
+                continue;
+            }
+            // Run continuing from the previous word ends at this word's first zero
+            int lead = Long.numberOfTrailingZeros(~bits);
+            current += lead;
+            longest = Math.max(longest, current);
+            // Longest run fully inside the word: shift-and repeatedly (x & x >>> 1)
+            int inner = 0;
+            for (long x = bits; x != 0; x &= x >>> 1) inner++;
+            longest = Math.max(longest, inner);
+            // Run reaching the word's top bit carries over to the next word
+            current = Long.numberOfLeadingZeros(~bits);
+        }
+        return Math.max(longest, current);
+    }
+}
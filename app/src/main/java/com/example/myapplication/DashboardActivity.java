@@ -4,26 +4,42 @@ import android.content.Intent;
 import android.os.Bundle;
 import android.text.Editable;
 import android.text.TextWatcher;
+import android.util.Log;
 import android.widget.ArrayAdapter;
 import android.widget.AutoCompleteTextView;
 import android.widget.Spinner;
+import android.widget.Toast;
 
+import androidx.annotation.NonNull;
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.lifecycle.ViewModelProvider;
+import androidx.recyclerview.widget.ItemTouchHelper;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
+import com.google.android.material.chip.Chip;
+import com.google.android.material.chip.ChipGroup;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * DashboardActivity.java
  * ✅ Acts as the **main screen** of the app after login.
  * ✅ Displays all habits in a RecyclerView.
  * ✅ Provides search, category filtering, progress viewing, and logout options.
- * ✅ Acts as the central hub for navigation to Add Habit and Progress screens.
+ * ✅ Filters by any number of tags (match any / match all) through a per-tag bitmap index.
+ * ✅ Shows only the habits due today by default (precompiled schedules), with a toggle for all.
+ * ✅ Habits can be reordered by long-pressing and dragging a row.
+ * ✅ Loaded data and filter state live in DashboardViewModel, so rotation or a theme change
+ *    only rebinds views; data is reloaded (off the UI thread) only after a write or a new day.
+ * ✅ Acts as the central hub for navigation to Add Habit, Progress and Archive screens.
+ * ✅ Reports frame times (and, opt-in, main-thread stalls) per action to PerformanceMonitor
+ *    (long-press the progress button to export or to switch stall timing).
  */
 public class DashboardActivity extends AppCompatActivity {
 
@@ -34,16 +50,23 @@ public class DashboardActivity extends AppCompatActivity {
     private FloatingActionButton fabAddHabit;         // Button to add a new habit
     private FloatingActionButton fabProgress;         // Button to open progress screen
     private FloatingActionButton fabLogout;           // Button to logout
+    private FloatingActionButton fabArchive;          // Button to open archived habits
     private AutoCompleteTextView autoSearchHabit;     // Search bar for habits
     private Spinner spFilterCategory;                 // Dropdown to filter habits by category
+    private ChipGroup chipGroupTags;                  // "Due today" + one checkable chip per tag + "match all"
 
     // ===============================
     // 📌 Data & Adapters
     // ===============================
+    private DashboardViewModel model;                 // Loaded data + filter state (survives recreation)
     private HabitAdapter habitAdapter;                // Adapter to bind habit data to RecyclerView
-    private List<Habit> habitList;                    // All habits fetched from DB
-    private List<Habit> filteredList;                 // Filtered habits based on search/filter
-    private HabitDatabaseHelper dbHelper;            // Database helper for CRUD operations
+    private ArrayAdapter<Category> categoryAdapter;   // Category filter entries with habit counts
+    private DashboardViewModel.Data data;             // Data currently shown (from the model)
+    private HabitSnapshot snapshot;                   // All habits fetched from DB (columnar, read-only)
+    private HabitSuggestionProvider suggestionProvider; // Trie-backed search suggestions
+    private TagBitmapIndex tagIndex;                  // Tag → snapshot rows (rebuilt with the snapshot)
+    private SparseBitSet dueToday;                    // Snapshot rows whose schedule is due today
+    private PerformanceMonitor perfMonitor;           // Frame/stall attribution for this screen
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -57,23 +80,51 @@ public class DashboardActivity extends AppCompatActivity {
         fabAddHabit = findViewById(R.id.fabAddHabit);
         fabProgress = findViewById(R.id.fabProgress);
         fabLogout = findViewById(R.id.fabLogout);
+        fabArchive = findViewById(R.id.fabArchive);
         autoSearchHabit = findViewById(R.id.autoSearchHabit);
         spFilterCategory = findViewById(R.id.spFilterCategory);
-        dbHelper = new HabitDatabaseHelper(this);
+        chipGroupTags = findViewById(R.id.chipGroupTags);
+        model = new ViewModelProvider(this).get(DashboardViewModel.class);
+        suggestionProvider = HabitSuggestionProvider.getInstance(this);
+        perfMonitor = PerformanceMonitor.getInstance(this);
 
         // ===============================
         // 🔸 Setup Category Spinner (Filter)
         // ===============================
-        ArrayAdapter<CharSequence> categoryAdapter = ArrayAdapter.createFromResource(
-                this,
-                R.array.category_array, // Array defined in strings.xml (e.g., All, Health, Work...)
-                android.R.layout.simple_spinner_item
-        );
+        // Entries come from the categories table, labelled with their habit counts
+        categoryAdapter = new ArrayAdapter<>(this, android.R.layout.simple_spinner_item, new ArrayList<>());
         categoryAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
         spFilterCategory.setAdapter(categoryAdapter);
 
-        // Load habits initially (for the logged-in user)
-        loadHabits();
+        // Search suggestions come from the shared trie, so the adapter is created only once
+        autoSearchHabit.setAdapter(new HabitSuggestionAdapter(this));
+        autoSearchHabit.setOnItemClickListener((parent, view, position, id) -> {
+            HabitSuggestionTrie.Term term = (HabitSuggestionTrie.Term) parent.getItemAtPosition(position);
+            suggestionProvider.recordUse(term.getDisplay(), term.getKind());
+            if (term.getKind() == HabitSuggestionTrie.KIND_CATEGORY) {
+                for (int i = 0; i < categoryAdapter.getCount(); i++) {
+                    if (categoryAdapter.getItem(i).getName().equalsIgnoreCase(term.getDisplay())) {
+                        spFilterCategory.setSelection(i);
+                        break;
+                    }
+                }
+            }
+        });
+
+        // The adapter binds snapshot rows; filterHabits decides which rows are visible
+        habitAdapter = new HabitAdapter(this, model.edits);
+        rvHabits.setLayoutManager(new LinearLayoutManager(this));
+        rvHabits.setAdapter(habitAdapter);
+
+        // Long-press and drag a row to reorder habits
+        new ItemTouchHelper(new ReorderCallback()).attachToRecyclerView(rvHabits);
+
+        // Show the model's data whenever it is (re)loaded; after a configuration change the
+        // data already loaded is delivered right away and a load still running continues
+        model.getData().observe(this, this::showData);
+
+        // Make sure the idle + charging maintenance job is registered
+        DatabaseMaintenance.schedule(this);
 
         // ===============================
         // 🟡 Floating Action Buttons - Navigation
@@ -89,6 +140,17 @@ public class DashboardActivity extends AppCompatActivity {
                 startActivity(new Intent(DashboardActivity.this, ProgressActivity.class))
         );
 
+        // ⏱️ Long press: performance report and stall tracking (or switch the monitor on first)
+        fabProgress.setOnLongClickListener(v -> {
+            showPerformanceMenu();
+            return true;
+        });
+
+        // 📦 Archived Habits
+        fabArchive.setOnClickListener(v ->
+                startActivity(new Intent(DashboardActivity.this, ArchiveActivity.class))
+        );
+
         // 🚪 Logout
         fabLogout.setOnClickListener(v -> {
             Intent intent = new Intent(DashboardActivity.this, LoginActivity.class);
@@ -108,7 +170,10 @@ public class DashboardActivity extends AppCompatActivity {
             public void beforeTextChanged(CharSequence s, int start, int count, int after) {}
             @Override
             public void onTextChanged(CharSequence s, int start, int before, int count) {
-                filterHabits(s.toString(), spFilterCategory.getSelectedItem().toString());
+                model.query = s.toString();
+                perfMonitor.begin(PerformanceMonitor.SCREEN_DASHBOARD, PerformanceMonitor.ACTION_SEARCH_KEYSTROKE);
+                filterHabits();
+                perfMonitor.end();
             }
             @Override
             public void afterTextChanged(Editable s) {}
@@ -118,7 +183,8 @@ public class DashboardActivity extends AppCompatActivity {
         spFilterCategory.setOnItemSelectedListener(new android.widget.AdapterView.OnItemSelectedListener() {
             @Override
             public void onItemSelected(android.widget.AdapterView<?> parent, android.view.View view, int position, long id) {
-                filterHabits(autoSearchHabit.getText().toString(), spFilterCategory.getSelectedItem().toString());
+                model.categoryId = categoryAdapter.getItem(position).getId();
+                applyFilter();
             }
             @Override
             public void onNothingSelected(android.widget.AdapterView<?> parent) {}
@@ -128,59 +194,284 @@ public class DashboardActivity extends AppCompatActivity {
     @Override
     protected void onResume() {
         super.onResume();
-        // Reload habit list every time Dashboard becomes visible
-        loadHabits();
+        perfMonitor.attach(this, PerformanceMonitor.SCREEN_DASHBOARD);
+
+        // Reload in the background if habits changed (or the day rolled over) since the last load
+        model.refresh();
+
+        // Purge old soft-deleted habits and compact the DB once the UI is idle
+        DatabaseMaintenance.scheduleWhenIdle(this);
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        perfMonitor.detach(this);
     }
 
     // ===============================
-    // 📌 Load All Habits for Current User
+    // 📌 Performance Report
     // ===============================
-    private void loadHabits() {
-        // Fetch habits from DB (already filtered for logged-in user)
-        habitList = dbHelper.getAllHabits();
-        filteredList = new ArrayList<>(habitList);
 
-        // Setup suggestions in the search box
-        updateAutoCompleteSuggestions();
+    /**
+     * Offers the report export and the (opt-in) main-thread stall tracking switch.
+     * If the monitor is off (release builds), the first long press switches it on instead.
+     */
+    private void showPerformanceMenu() {
+        if (!perfMonitor.isEnabled()) {
+            perfMonitor.setEnabled(true);
+            perfMonitor.attach(this, PerformanceMonitor.SCREEN_DASHBOARD);
+            Toast.makeText(this, "Performance monitor on. Long-press again to export.", Toast.LENGTH_LONG).show();
+            return;
+        }
+        boolean tracking = perfMonitor.isStallTrackingEnabled();
+        CharSequence[] items = {
+                "Export report",
+                tracking ? "Stop timing main-thread stalls" : "Time main-thread stalls (slows the UI a little)"
+        };
+        new AlertDialog.Builder(this)
+                .setTitle("Performance monitor")
+                .setItems(items, (dialog, which) -> {
+                    if (which == 0) {
+                        exportPerformanceReport();
+                    } else {
+                        perfMonitor.setStallTracking(!tracking);
+                        Toast.makeText(this, tracking ? "Stall timing off" : "Stall timing on",
+                                Toast.LENGTH_SHORT).show();
+                    }
+                })
+                .show();
+    }
 
-        // Initialize adapter and RecyclerView
-        habitAdapter = new HabitAdapter(this, filteredList);
-        rvHabits.setLayoutManager(new LinearLayoutManager(this));
-        rvHabits.setAdapter(habitAdapter);
+    /**
+     * Writes the frame/stall percentile report off the UI thread and shows where it went.
+     */
+    private void exportPerformanceReport() {
+        new Thread(() -> {
+            try {
+                File report = perfMonitor.writeReport();
+                runOnUiThread(() -> Toast.makeText(this, "Performance report saved to " + report.getPath(),
+                        Toast.LENGTH_LONG).show());
+            } catch (IOException e) {
+                Log.w("DashboardActivity", "Could not write performance report", e);
+                runOnUiThread(() -> Toast.makeText(this, "Could not write performance report",
+                        Toast.LENGTH_SHORT).show());
+            }
+        }, "PerformanceReport").start();
     }
 
     // ===============================
-    // 📌 Update AutoCompleteTextView Suggestions
+    // 📌 Show Loaded Habits for Current User
     // ===============================
-    private void updateAutoCompleteSuggestions() {
-        List<String> habitNames = habitList.stream()
-                .map(Habit::getName)
-                .collect(Collectors.toList());
+    private void showData(DashboardViewModel.Data loaded) {
+        // The first data this activity shows is its cold start (or recreation); later ones are reloads
+        perfMonitor.begin(PerformanceMonitor.SCREEN_DASHBOARD,
+                data == null ? PerformanceMonitor.ACTION_FIRST_LOAD : PerformanceMonitor.ACTION_RESUME_RELOAD);
+        // Habits of the logged-in user as one columnar snapshot, with its tag index and due rows
+        data = loaded;
+        snapshot = loaded.snapshot;
+        tagIndex = loaded.tagIndex;
+        dueToday = loaded.dueToday;
 
-        ArrayAdapter<String> adapter = new ArrayAdapter<>(
-                this,
-                android.R.layout.simple_dropdown_item_1line,
-                habitNames
-        );
-        autoSearchHabit.setAdapter(adapter);
+        // Build the suggestion trie once per user; later edits update it incrementally
+        suggestionProvider.ensureLoaded(snapshot);
+
+        // Refresh category entries (counts may have changed) while keeping the selection
+        loadCategories(loaded.categories);
+
+        // Refresh the chips (tag counts and today's due count)
+        loadTagChips(loaded.tags);
+
+        // Re-apply the current search and filters (reuses the last result if nothing changed)
+        filterHabits();
+        perfMonitor.end();
+    }
+
+    // ===============================
+    // 📌 Drag to Reorder
+    // ===============================
+
+    /**
+     * Moves rows live while dragging and saves the new position once, on drop.
+     */
+    private class ReorderCallback extends ItemTouchHelper.SimpleCallback {
+        private int dragFrom = RecyclerView.NO_POSITION;
+        private int dragTo = RecyclerView.NO_POSITION;
+
+        ReorderCallback() {
+            super(ItemTouchHelper.UP | ItemTouchHelper.DOWN, 0);
+        }
+
+        @Override
+        public boolean onMove(@NonNull RecyclerView recyclerView, @NonNull RecyclerView.ViewHolder viewHolder,
+                              @NonNull RecyclerView.ViewHolder target) {
+            int from = viewHolder.getBindingAdapterPosition();
+            int to = target.getBindingAdapterPosition();
+            if (from == RecyclerView.NO_POSITION || to == RecyclerView.NO_POSITION) return false;
+            if (dragFrom == RecyclerView.NO_POSITION) dragFrom = from;
+            dragTo = to;
+            habitAdapter.onItemMove(from, to);
+            return true;
+        }
+
+        @Override
+        public void onSwiped(@NonNull RecyclerView.ViewHolder viewHolder, int direction) {}
+
+        @Override
+        public void clearView(@NonNull RecyclerView recyclerView, @NonNull RecyclerView.ViewHolder viewHolder) {
+            super.clearView(recyclerView, viewHolder);
+            if (dragFrom != RecyclerView.NO_POSITION && dragFrom != dragTo) {
+                perfMonitor.begin(PerformanceMonitor.SCREEN_DASHBOARD, PerformanceMonitor.ACTION_REORDER);
+                double sortKey = habitAdapter.onItemDropped(dragTo);
+                placeInSnapshot(dragTo, sortKey);
+                perfMonitor.end();
+            }
+            dragFrom = dragTo = RecyclerView.NO_POSITION;
+        }
+    }
+
+    /**
+     * Mirrors a drop in the (possibly filtered) visible rows into the full snapshot.
+     * The habit goes where its new sort key falls among all rows, hidden ones
+     * included, which is where the database now orders it.
+     */
+    private void placeInSnapshot(int visiblePosition, double sortKey) {
+        int from = habitAdapter.rowAt(visiblePosition);
+        // Rows shifted, so the model rebuilds the row bitmaps; the new data is shown
+        // (and the visible rows re-filtered) once the drag has fully ended
+        rvHabits.post(() -> model.moved(from, sortKey));
     }
 
     // ===============================
-    // 📌 Filter Habits by Search Query & Category
+    // 📌 Tag Filter Chips
     // ===============================
-    private void filterHabits(String query, String category) {
-        filteredList.clear();
 
-        for (Habit habit : habitList) {
-            boolean matchesQuery = habit.getName().toLowerCase().contains(query.toLowerCase());
-            boolean matchesCategory = category.equals("All") || habit.getCategory().equals(category);
+    /**
+     * Rebuilds the "due today" chip and the tag chips (labelled with habit counts)
+     * keeping the current selection; selected tags that no longer exist are dropped.
+     */
+    private void loadTagChips(List<Tag> tags) {
+        List<Integer> stillSelected = new ArrayList<>();
+        chipGroupTags.removeAllViews();
 
-            if (matchesQuery && matchesCategory) {
-                filteredList.add(habit);
+        // "Due today" narrows the list to habits whose schedule falls on today
+        Chip due = newFilterChip(getString(R.string.due_today_filter, dueToday.cardinality()), model.dueTodayOnly);
+        due.setOnCheckedChangeListener((button, isChecked) -> {
+            model.dueTodayOnly = isChecked;
+            applyFilter();
+        });
+        chipGroupTags.addView(due);
+
+        for (Tag tag : tags) {
+            boolean checked = model.selectedTagIds.contains(tag.getId());
+            if (checked) stillSelected.add(tag.getId());
+            Chip chip = newFilterChip(tag.getName() + " (" + tagIndex.count(tag.getId()) + ")", checked);
+            chip.setOnCheckedChangeListener((button, isChecked) -> {
+                if (isChecked) {
+                    model.selectedTagIds.add(tag.getId());
+                } else {
+                    model.selectedTagIds.remove(Integer.valueOf(tag.getId()));
+                }
+                applyFilter();
+            });
+            chipGroupTags.addView(chip);
+        }
+        model.selectedTagIds.clear();
+        model.selectedTagIds.addAll(stillSelected);
+
+        // "Match all" switches the selected tags from OR to AND (only useful with tags)
+        if (!tags.isEmpty()) {
+            Chip matchAll = newFilterChip(getString(R.string.tag_match_all), model.matchAllTags);
+            matchAll.setOnCheckedChangeListener((button, isChecked) -> {
+                model.matchAllTags = isChecked;
+                applyFilter();
+            });
+            chipGroupTags.addView(matchAll);
+        }
+    }
+
+    private Chip newFilterChip(String text, boolean checked) {
+        Chip chip = new Chip(this);
+        chip.setText(text);
+        chip.setCheckable(true);
+        chip.setChecked(checked);
+        return chip;
+    }
+
+    // ===============================
+    // 📌 Load Categories (with maintained habit counts)
+    // ===============================
+    private void loadCategories(List<Category> categories) {
+        int selectedId = model.categoryId;
+
+        categoryAdapter.setNotifyOnChange(false);
+        categoryAdapter.clear();
+        categoryAdapter.add(new Category(Category.ALL_ID, getString(R.string.category_all), snapshot.size()));
+        categoryAdapter.addAll(categories);
+        categoryAdapter.notifyDataSetChanged();
+
+        for (int i = 0; i < categoryAdapter.getCount(); i++) {
+            if (categoryAdapter.getItem(i).getId() == selectedId) {
+                spFilterCategory.setSelection(i);
+                break;
             }
         }
+    }
+
+    // ===============================
+    // 📌 Filter Habits by Search Query, Category & Tags
+    // ===============================
+
+    // Re-filters after a category, tag or "due today" change (timed as a filter action)
+    private void applyFilter() {
+        perfMonitor.begin(PerformanceMonitor.SCREEN_DASHBOARD, PerformanceMonitor.ACTION_FILTER);
+        filterHabits();
+        perfMonitor.end();
+    }
+
+    private void filterHabits() {
+        if (data == null) return; // not loaded yet (listeners fire during setup)
+
+        // Same data and filter as last time (e.g. restored views after a configuration change):
+        // rebind the rows already computed, or do nothing if they are already shown
+        if (model.isFilterCurrent(data)) {
+            if (habitAdapter.getRows() != model.filteredRows()) {
+                habitAdapter.setRows(snapshot, model.filteredRows(), model.filteredCount());
+            }
+            return;
+        }
+
+        String lowerQuery = model.query.toLowerCase();
+        int categoryId = model.categoryId;
+        int[] rows = new int[snapshot.size()];
+        int count = 0;
+
+        // Selected tags are combined with bitwise AND / OR, then with today's due rows;
+        // only matching rows are visited
+        SparseBitSet tagged = tagIndex != null ? tagIndex.query(model.selectedTagIds, model.matchAllTags) : null;
+        if (model.dueTodayOnly && dueToday != null) {
+            tagged = tagged != null ? tagged.and(dueToday) : dueToday;
+        }
+
+        if (tagged == null) {
+            for (int row = 0; row < snapshot.size(); row++) {
+                if (matches(row, lowerQuery, categoryId)) rows[count++] = row;
+            }
+        } else {
+            for (int row = tagged.nextSetBit(0); row >= 0; row = tagged.nextSetBit(row + 1)) {
+                if (matches(row, lowerQuery, categoryId)) rows[count++] = row;
+            }
+        }
+
+        // Refresh RecyclerView (the model keeps the result for the next activity instance)
+        model.setFilterResult(data, rows, count);
+        habitAdapter.setRows(snapshot, rows, count);
+    }
 
-        // Refresh RecyclerView
-        habitAdapter.notifyDataSetChanged();
+    // Reads the pre-lowercased name and category id columns; no Habit objects involved
+    private boolean matches(int row, String lowerQuery, int categoryId) {
+        boolean matchesQuery = snapshot.lowerNameAt(row).contains(lowerQuery);
+        boolean matchesCategory = categoryId == Category.ALL_ID || snapshot.categoryIdAt(row) == categoryId;
+        return matchesQuery && matchesCategory;
     }
 }
@@ -0,0 +1,200 @@
+package com.example.myapplication;
+
+import android.app.Application;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.util.SparseArray;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.AndroidViewModel;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * DashboardViewModel:
+ * -------------------
+ * Dashboard state that outlives the activity across configuration changes
+ * (rotation, dark mode, …):
+ *   - the loaded data (snapshot, categories, tags, tag index, today's due rows),
+ *     loaded on a background thread and published through LiveData, so a load
+ *     that is still running when the activity is recreated is delivered to the
+ *     new one instead of being repeated;
+ *   - the filter state (search text, category, tags, match all, due today) and
+ *     the rows of the last filter, so a recreated activity only rebinds views;
+ *   - the habits edited (toggled, dropped) since the last load, shared with HabitAdapter.
+ * {@link #refresh()} reloads only when the data generation or the day changed
+ * since the last load, so returning to the dashboard without edits does no DB work.
+ */
+public class DashboardViewModel extends AndroidViewModel {
+
+    private static final String TAG = "DashboardViewModel";
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    /**
+     * One consistent load of everything the dashboard shows. Immutable.
+     */
+    public static final class Data {
+        final HabitSnapshot snapshot;
+        final List<Category> categories;
+        final List<Tag> tags;
+        final TagBitmapIndex tagIndex;
+        final SparseBitSet dueToday;
+        final int day;              // epoch day dueToday was computed for
+        final long generation;      // HabitDatabaseHelper.dataGeneration() read before loading
+
+        Data(HabitSnapshot snapshot, List<Category> categories, List<Tag> tags,
+             TagBitmapIndex tagIndex, SparseBitSet dueToday, int day, long generation) {
+            this.snapshot = snapshot;
+            this.categories = categories;
+            this.tags = tags;
+            this.tagIndex = tagIndex;
+            this.dueToday = dueToday;
+            this.day = day;
+            this.generation = generation;
+        }
+    }
+
+    private final HabitDatabaseHelper dbHelper;
+    private final MutableLiveData<Data> data = new MutableLiveData<>();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private boolean loading;                       // a load is in flight (main thread only)
+
+    // Habits edited since the last load (habit id → current state); HabitAdapter reads and fills it
+    final SparseArray<Habit> edits = new SparseArray<>();
+
+    // ===============================
+    // 📌 Filter state (main thread only)
+    // ===============================
+    String query = "";
+    int categoryId = Category.ALL_ID;
+    final List<Integer> selectedTagIds = new ArrayList<>();
+    boolean matchAllTags;                          // true = AND the selected tags, false = OR
+    boolean dueTodayOnly = true;                   // hide habits that are not due today
+
+    // Result of the last filter and the inputs it was computed from
+    private int[] filteredRows;
+    private int filteredCount;
+    private Data filteredData;
+    private String filteredQuery;
+    private int filteredCategoryId;
+    private final List<Integer> filteredTagIds = new ArrayList<>();
+    private boolean filteredMatchAll;
+    private boolean filteredDueOnly;
+
+    public DashboardViewModel(@NonNull Application application) {
+        super(application);
+        dbHelper = new HabitDatabaseHelper(application);
+    }
+
+    public LiveData<Data> getData() {
+        return data;
+    }
+
+    /** The data currently shown, or null before the first load completes. */
+    Data current() {
+        return data.getValue();
+    }
+
+    // ===============================
+    // 📌 Loading
+    // ===============================
+
+    /**
+     * Starts a background load unless one is already running or the loaded data
+     * is still current (no write since, same day).
+     */
+    public void refresh() {
+        if (loading) return;
+        Data loaded = data.getValue();
+        if (loaded != null && loaded.generation == HabitDatabaseHelper.dataGeneration()
+                && loaded.day == DayMath.today()) {
+            return;
+        }
+
+        loading = true;
+        executor.execute(() -> {
+            Data fresh;
+            try {
+                fresh = load();
+            } catch (RuntimeException e) {
+                // Keep showing the last data; the next refresh() (e.g. onResume) tries again
+                Log.w(TAG, "Could not load the dashboard", e);
+                mainHandler.post(() -> loading = false);
+                return;
+            }
+            mainHandler.post(() -> {
+                loading = false;
+                boolean stale = fresh.generation != HabitDatabaseHelper.dataGeneration();
+                // Edits made while loading may be missing from the snapshot, so they are kept until a current load
+                if (!stale) edits.clear();
+                data.setValue(fresh);   // delivered to whichever activity instance is observing
+                if (stale) refresh();
+            });
+        });
+    }
+
+    private Data load() {
+        // Read the generation first: a write during the load makes the result stale
+        long generation = HabitDatabaseHelper.dataGeneration();
+        int today = DayMath.today();
+        HabitSnapshot snapshot = dbHelper.loadHabitSnapshot();
+        return new Data(snapshot, dbHelper.getCategories(), dbHelper.getTags(),
+                dbHelper.loadTagIndex(snapshot), dbHelper.dueRows(snapshot, today), today, generation);
+    }
+
+    /**
+     * Replaces the snapshot after a drag-and-drop that was already saved: the row
+     * at from moves to where sortKey falls. The rows are the same, only renumbered,
+     * so the tag index and today's due rows are remapped in memory (no DB access
+     * on the main thread). The generation is kept, so the next refresh() still
+     * picks up other writes.
+     */
+    void moved(int from, double sortKey) {
+        Data old = data.getValue();
+        if (old == null) return;
+        int to = old.snapshot.positionOf(from, sortKey);
+        HabitSnapshot snapshot = old.snapshot.moved(from, to, sortKey);
+        data.setValue(new Data(snapshot, old.categories, old.tags,
+                old.tagIndex.moved(snapshot, from, to), old.dueToday.moved(from, to),
+                old.day, old.generation));
+    }
+
+    // ===============================
+    // 📌 Last filter result
+    // ===============================
+
+    /**
+     * Whether the last filter result was computed for this data and the current filter state.
+     */
+    boolean isFilterCurrent(Data forData) {
+        return filteredRows != null
+                && filteredData == forData
+                && filteredQuery.equals(query)
+                && filteredCategoryId == categoryId
+                && filteredTagIds.size() == selectedTagIds.size()
+                && filteredTagIds.containsAll(selectedTagIds)
+                && filteredMatchAll == matchAllTags
+                && filteredDueOnly == dueTodayOnly;
+    }
+
+    void setFilterResult(Data forData, int[] rows, int count) {
+        filteredRows = rows;
+        filteredCount = count;
+        filteredData = forData;
+        filteredQuery = query;
+        filteredCategoryId = categoryId;
+        filteredTagIds.clear();
+        filteredTagIds.addAll(selectedTagIds);
+        filteredMatchAll = matchAllTags;
+        filteredDueOnly = dueTodayOnly;
+    }
+
+    int[] filteredRows() { return filteredRows; }
+    int filteredCount() { return filteredCount; }
+}
@@ -0,0 +1,297 @@
+package com.example.myapplication;
+
+import android.app.job.JobInfo;
+import android.app.job.JobScheduler;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.BatteryManager;
+import android.os.Looper;
+import android.os.PowerManager;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BooleanSupplier;
+
+/**
+ * DatabaseMaintenance:
+ * --------------------
+ * Background housekeeping for habittracker.db.
+ *
+ * Light pass (main thread idle, see {@link #scheduleWhenIdle}):
+ *   purges soft-deleted habits older than the retention window in small
+ *   batches and frees a bounded number of pages with incremental_vacuum.
+ *
+ * Full pass (device idle + charging, run by DatabaseMaintenanceJobService):
+ *   the light steps plus a sort-key rebalance (see SortKeys), ANALYZE /
+ *   PRAGMA optimize, a PASSIVE WAL checkpoint and a periodic quick_check.
+ *   Files created before incremental auto-vacuum are converted here once;
+ *   that needs a full VACUUM, so it is skipped unless the device is idle or
+ *   charging and the file is below {@link #VACUUM_CONVERSION_MAX_BYTES}.
+ *
+ * Every step works in short units (one batch, a few pages, one pragma). A pass
+ * opens its connection once, so units do not pay for reopening the database,
+ * and each step starts with its smallest unit, then sizes the next one from
+ * the last one's throughput to stay well under {@link #MAX_BLOCKING_MILLIS}.
+ * With WAL enabled, readers are never blocked, and a user-facing write waits
+ * at most one unit. Each step's duration is logged and kept in "MaintenancePrefs".
+ */
+public class DatabaseMaintenance {
+
+    private static final String TAG = "DatabaseMaintenance";
+    private static final String PREFS = "MaintenancePrefs";
+    private static final int JOB_ID = 1001;
+
+    // Tombstones are kept this long so an undo can still restore them
+    static final long TOMBSTONE_RETENTION_MILLIS = 10 * 60 * 1000;
+
+    // Longest time one unit of maintenance work may hold the write lock
+    static final long MAX_BLOCKING_MILLIS = 50;
+
+    private static final long LIGHT_PASS_BUDGET_MILLIS = 200;
+    private static final long FULL_PASS_BUDGET_MILLIS = 10_000;
+    private static final long MIN_PASS_INTERVAL_MILLIS = 5 * 60 * 1000;
+    private static final long JOB_PERIOD_MILLIS = 24 * 60 * 60 * 1000;
+    private static final long QUICK_CHECK_INTERVAL_MILLIS = 7 * JOB_PERIOD_MILLIS;
+    private static final int ANALYSIS_LIMIT = 1000;
+
+    // Largest file the one-time auto_vacuum conversion (a full VACUUM) is run on
+    static final long VACUUM_CONVERSION_MAX_BYTES = 8 * 1024 * 1024;
+
+    // Unit sizes: each step starts at the minimum and adapts within [min, max]
+    private static final int MIN_PURGE_BATCH = 10;
+    private static final int MAX_PURGE_BATCH = 1000;
+    private static final int MIN_VACUUM_PAGES = 8;
+    private static final int MAX_VACUUM_PAGES = 2048;
+    private static final int MIN_REBALANCE_BATCH = 20;
+    private static final int MAX_REBALANCE_BATCH = 1000;
+
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private static long lastPassAt;
+    private static boolean pending;
+
+    private DatabaseMaintenance() {}
+
+    // ===============================
+    // 📌 Scheduling
+    // ===============================
+
+    /**
+     * Registers the daily full pass with JobScheduler (idle + charging) if it is not pending yet.
+     */
+    public static void schedule(Context context) {
+        JobScheduler scheduler = (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+        if (scheduler == null || scheduler.getPendingJob(JOB_ID) != null) return;
+
+        JobInfo job = new JobInfo.Builder(JOB_ID,
+                new ComponentName(context, DatabaseMaintenanceJobService.class))
+                .setRequiresDeviceIdle(true)
+                .setRequiresCharging(true)
+                .setPeriodic(JOB_PERIOD_MILLIS)
+                .build();
+        scheduler.schedule(job);
+    }
+
+    /**
+     * Queues one light pass for the next time the main thread is idle.
+     * Calls made while a pass is pending or shortly after one ran are ignored.
+     */
+    public static void scheduleWhenIdle(Context context) {
+        long now = SystemClock.elapsedRealtime();
+        if (pending || (lastPassAt != 0 && now - lastPassAt < MIN_PASS_INTERVAL_MILLIS)) return;
+        pending = true;
+
+        Context appContext = context.getApplicationContext();
+        Looper.getMainLooper().getQueue().addIdleHandler(() -> {
+            pending = false;
+            lastPassAt = SystemClock.elapsedRealtime();
+            executor.execute(() -> runLightPass(appContext));
+            return false; // one-shot
+        });
+    }
+
+    /**
+     * Runs the full pass on the maintenance thread; onDone is called when it ends.
+     * stopped is polled between units so the job can be cancelled promptly.
+     */
+    static void runFullPassAsync(Context context, BooleanSupplier stopped, Runnable onDone) {
+        Context appContext = context.getApplicationContext();
+        executor.execute(() -> {
+            try {
+                runFullPass(appContext, stopped);
+            } finally {
+                onDone.run();
+            }
+        });
+    }
+
+    // ===============================
+    // 📌 Passes
+    // ===============================
+
+    static void runLightPass(Context context) {
+        HabitDatabaseHelper dbHelper = new HabitDatabaseHelper(context);
+        BooleanSupplier stopped = () -> false;
+        try {
+            // Opened (and configured) once, before any unit is timed
+            SQLiteDatabase db = dbHelper.getWritableDatabase();
+            long deadline = SystemClock.elapsedRealtime() + LIGHT_PASS_BUDGET_MILLIS;
+            purgeTombstones(context, dbHelper, db, deadline, stopped);
+            vacuum(context, dbHelper, db, deadline, stopped);
+        } catch (Exception e) {
+            Log.w(TAG, "Light maintenance pass failed", e);
+        } finally {
+            dbHelper.close();
+        }
+    }
+
+    static void runFullPass(Context context, BooleanSupplier stopped) {
+        HabitDatabaseHelper dbHelper = new HabitDatabaseHelper(context);
+        try {
+            // One connection for the whole job, opened before any unit is timed
+            SQLiteDatabase db = dbHelper.getWritableDatabase();
+            long deadline = SystemClock.elapsedRealtime() + FULL_PASS_BUDGET_MILLIS;
+            purgeTombstones(context, dbHelper, db, deadline, stopped);
+
+            if (!stopped.getAsBoolean() && dbHelper.needsVacuumConversion(db)) {
+                long size = dbHelper.getDatabaseSize(db);
+                if (size <= VACUUM_CONVERSION_MAX_BYTES && isIdleOrCharging(context)) {
+                    long start = SystemClock.elapsedRealtime();
+                    dbHelper.convertToIncrementalVacuum(db);
+                    record(context, "convert_vacuum", start);
+                } else {
+                    Log.d(TAG, "auto_vacuum conversion skipped (" + size + " bytes)");
+                }
+            }
+
+            vacuum(context, dbHelper, db, deadline, stopped);
+
+            if (!stopped.getAsBoolean() && SystemClock.elapsedRealtime() < deadline
+                    && dbHelper.needsSortKeyRebalance(db, SortKeys.MIN_GAP)) {
+                rebalanceSortKeys(context, dbHelper, db, deadline, stopped);
+            }
+
+            if (!stopped.getAsBoolean() && SystemClock.elapsedRealtime() < deadline) {
+                long start = SystemClock.elapsedRealtime();
+                dbHelper.analyze(db, ANALYSIS_LIMIT);
+                record(context, "analyze", start);
+            }
+
+            if (!stopped.getAsBoolean()) {
+                long start = SystemClock.elapsedRealtime();
+                int remaining = dbHelper.checkpointWal(db);
+                record(context, "checkpoint_passive", start);
+                if (remaining != 0) Log.d(TAG, "WAL checkpoint incomplete: " + remaining);
+            }
+
+            SharedPreferences prefs = context.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+            long lastCheck = prefs.getLong("quick_check_last_run", 0);
+            if (!stopped.getAsBoolean() && SystemClock.elapsedRealtime() < deadline
+                    && System.currentTimeMillis() - lastCheck > QUICK_CHECK_INTERVAL_MILLIS) {
+                long start = SystemClock.elapsedRealtime();
+                boolean ok = dbHelper.quickCheck(db);
+                record(context, "quick_check", start);
+                prefs.edit().putBoolean("quick_check_ok", ok).apply();
+                if (!ok) Log.e(TAG, "quick_check reported database corruption");
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "Full maintenance pass failed", e);
+        } finally {
+            dbHelper.close();
+        }
+    }
+
+    // ===============================
+    // 📌 Steps
+    // ===============================
+
+    private static void purgeTombstones(Context context, HabitDatabaseHelper dbHelper, SQLiteDatabase db,
+                                        long deadline, BooleanSupplier stopped) {
+        long start = SystemClock.elapsedRealtime();
+        long deletedBefore = System.currentTimeMillis() - TOMBSTONE_RETENTION_MILLIS;
+        int purged = 0;
+        int size = MIN_PURGE_BATCH;
+        int batch;
+        do {
+            long unitStart = SystemClock.elapsedRealtime();
+            batch = dbHelper.purgeDeletedHabits(db, deletedBefore, size);
+            purged += batch;
+            if (batch < size) break;
+            size = nextUnitSize(size, SystemClock.elapsedRealtime() - unitStart, MIN_PURGE_BATCH, MAX_PURGE_BATCH);
+        } while (!stopped.getAsBoolean() && SystemClock.elapsedRealtime() < deadline);
+
+        if (purged > 0) record(context, "purge_tombstones", start);
+    }
+
+    private static void vacuum(Context context, HabitDatabaseHelper dbHelper, SQLiteDatabase db,
+                               long deadline, BooleanSupplier stopped) {
+        long start = SystemClock.elapsedRealtime();
+        int pages = MIN_VACUUM_PAGES;
+        int freePages;
+        do {
+            long unitStart = SystemClock.elapsedRealtime();
+            freePages = dbHelper.incrementalVacuum(db, pages);
+            pages = nextUnitSize(pages, SystemClock.elapsedRealtime() - unitStart, MIN_VACUUM_PAGES, MAX_VACUUM_PAGES);
+        } while (freePages > 0 && !stopped.getAsBoolean() && SystemClock.elapsedRealtime() < deadline);
+
+        record(context, "incremental_vacuum", start);
+    }
+
+    /**
+     * Renumbers the sort keys top to bottom, one key-ordered batch per unit. A pass
+     * that stops early leaves a valid order; the next one starts over at the top.
+     */
+    private static void rebalanceSortKeys(Context context, HabitDatabaseHelper dbHelper, SQLiteDatabase db,
+                                          long deadline, BooleanSupplier stopped) {
+        long start = SystemClock.elapsedRealtime();
+        double after = -Double.MAX_VALUE;
+        int size = MIN_REBALANCE_BATCH;
+        do {
+            long unitStart = SystemClock.elapsedRealtime();
+            after = dbHelper.rebalanceSortKeys(db, after, size);
+            if (Double.isNaN(after)) break;
+            size = nextUnitSize(size, SystemClock.elapsedRealtime() - unitStart, MIN_REBALANCE_BATCH, MAX_REBALANCE_BATCH);
+        } while (!stopped.getAsBoolean() && SystemClock.elapsedRealtime() < deadline);
+
+        record(context, "rebalance_sort_keys", start);
+    }
+
+    /**
+     * Size of the next unit from the last one's throughput, aiming at half of
+     * MAX_BLOCKING_MILLIS so a slower unit still stays under it. Shrinks right
+     * away when a unit was slow, grows at most 2x per unit, within [min, max].
+     */
+    static int nextUnitSize(int size, long tookMillis, int min, int max) {
+        long target = MAX_BLOCKING_MILLIS / 2;
+        long next = tookMillis <= 0 ? 2L * size : Math.min(2L * size, size * target / tookMillis);
+        return (int) Math.max(min, Math.min(max, next));
+    }
+
+    /**
+     * Whether a long exclusive step (the full VACUUM) may run now: the device is
+     * in doze idle or plugged in, so no one is waiting on the database.
+     */
+    private static boolean isIdleOrCharging(Context context) {
+        PowerManager power = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+        if (power != null && power.isDeviceIdleMode()) return true;
+        BatteryManager battery = (BatteryManager) context.getSystemService(Context.BATTERY_SERVICE);
+        return battery != null && battery.isCharging();
+    }
+
+    /**
+     * Logs a step's duration and stores it (last and worst) in MaintenancePrefs.
+     */
+    private static void record(Context context, String step, long startedAt) {
+        long took = SystemClock.elapsedRealtime() - startedAt;
+        SharedPreferences prefs = context.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+        prefs.edit()
+                .putLong(step + "_last_ms", took)
+                .putLong(step + "_max_ms", Math.max(took, prefs.getLong(step + "_max_ms", 0)))
+                .putLong(step + "_last_run", System.currentTimeMillis())
+                .apply();
+        Log.d(TAG, step + " took " + took + " ms");
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.myapplication;
+
+import android.app.job.JobParameters;
+import android.app.job.JobService;
+
+/**
+ * DatabaseMaintenanceJobService:
+ * ------------------------------
+ * JobScheduler entry point for the full database maintenance pass.
+ * The job is scheduled by DatabaseMaintenance.schedule() to run only while
+ * the device is idle and charging; the work itself runs on the maintenance
+ * thread and stops between steps if the system cancels the job.
+ */
+public class DatabaseMaintenanceJobService extends JobService {
+
+    private volatile boolean stopped;
+
+    @Override
+    public boolean onStartJob(JobParameters params) {
+        stopped = false;
+        DatabaseMaintenance.runFullPassAsync(this, () -> stopped,
+                () -> jobFinished(params, false));
+        return true; // work continues on the maintenance thread
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        // Device left idle/charging: finish the current unit and try again next period
+        stopped = true;
+        return false;
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.myapplication;
+
+import java.util.TimeZone;
+
+/**
+ * DayMath:
+ * --------
+ * Allocation-free calendar arithmetic on "epoch days" (days since 1970-01-01).
+ * Used by completion history and statistics instead of Calendar/Date objects
+ * (java.time is not available on every supported API level). Plain Java.
+ */
+public final class DayMath {
+
+    private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+
+    private DayMath() {}
+
+    /**
+     * Today's epoch day in the device's time zone.
+     */
+    public static int today() {
+        long now = System.currentTimeMillis();
+        return (int) Math.floorDiv(now + TimeZone.getDefault().getOffset(now), MILLIS_PER_DAY);
+    }
+
+    /**
+     * Epoch day of a civil date (month 1-12, day 1-31).
+     */
+    public static int epochDay(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = Math.floorDiv(y, 400);
+        int yoe = y - era * 400;
+        int mp = (month + 9) % 12;
+        int doy = (153 * mp + 2) / 5 + day - 1;
+        int doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146097 + doe - 719468;
+    }
+
+    /**
+     * Civil year of an epoch day.
+     */
+    public static int year(int epochDay) {
+        int z = epochDay + 719468;
+        int era = Math.floorDiv(z, 146097);
+        int doe = z - era * 146097;
+        int yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        int doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        int mp = (5 * doy + 2) / 153;
+        int month = mp < 10 ? mp + 3 : mp - 9;
+        return yoe + era * 400 + (month <= 2 ? 1 : 0);
+    }
+
+    /**
+     * Day of the month (1-31) of an epoch day.
+     */
+    public static int dayOfMonth(int epochDay) {
+        int z = epochDay + 719468;
+        int era = Math.floorDiv(z, 146097);
+        int doe = z - era * 146097;
+        int yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        int doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        int mp = (5 * doy + 2) / 153;
+        return doy - (153 * mp + 2) / 5 + 1;
+    }
+
+    /**
+     * Month (1-12) of an epoch day.
+     */
+    public static int month(int epochDay) {
+        int z = epochDay + 719468;
+        int era = Math.floorDiv(z, 146097);
+        int doe = z - era * 146097;
+        int yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        int doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        int mp = (5 * doy + 2) / 153;
+        return mp < 10 ? mp + 3 : mp - 9;
+    }
+
+    /**
+     * Number of days (28-31) in the month containing an epoch day.
+     */
+    public static int lengthOfMonth(int epochDay) {
+        int year = year(epochDay);
+        int month = month(epochDay);
+        int next = month == 12 ? epochDay(year + 1, 1, 1) : epochDay(year, month + 1, 1);
+        return next - epochDay(year, month, 1);
+    }
+
+    /**
+     * Zero-based day of the year (0 = January 1st).
+     */
+    public static int dayOfYear(int epochDay) {
+        return epochDay - epochDay(year(epochDay), 1, 1);
+    }
+
+    /**
+     * Day of the week, 0 = Monday … 6 = Sunday (1970-01-01 was a Thursday).
+     */
+    public static int dayOfWeek(int epochDay) {
+        return Math.floorMod(epochDay + 3, 7);
+    }
+}
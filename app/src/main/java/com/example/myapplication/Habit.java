@@ -1,15 +1,32 @@
 package com.example.myapplication;
 
+import java.util.Objects;
+
 /**
  * Model class representing a single Habit entity.
  * This class defines the structure of a habit, including its attributes,
  * constructors for different use cases, and getter/setter methods.
-
+ *
  * It acts as a Data Model used across the app to store and retrieve
  * habit details from the database and display them in the UI.
+ *
+ * Setters record which persisted fields actually changed (dirty tracking),
+ * so HabitDatabaseHelper.updateHabit() only writes those columns. The
+ * version is the row version read from the DB; updates are conditional on it.
+ * The sort key (user-defined order) is written separately by moveHabit(),
+ * and the photo name by setHabitImage().
  */
 public class Habit {
 
+    // ===============================
+    // >> Dirty-field flags (bit mask)
+    // ===============================
+    public static final int FIELD_NAME = 1;
+    public static final int FIELD_FREQUENCY = 1 << 1;
+    public static final int FIELD_DESCRIPTION = 1 << 2;
+    public static final int FIELD_CATEGORY = 1 << 3;
+    public static final int FIELD_COMPLETED = 1 << 4;
+
     // ===============================
     // >> Fields - Habit Attributes
     // ===============================
@@ -18,6 +35,7 @@ public class Habit {
     private String frequency;       // How often the habit should be done (e.g., "Daily", "Weekly")
     private String description;     // Additional details or notes about the habit
     private String category;        // Category of the habit (e.g., Health, Work, Personal)
+    private int categoryId;         // Id of the category in the categories dictionary table (0 = unresolved)
     private String username;        // Username of the owner (helps when multiple users are supported)
     private boolean completed;      // Status indicating if the habit is completed for the current period
 
@@ -25,6 +43,16 @@ public class Habit {
     private int streakCount;        // Number of consecutive completions
     private String lastCompletedDate; // Last date on which this habit was marked as completed
 
+    // Change tracking for minimal, optimistic updates
+    private int version;            // Row version loaded from the DB (bumped on every update)
+    private int dirtyFields;        // FIELD_* bits changed since load / last successful update
+
+    // User-defined position on the dashboard (fractional, ascending)
+    private double sortKey;
+
+    // Stored photo shown for the habit (HabitImageLoader), null for the category icon
+    private String imageName;
+
     // ===============================
     // 📌 Constructors
     // ===============================
@@ -106,21 +134,69 @@ public class Habit {
     public String getFrequency() { return frequency; }
     public String getDescription() { return description; }
     public String getCategory() { return category; }
+    public int getCategoryId() { return categoryId; }
     public String getUsername() { return username; }
     public boolean isCompleted() { return completed; }
     public int getStreakCount() { return streakCount; }
     public String getLastCompletedDate() { return lastCompletedDate; }
+    public int getVersion() { return version; }
+    public int getDirtyFields() { return dirtyFields; }
+    public double getSortKey() { return sortKey; }
+    public String getImageName() { return imageName; }
+    public boolean isDirty(int field) { return (dirtyFields & field) != 0; }
 
     // ===============================
     // 📌 Setters - For Modifying Values
     // ===============================
     public void setId(int id) { this.id = id; }
-    public void setName(String name) { this.name = name; }
-    public void setFrequency(String frequency) { this.frequency = frequency; }
-    public void setDescription(String description) { this.description = description; }
-    public void setCategory(String category) { this.category = category; }
+    public void setName(String name) {
+        if (!Objects.equals(this.name, name)) { this.name = name; dirtyFields |= FIELD_NAME; }
+    }
+    public void setFrequency(String frequency) {
+        if (!Objects.equals(this.frequency, frequency)) { this.frequency = frequency; dirtyFields |= FIELD_FREQUENCY; }
+    }
+    public void setDescription(String description) {
+        if (!Objects.equals(this.description, description)) { this.description = description; dirtyFields |= FIELD_DESCRIPTION; }
+    }
+    public void setCategory(String category) {
+        if (!Objects.equals(this.category, category)) { this.category = category; dirtyFields |= FIELD_CATEGORY; }
+    }
+    public void setCategoryId(int categoryId) {
+        if (this.categoryId != categoryId) { this.categoryId = categoryId; dirtyFields |= FIELD_CATEGORY; }
+    }
     public void setUsername(String username) { this.username = username; }
-    public void setCompleted(boolean completed) { this.completed = completed; }
+    public void setCompleted(boolean completed) {
+        if (this.completed != completed) { this.completed = completed; dirtyFields |= FIELD_COMPLETED; }
+    }
     public void setStreakCount(int streakCount) { this.streakCount = streakCount; }
     public void setLastCompletedDate(String lastCompletedDate) { this.lastCompletedDate = lastCompletedDate; }
+    public void setVersion(int version) { this.version = version; }
+    public void setSortKey(double sortKey) { this.sortKey = sortKey; }
+    public void setImageName(String imageName) { this.imageName = imageName; }
+
+    /**
+     * Marks the current values as persisted (called after load or a successful update).
+     */
+    public void clearDirty() { dirtyFields = 0; }
+
+    /**
+     * Replaces every field with the values of a freshly loaded copy of this habit
+     * (used after an update conflict) and clears the dirty flags.
+     */
+    public void copyFrom(Habit other) {
+        this.id = other.id;
+        this.name = other.name;
+        this.frequency = other.frequency;
+        this.description = other.description;
+        this.category = other.category;
+        this.categoryId = other.categoryId;
+        this.username = other.username;
+        this.completed = other.completed;
+        this.streakCount = other.streakCount;
+        this.lastCompletedDate = other.lastCompletedDate;
+        this.version = other.version;
+        this.sortKey = other.sortKey;
+        this.imageName = other.imageName;
+        this.dirtyFields = 0;
+    }
 }
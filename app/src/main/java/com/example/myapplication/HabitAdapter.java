@@ -2,11 +2,16 @@ package com.example.myapplication;
 
 import android.content.Context;
 import android.content.Intent;
+import android.text.TextUtils;
+import android.util.SparseArray;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.CheckBox;
+import android.widget.CompoundButton;
+import android.widget.ImageView;
 import android.widget.TextView;
+import android.widget.Toast;
 import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 import java.util.List;
@@ -14,23 +19,66 @@ import java.util.List;
 /**
  * HabitAdapter:
  * -------------
- * This adapter acts as a bridge between the Habit data (List<Habit>)
- * and the RecyclerView UI. It handles displaying each habit item,
- * updating its completion status, and navigating to its detail view.
+ * This adapter acts as a bridge between the habit data (a HabitSnapshot plus
+ * the positions of the visible rows) and the RecyclerView UI. It handles
+ * displaying each habit item, updating its completion status, and
+ * navigating to its detail view.
+ *
+ * Rows are bound straight from the snapshot's columns. A Habit object is
+ * only created when a row is toggled or dropped, and is then kept (by id)
+ * as that row's current state in the edits map owned by DashboardViewModel,
+ * which clears it when a fresh snapshot is loaded.
+ *
+ * Listeners are created once per ViewHolder (not on every bind), items use
+ * stable ids (the habit's DB id), and a completion toggle is rebound through
+ * the {@link #PAYLOAD_COMPLETION} payload so only the checkbox is refreshed.
+ * Rows can be dragged to a new position (see DashboardActivity's ItemTouchHelper);
+ * a drop is saved as one new sort key for the moved habit.
+ * Each row shows the habit's photo or category icon through HabitImageLoader,
+ * so a row that was already shown is rebound from the memory cache.
  */
 public class HabitAdapter extends RecyclerView.Adapter<HabitAdapter.HabitViewHolder> {
 
+    /** Payload used with notifyItemChanged() when only the completion flag changed. */
+    public static final Object PAYLOAD_COMPLETION = new Object();
+
     private Context context;
-    private List<Habit> habitList;
     private HabitDatabaseHelper dbHelper;
+    private final HabitImageLoader imageLoader;
+    private final int thumbSize;    // row thumbnail size in pixels
+    private final PerformanceMonitor perfMonitor;
+
+    // Visible rows: positions in the snapshot, in display order
+    private HabitSnapshot snapshot = HabitSnapshot.empty("");
+    private int[] rows = new int[0];
+    private int rowCount;
+
+    // Habits edited since the snapshot was loaded (habit id → current state)
+    private final SparseArray<Habit> edited;
 
     /**
-     * Constructor to initialize adapter with context and habit list
+     * Constructor to initialize adapter with context and the shared edits map
+     * (rows arrive through setRows)
      */
-    public HabitAdapter(Context context, List<Habit> habitList) {
+    public HabitAdapter(Context context, SparseArray<Habit> edited) {
         this.context = context;
-        this.habitList = habitList;
+        this.edited = edited;
         dbHelper = new HabitDatabaseHelper(context);
+        imageLoader = HabitImageLoader.getInstance(context);
+        perfMonitor = PerformanceMonitor.getInstance(context);
+        thumbSize = context.getResources().getDimensionPixelSize(R.dimen.habit_thumb_size);
+        setHasStableIds(true);
+    }
+
+    /**
+     * Shows the given snapshot rows. The array is not copied: it is kept as
+     * DashboardViewModel's last filter result and reordered in place while dragging.
+     */
+    public void setRows(HabitSnapshot snapshot, int[] rows, int rowCount) {
+        this.snapshot = snapshot;
+        this.rows = rows;
+        this.rowCount = rowCount;
+        notifyDataSetChanged();
     }
 
     /**
@@ -41,38 +89,80 @@ public class HabitAdapter extends RecyclerView.Adapter<HabitAdapter.HabitViewHol
     @Override
     public HabitViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
         View view = LayoutInflater.from(context).inflate(R.layout.item_habit, parent, false);
-        return new HabitViewHolder(view);
+        return new HabitViewHolder(view, this);
     }
 
     /**
-     * Binds data from a Habit object to the corresponding views in the item layout.
-     * Also sets up listeners for checkbox changes and item clicks.
+     * Binds one snapshot row (or its edited Habit) to the views in the item layout.
+     * Listeners are already attached by the ViewHolder, so nothing is allocated here.
      */
     @Override
     public void onBindViewHolder(@NonNull HabitViewHolder holder, int position) {
-        // Get current habit from the list
-        Habit habit = habitList.get(position);
+        int row = rows[position];
+        Habit habit = edited.get(snapshot.idAt(row));
 
         // Bind habit name and frequency to TextViews
-        holder.txtHabitName.setText(habit.getName());
-        holder.txtHabitFrequency.setText(habit.getFrequency());
+        setText(holder.txtHabitName, habit != null ? habit.getName() : snapshot.nameAt(row));
+        setText(holder.txtHabitFrequency, habit != null ? habit.getFrequency() : snapshot.frequencyAt(row));
+
+        // Photo (or category icon) at row size; synchronous when already in the memory cache.
+        // The cache key is kept on the holder, so rebinding the same photo builds no string.
+        String imageName = habit != null ? habit.getImageName() : snapshot.imageNameAt(row);
+        if (imageName != null && !imageName.equals(holder.thumbImage)) {
+            holder.thumbImage = imageName;
+            holder.thumbKey = HabitImageLoader.cacheKey(imageName, thumbSize);
+        }
+        imageLoader.bind(holder.imgHabit, imageName, imageName != null ? holder.thumbKey : null,
+                habit != null ? habit.getCategory() : snapshot.categoryAt(row), thumbSize);
 
-        // Set checkbox state based on whether habit is completed
-        holder.chkCompleted.setChecked(habit.isCompleted());
+        bindCompletion(holder, position);
+    }
 
-        // Listener for checkbox toggle (mark as completed or not)
-        holder.chkCompleted.setOnCheckedChangeListener((buttonView, isChecked) -> {
-            habit.setCompleted(isChecked);
-            // Update completion status in the database
-            dbHelper.updateHabit(habit);
-        });
+    /**
+     * Partial rebind: when the only payload is {@link #PAYLOAD_COMPLETION},
+     * just the checkbox is refreshed; anything else falls back to a full bind.
+     */
+    @Override
+    public void onBindViewHolder(@NonNull HabitViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            onBindViewHolder(holder, position);
+            return;
+        }
+        for (int i = 0; i < payloads.size(); i++) {
+            if (payloads.get(i) != PAYLOAD_COMPLETION) {
+                onBindViewHolder(holder, position);
+                return;
+            }
+        }
+        bindCompletion(holder, position);
+    }
 
-        // Listener for clicking the whole item → opens HabitDetailActivity
-        holder.itemView.setOnClickListener(v -> {
-            Intent intent = new Intent(context, HabitDetailActivity.class);
-            intent.putExtra("habit_id", habit.getId());  // Pass selected habit's ID
-            context.startActivity(intent);
-        });
+    /**
+     * Sets the checkbox state while the holder is flagged as binding, so the
+     * (already attached) listener ignores it and recycled rows never write to the DB.
+     */
+    private void bindCompletion(HabitViewHolder holder, int position) {
+        int row = rows[position];
+        Habit habit = edited.get(snapshot.idAt(row));
+        holder.binding = true;
+        holder.chkCompleted.setChecked(habit != null ? habit.isCompleted() : snapshot.isCompletedAt(row));
+        holder.binding = false;
+    }
+
+    /**
+     * Skips setText when the view already shows the text (a rebind of the same row),
+     * since setText lays the TextView out again.
+     */
+    private static void setText(TextView view, String text) {
+        if (!TextUtils.equals(view.getText(), text)) view.setText(text);
+    }
+
+    /**
+     * Stable id for each row: the habit's primary key.
+     */
+    @Override
+    public long getItemId(int position) {
+        return snapshot.idAt(rows[position]);
     }
 
     /**
@@ -80,22 +170,147 @@ public class HabitAdapter extends RecyclerView.Adapter<HabitAdapter.HabitViewHol
      */
     @Override
     public int getItemCount() {
-        return habitList.size();
+        return rowCount;
+    }
+
+    /**
+     * The row's Habit, created from the snapshot on first use and kept afterwards.
+     */
+    private Habit habitAt(int position) {
+        int row = rows[position];
+        Habit habit = edited.get(snapshot.idAt(row));
+        if (habit == null) {
+            habit = snapshot.toHabit(row);
+            edited.put(habit.getId(), habit);
+        }
+        return habit;
+    }
+
+    /**
+     * Called by a ViewHolder when the user toggles its checkbox (timed as a toggle action).
+     */
+    void onCompletionToggled(int position, boolean isChecked) {
+        if (position == RecyclerView.NO_POSITION) return;
+        perfMonitor.begin(PerformanceMonitor.SCREEN_DASHBOARD, PerformanceMonitor.ACTION_TOGGLE);
+        toggleCompletion(position, isChecked);
+        perfMonitor.end();
+    }
+
+    private void toggleCompletion(int position, boolean isChecked) {
+        Habit habit = habitAt(position);
+        if (habit.isCompleted() == isChecked) return;
+
+        habit.setCompleted(isChecked);
+        // Update completion status in the database (only the completed column is written)
+        if (dbHelper.updateHabit(habit) == 0) {
+            // Changed elsewhere since it was loaded: show the stored version instead
+            Habit latest = dbHelper.getHabit(habit.getId());
+            if (latest != null) habit.copyFrom(latest); else habit.setCompleted(!isChecked);
+            habit.clearDirty();
+            Toast.makeText(context, "Habit was changed elsewhere and has been refreshed", Toast.LENGTH_SHORT).show();
+            notifyItemChanged(position);
+            return;
+        }
+
+        // Only the checkbox needs refreshing for this row
+        notifyItemChanged(position, PAYLOAD_COMPLETION);
+    }
+
+    /**
+     * Called by a ViewHolder when its row is clicked → opens HabitDetailActivity.
+     */
+    void onItemClicked(int position) {
+        if (position == RecyclerView.NO_POSITION) return;
+        int row = rows[position];
+
+        // Opening a habit counts as a "use" for suggestion ranking
+        HabitSuggestionProvider.getInstance(context)
+                .recordUse(snapshot.nameAt(row), HabitSuggestionTrie.KIND_NAME);
+
+        Intent intent = new Intent(context, HabitDetailActivity.class);
+        intent.putExtra("habit_id", snapshot.idAt(row));  // Pass selected habit's ID
+        context.startActivity(intent);
+    }
+
+    /**
+     * Called while a row is being dragged over another: moves it in the list
+     * and on screen only. Nothing is written until the drop.
+     */
+    void onItemMove(int from, int to) {
+        int moved = rows[from];
+        if (from < to) {
+            System.arraycopy(rows, from + 1, rows, from, to - from);
+        } else {
+            System.arraycopy(rows, to, rows, to + 1, from - to);
+        }
+        rows[to] = moved;
+        notifyItemMoved(from, to);
+    }
+
+    /**
+     * Called when a dragged row is dropped: stores its new position as a sort key
+     * between its new visible neighbours (a single-row write). Hidden rows keep
+     * their keys, so the caller places the row by key (HabitSnapshot.positionOf).
+     * Returns the new sort key.
+     */
+    double onItemDropped(int position) {
+        Habit habit = habitAt(position);
+        int beforeId = position > 0 ? snapshot.idAt(rows[position - 1]) : 0;
+        int afterId = position + 1 < rowCount ? snapshot.idAt(rows[position + 1]) : 0;
+        habit.setSortKey(dbHelper.moveHabit(habit.getId(), beforeId, afterId));
+        return habit.getSortKey();
+    }
+
+    /**
+     * The visible rows array last passed to setRows (compared by identity).
+     */
+    int[] getRows() {
+        return rows;
+    }
+
+    /**
+     * Snapshot position of the row shown at the given adapter position.
+     */
+    int rowAt(int position) {
+        return rows[position];
     }
 
     /**
      * ViewHolder class:
      * Holds references to UI components of each habit item to avoid repeated findViewById calls.
+     * It also owns the row's listeners, which are created once here and reused across binds.
      */
-    public static class HabitViewHolder extends RecyclerView.ViewHolder {
+    public static class HabitViewHolder extends RecyclerView.ViewHolder
+            implements CompoundButton.OnCheckedChangeListener, View.OnClickListener {
         TextView txtHabitName, txtHabitFrequency;
+        ImageView imgHabit;
         CheckBox chkCompleted;
 
-        public HabitViewHolder(@NonNull View itemView) {
+        private final HabitAdapter adapter;
+        boolean binding;    // true while the adapter is pushing state into the views
+        String thumbImage, thumbKey;   // last photo bound here and its thumbnail cache key
+
+        public HabitViewHolder(@NonNull View itemView, HabitAdapter adapter) {
             super(itemView);
+            this.adapter = adapter;
             txtHabitName = itemView.findViewById(R.id.txtHabitName);
             txtHabitFrequency = itemView.findViewById(R.id.txtHabitFrequency);
+            imgHabit = itemView.findViewById(R.id.imgHabit);
             chkCompleted = itemView.findViewById(R.id.chkCompleted);
+
+            chkCompleted.setOnCheckedChangeListener(this);
+            itemView.setOnClickListener(this);
+        }
+
+        @Override
+        public void onCheckedChanged(CompoundButton buttonView, boolean isChecked) {
+            if (binding) return;
+            adapter.onCompletionToggled(getBindingAdapterPosition(), isChecked);
+        }
+
+        @Override
+        public void onClick(View v) {
+            adapter.onItemClicked(getBindingAdapterPosition());
         }
     }
 }
@@ -6,9 +6,11 @@ import android.content.SharedPreferences;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * HabitDatabaseHelper:
@@ -17,12 +19,35 @@ import java.util.List;
  * It handles creating/upgrading the SQLite database, and provides CRUD methods
  * for inserting, reading, updating, and deleting habits. Each habit is tied to
  * the currently logged-in user via the username column.
+ *
+ * Categories are dictionary-encoded: the "categories" table holds one row per
+ * user and category name (compared ignoring case, plus a maintained habit
+ * count), and habits store only the integer category_id.
+ *
+ * Deletes are soft: a habit gets a deleted_at timestamp (a tombstone) so it
+ * can be restored during the undo window. Tombstones are purged later in
+ * small batches by DatabaseMaintenance, and the file is compacted with
+ * auto_vacuum=INCREMENTAL so its size follows the live data.
+ *
+ * Habits are listed in a user-defined order stored as fractional sort keys
+ * (see SortKeys), so reordering a habit rewrites only that habit's row.
+ *
+ * Completion history is kept per habit-year in "completion_history" as one
+ * CompletionBitmap blob (a bit per day-of-year), not as a row per event.
+ *
+ * Tags are many-to-many: "tags" holds one row per user and tag name (ignoring case), and
+ * "habit_tags" links habits to tags. The dashboard filters on them through
+ * an in-memory TagBitmapIndex built from {@link #loadTagIndex(HabitSnapshot)}.
+ *
+ * Archived habits are moved out of the hot tables into "habits_archive" and
+ * "completion_history_archive", so habits and its indexes hold only habits
+ * the user still works with. Unarchiving moves them back.
  */
 public class HabitDatabaseHelper extends SQLiteOpenHelper {
 
     // Database info
     private static final String DATABASE_NAME = "habittracker.db";
-    private static final int DATABASE_VERSION = 3;
+    private static final int DATABASE_VERSION = 14;
 
     // Table and column names
     private static final String TABLE_HABITS = "habits";
@@ -30,20 +55,158 @@ public class HabitDatabaseHelper extends SQLiteOpenHelper {
     private static final String COLUMN_NAME = "name";
     private static final String COLUMN_FREQUENCY = "frequency";
     private static final String COLUMN_DESCRIPTION = "description";
-    private static final String COLUMN_CATEGORY = "category";
+    private static final String COLUMN_CATEGORY = "category"; // legacy text column (pre-v4 databases only)
+    private static final String COLUMN_CATEGORY_ID = "category_id";
     private static final String COLUMN_COMPLETED = "completed";
     private static final String COLUMN_USERNAME = "username"; // stores habit owner
+    private static final String COLUMN_DELETED_AT = "deleted_at"; // 0 = live, otherwise soft-delete time (ms)
+    private static final String COLUMN_VERSION = "version"; // row version for optimistic updates
+    private static final String COLUMN_SORT_KEY = "sort_key"; // user-defined order (fractional, ascending)
+    private static final String COLUMN_SCHEDULE_ANCHOR = "schedule_anchor"; // epoch day the schedule started
+    private static final String COLUMN_IMAGE_NAME = "image_name"; // stored photo (HabitImageLoader), NULL = category icon
+
+    // Category dictionary table
+    private static final String TABLE_CATEGORIES = "categories";
+    private static final String COLUMN_HABIT_COUNT = "habit_count";
+
+    // Completion history table: one bitmap blob per habit and year
+    private static final String TABLE_HISTORY = "completion_history";
+    private static final String COLUMN_HABIT_ID = "habit_id";
+    private static final String COLUMN_YEAR = "year";
+    private static final String COLUMN_DAYS = "days";
+
+    // Tags (many-to-many with habits)
+    private static final String TABLE_TAGS = "tags";
+    private static final String TABLE_HABIT_TAGS = "habit_tags";
+    private static final String COLUMN_TAG_ID = "tag_id";
+
+    // Cold partition for archived habits, their history and their tag links
+    private static final String TABLE_HABITS_ARCHIVE = "habits_archive";
+    private static final String TABLE_HISTORY_ARCHIVE = "completion_history_archive";
+    private static final String TABLE_HABIT_TAGS_ARCHIVE = "habit_tags_archive";
+    private static final String COLUMN_ARCHIVED_AT = "archived_at";
+
+    // Columns that move between habits and habits_archive
+    private static final String MOVED_HABIT_COLUMNS = COLUMN_ID + ", " + COLUMN_NAME + ", " + COLUMN_FREQUENCY + ", " +
+            COLUMN_DESCRIPTION + ", " + COLUMN_CATEGORY_ID + ", " + COLUMN_COMPLETED + ", " + COLUMN_USERNAME + ", " +
+            COLUMN_VERSION + ", " + COLUMN_SCHEDULE_ANCHOR + ", " + COLUMN_IMAGE_NAME;
+    private static final String HISTORY_COLUMNS = COLUMN_HABIT_ID + ", " + COLUMN_YEAR + ", " + COLUMN_DAYS;
+    private static final String TAG_LINK_COLUMNS = COLUMN_HABIT_ID + ", " + COLUMN_TAG_ID;
+
+    private static final String DEFAULT_CATEGORY = "General";
+
+    // Habit columns joined with their category name; used by every habit query
+    private static final String SELECT_HABITS =
+            "SELECT h." + COLUMN_ID + ", h." + COLUMN_NAME + ", h." + COLUMN_FREQUENCY + ", " +
+            "h." + COLUMN_DESCRIPTION + ", h." + COLUMN_COMPLETED + ", h." + COLUMN_USERNAME + ", " +
+            "h." + COLUMN_CATEGORY_ID + ", h." + COLUMN_VERSION + ", h." + COLUMN_SORT_KEY + ", " +
+            "h." + COLUMN_SCHEDULE_ANCHOR + ", h." + COLUMN_IMAGE_NAME + ", c." + COLUMN_NAME + " AS " + COLUMN_CATEGORY +
+            " FROM " + TABLE_HABITS + " h LEFT JOIN " + TABLE_CATEGORIES + " c" +
+            " ON c." + COLUMN_ID + " = h." + COLUMN_CATEGORY_ID;
+
+    // Only live (not soft-deleted) habits of one user
+    private static final String WHERE_LIVE_USER =
+            " WHERE h." + COLUMN_USERNAME + "=? AND h." + COLUMN_DELETED_AT + "=0";
+
+    // User-defined order; served by the (username, [category_id,] sort_key) indexes without a sort step
+    private static final String ORDER_BY_SORT_KEY = " ORDER BY h." + COLUMN_SORT_KEY;
+
+    // ===============================
+    // 📌 Query SQL (kept as constants so QueryPlanTest checks exactly what runs)
+    // ===============================
+    static final String SQL_HABITS_FOR_USER = SELECT_HABITS + WHERE_LIVE_USER + ORDER_BY_SORT_KEY;
+    static final String SQL_SEARCH_HABITS = SELECT_HABITS + WHERE_LIVE_USER +
+            " AND h." + COLUMN_NAME + " LIKE ?" + ORDER_BY_SORT_KEY;
+    static final String SQL_SEARCH_HABITS_IN_CATEGORY = SELECT_HABITS + WHERE_LIVE_USER +
+            " AND h." + COLUMN_CATEGORY_ID + "=? AND h." + COLUMN_NAME + " LIKE ?" + ORDER_BY_SORT_KEY;
+    static final String SQL_HABIT_BY_ID = SELECT_HABITS +
+            " WHERE h." + COLUMN_ID + "=? AND h." + COLUMN_DELETED_AT + "=0";
+    static final String SQL_HABIT_CATEGORY_ID = "SELECT " + COLUMN_CATEGORY_ID +
+            " FROM " + TABLE_HABITS + " WHERE " + COLUMN_ID + "=?";
+    static final String SQL_CATEGORIES_FOR_USER = "SELECT " + COLUMN_ID + ", " + COLUMN_NAME + ", " +
+            COLUMN_HABIT_COUNT + " FROM " + TABLE_CATEGORIES + " WHERE " + COLUMN_USERNAME + "=?" +
+            " ORDER BY " + COLUMN_ID;
+    static final String SQL_CATEGORY_ID_BY_NAME = "SELECT " + COLUMN_ID + " FROM " + TABLE_CATEGORIES +
+            " WHERE " + COLUMN_USERNAME + "=? AND " + COLUMN_NAME + "=? COLLATE NOCASE";
+    // (v14 migration) Oldest category of the same user whose name equals categories.name ignoring case
+    private static final String SQL_OLDEST_SAME_CATEGORY = "(SELECT MIN(k." + COLUMN_ID + ") FROM " + TABLE_CATEGORIES + " k" +
+            " WHERE k." + COLUMN_USERNAME + " = " + TABLE_CATEGORIES + "." + COLUMN_USERNAME +
+            " AND k." + COLUMN_NAME + " = " + TABLE_CATEGORIES + "." + COLUMN_NAME + " COLLATE NOCASE)";
+    static final String SQL_TOMBSTONE_BATCH = "SELECT " + COLUMN_ID + ", " + COLUMN_IMAGE_NAME +
+            " FROM " + TABLE_HABITS + " WHERE " + COLUMN_DELETED_AT + " > 0 AND " + COLUMN_DELETED_AT + " < ? LIMIT ?";
+    static final String SQL_HABIT_IMAGE_NAME = "SELECT " + COLUMN_IMAGE_NAME + " FROM " + TABLE_HABITS +
+            " WHERE " + COLUMN_ID + "=?";
+    static final String SQL_HABIT_SORT_KEY = "SELECT " + COLUMN_SORT_KEY + " FROM " + TABLE_HABITS +
+            " WHERE " + COLUMN_ID + "=?";
+    static final String SQL_MAX_SORT_KEY = "SELECT MAX(" + COLUMN_SORT_KEY + ") FROM " + TABLE_HABITS +
+            " WHERE " + COLUMN_USERNAME + "=?";
+    static final String SQL_SORT_KEYS_FOR_USER = "SELECT " + COLUMN_ID + ", " + COLUMN_SORT_KEY +
+            " FROM " + TABLE_HABITS + " WHERE " + COLUMN_USERNAME + "=? ORDER BY " + COLUMN_SORT_KEY;
+    static final String SQL_SORT_KEY_BATCH = "SELECT " + COLUMN_ID + ", " + COLUMN_SORT_KEY +
+            " FROM " + TABLE_HABITS + " WHERE " + COLUMN_USERNAME + "=? AND " + COLUMN_SORT_KEY + " > ?" +
+            " ORDER BY " + COLUMN_SORT_KEY + " LIMIT ?";
+    static final String SQL_ARCHIVED_HABITS = "SELECT a." + COLUMN_ID + ", a." + COLUMN_NAME + ", a." + COLUMN_FREQUENCY + ", " +
+            "a." + COLUMN_DESCRIPTION + ", a." + COLUMN_COMPLETED + ", a." + COLUMN_USERNAME + ", " +
+            "a." + COLUMN_CATEGORY_ID + ", a." + COLUMN_VERSION + ", a." + COLUMN_SORT_KEY + ", " +
+            "a." + COLUMN_IMAGE_NAME + ", c." + COLUMN_NAME + " AS " + COLUMN_CATEGORY +
+            " FROM " + TABLE_HABITS_ARCHIVE + " a LEFT JOIN " + TABLE_CATEGORIES + " c" +
+            " ON c." + COLUMN_ID + " = a." + COLUMN_CATEGORY_ID +
+            " WHERE a." + COLUMN_USERNAME + "=? ORDER BY a." + COLUMN_ARCHIVED_AT + " DESC";
+    static final String SQL_TAGS_FOR_USER = "SELECT " + COLUMN_ID + ", " + COLUMN_NAME + " FROM " + TABLE_TAGS +
+            " WHERE " + COLUMN_USERNAME + "=? ORDER BY " + COLUMN_NAME + " COLLATE NOCASE";
+    static final String SQL_TAG_ID_BY_NAME = "SELECT " + COLUMN_ID + " FROM " + TABLE_TAGS +
+            " WHERE " + COLUMN_USERNAME + "=? AND " + COLUMN_NAME + "=? COLLATE NOCASE";
+    // (v13 migration) Oldest tag of the same user whose name equals tags.name ignoring case
+    private static final String SQL_OLDEST_SAME_TAG = "(SELECT MIN(k." + COLUMN_ID + ") FROM " + TABLE_TAGS + " k" +
+            " WHERE k." + COLUMN_USERNAME + " = " + TABLE_TAGS + "." + COLUMN_USERNAME +
+            " AND k." + COLUMN_NAME + " = " + TABLE_TAGS + "." + COLUMN_NAME + " COLLATE NOCASE)";
+    static final String SQL_TAG_NAMES_FOR_HABIT = "SELECT t." + COLUMN_NAME + " FROM " + TABLE_HABIT_TAGS + " ht" +
+            " JOIN " + TABLE_TAGS + " t ON t." + COLUMN_ID + " = ht." + COLUMN_TAG_ID +
+            " WHERE ht." + COLUMN_HABIT_ID + "=? ORDER BY ht." + COLUMN_TAG_ID;
+    static final String SQL_TAG_LINKS_FOR_USER = "SELECT ht." + COLUMN_HABIT_ID + ", ht." + COLUMN_TAG_ID +
+            " FROM " + TABLE_HABITS + " h JOIN " + TABLE_HABIT_TAGS + " ht ON ht." + COLUMN_HABIT_ID + " = h." + COLUMN_ID +
+            WHERE_LIVE_USER;
+    static final String SQL_HISTORY_DAYS = "SELECT " + COLUMN_DAYS + " FROM " + TABLE_HISTORY +
+            " WHERE " + COLUMN_HABIT_ID + "=? AND " + COLUMN_YEAR + "=?";
+    static final String SQL_HISTORY_FOR_HABIT = "SELECT " + COLUMN_YEAR + ", " + COLUMN_DAYS +
+            " FROM " + TABLE_HISTORY + " WHERE " + COLUMN_HABIT_ID + "=? AND " + COLUMN_YEAR + " BETWEEN ? AND ?" +
+            " ORDER BY " + COLUMN_YEAR + " DESC";
+    // Every live habit of the user with its history rows for a year range (habits as the outer
+    // loop, so each habit's rows arrive together; habits without history get one NULL row)
+    static final String SQL_HISTORY_FOR_USER = "SELECT h." + COLUMN_ID + ", ch." + COLUMN_YEAR + ", ch." + COLUMN_DAYS +
+            " FROM " + TABLE_HABITS + " h LEFT JOIN " + TABLE_HISTORY + " ch" +
+            " ON ch." + COLUMN_HABIT_ID + " = h." + COLUMN_ID + " AND ch." + COLUMN_YEAR + " BETWEEN ? AND ?" +
+            WHERE_LIVE_USER;
+
+    // Bumped after every committed write that changes what the dashboard shows (process-wide),
+    // so a screen holding loaded data can tell whether it is still current
+    private static final AtomicLong dataGeneration = new AtomicLong();
 
     private Context context;
 
     public HabitDatabaseHelper(Context context) {
         super(context, DATABASE_NAME, null, DATABASE_VERSION);
         this.context = context;
+        // WAL lets UI reads proceed while background maintenance writes
+        setWriteAheadLoggingEnabled(true);
+    }
+
+    /**
+     * Called before onCreate/onUpgrade. Incremental auto-vacuum only takes effect
+     * when set before the first table is created (existing files are converted
+     * once by DatabaseMaintenance). Foreign keys are enabled so purging a
+     * tombstone also removes its completion history.
+     */
+    @Override
+    public void onConfigure(SQLiteDatabase db) {
+        super.onConfigure(db);
+        db.execSQL("PRAGMA auto_vacuum = INCREMENTAL");
+        db.setForeignKeyConstraintsEnabled(true);
     }
 
     /**
      * Called when the database is first created.
-     * Creates the "habits" table with all required columns.
+     * Creates the "habits" and "categories" tables with all required columns.
      */
     @Override
     public void onCreate(SQLiteDatabase db) {
@@ -52,11 +215,22 @@ public class HabitDatabaseHelper extends SQLiteOpenHelper {
                 COLUMN_NAME + " TEXT, " +
                 COLUMN_FREQUENCY + " TEXT, " +
                 COLUMN_DESCRIPTION + " TEXT, " +
-                COLUMN_CATEGORY + " TEXT, " +
+                COLUMN_CATEGORY_ID + " INTEGER, " +
                 COLUMN_COMPLETED + " INTEGER DEFAULT 0, " +
-                COLUMN_USERNAME + " TEXT" +
+                COLUMN_USERNAME + " TEXT, " +
+                COLUMN_DELETED_AT + " INTEGER NOT NULL DEFAULT 0, " +
+                COLUMN_VERSION + " INTEGER NOT NULL DEFAULT 0, " +
+                COLUMN_SORT_KEY + " REAL NOT NULL DEFAULT 0, " +
+                COLUMN_SCHEDULE_ANCHOR + " INTEGER NOT NULL DEFAULT 0, " +
+                COLUMN_IMAGE_NAME + " TEXT" +
                 ")";
         db.execSQL(createTable);
+        createCategoryTable(db);
+        createOrderIndexes(db);
+        createTombstoneIndex(db);
+        createHistoryTable(db);
+        createTagTables(db);
+        createArchiveTables(db);
     }
 
     /**
@@ -79,24 +253,283 @@ public class HabitDatabaseHelper extends SQLiteOpenHelper {
                 db.execSQL("ALTER TABLE " + TABLE_HABITS + " ADD COLUMN " + COLUMN_USERNAME + " TEXT");
             }
         } catch (Exception ignored) {}
+
+        // Move free-text categories into the dictionary table if upgrading from version < 4.
+        // The old text column is left in place (SQLite cannot drop it here) but is no longer read.
+        if (oldVersion < 4) {
+            createCategoryTable(db);
+            db.execSQL("ALTER TABLE " + TABLE_HABITS + " ADD COLUMN " + COLUMN_CATEGORY_ID + " INTEGER");
+            db.execSQL("INSERT OR IGNORE INTO " + TABLE_CATEGORIES + " (" + COLUMN_USERNAME + ", " + COLUMN_NAME + ")" +
+                    " SELECT DISTINCT IFNULL(" + COLUMN_USERNAME + ", ''), IFNULL(" + COLUMN_CATEGORY + ", '" + DEFAULT_CATEGORY + "')" +
+                    " FROM " + TABLE_HABITS);
+            db.execSQL("UPDATE " + TABLE_HABITS + " SET " + COLUMN_CATEGORY_ID + " = (" +
+                    "SELECT c." + COLUMN_ID + " FROM " + TABLE_CATEGORIES + " c" +
+                    " WHERE c." + COLUMN_USERNAME + " = IFNULL(" + TABLE_HABITS + "." + COLUMN_USERNAME + ", '')" +
+                    " AND c." + COLUMN_NAME + " = IFNULL(" + TABLE_HABITS + "." + COLUMN_CATEGORY + ", '" + DEFAULT_CATEGORY + "'))");
+            db.execSQL("UPDATE " + TABLE_CATEGORIES + " SET " + COLUMN_HABIT_COUNT + " = (" +
+                    "SELECT COUNT(*) FROM " + TABLE_HABITS + " h" +
+                    " WHERE h." + COLUMN_CATEGORY_ID + " = " + TABLE_CATEGORIES + "." + COLUMN_ID + ")");
+            db.execSQL("CREATE INDEX IF NOT EXISTS idx_habits_user_category ON " + TABLE_HABITS +
+                    "(" + COLUMN_USERNAME + ", " + COLUMN_CATEGORY_ID + ")");
+        }
+
+        // Add soft-delete tombstone column if upgrading from version < 5
+        if (oldVersion < 5) {
+            db.execSQL("ALTER TABLE " + TABLE_HABITS + " ADD COLUMN " +
+                    COLUMN_DELETED_AT + " INTEGER NOT NULL DEFAULT 0");
+            createTombstoneIndex(db);
+        }
+
+        // Add optimistic-locking version column if upgrading from version < 6
+        if (oldVersion < 6) {
+            db.execSQL("ALTER TABLE " + TABLE_HABITS + " ADD COLUMN " +
+                    COLUMN_VERSION + " INTEGER NOT NULL DEFAULT 0");
+        }
+
+        // Add the bitmap completion history table if upgrading from version < 7
+        if (oldVersion < 7) {
+            createHistoryTable(db);
+        }
+
+        // Add user-defined ordering if upgrading from version < 8.
+        // Existing habits keep their insertion order; the category index gains sort_key.
+        if (oldVersion < 8) {
+            db.execSQL("ALTER TABLE " + TABLE_HABITS + " ADD COLUMN " +
+                    COLUMN_SORT_KEY + " REAL NOT NULL DEFAULT 0");
+            db.execSQL("UPDATE " + TABLE_HABITS + " SET " + COLUMN_SORT_KEY + " = " + COLUMN_ID + " * " + SortKeys.STEP);
+            db.execSQL("DROP INDEX IF EXISTS idx_habits_user_category");
+            createOrderIndexes(db);
+        }
+
+        // Add the archive (cold) tables if upgrading from version < 9
+        if (oldVersion < 9) {
+            createArchiveTables(db);
+        }
+
+        // Add tags if upgrading from version < 10 (v9 archives get their tag-link table too)
+        if (oldVersion < 10) {
+            createTagTables(db);
+            createArchiveTables(db);
+        }
+
+        // Add the recurrence anchor if upgrading from version < 11; existing schedules start today.
+        // Archive tables created above (from version < 9) already have the column.
+        if (oldVersion < 11) {
+            db.execSQL("ALTER TABLE " + TABLE_HABITS + " ADD COLUMN " +
+                    COLUMN_SCHEDULE_ANCHOR + " INTEGER NOT NULL DEFAULT 0");
+            if (oldVersion >= 9) {
+                db.execSQL("ALTER TABLE " + TABLE_HABITS_ARCHIVE + " ADD COLUMN " +
+                        COLUMN_SCHEDULE_ANCHOR + " INTEGER NOT NULL DEFAULT 0");
+            }
+            db.execSQL("UPDATE " + TABLE_HABITS + " SET " + COLUMN_SCHEDULE_ANCHOR + " = ?",
+                    new Object[]{DayMath.today()});
+        }
+
+        // Add habit photos if upgrading from version < 12 (NULL = show the category icon)
+        if (oldVersion < 12) {
+            db.execSQL("ALTER TABLE " + TABLE_HABITS + " ADD COLUMN " + COLUMN_IMAGE_NAME + " TEXT");
+            if (oldVersion >= 9) {
+                db.execSQL("ALTER TABLE " + TABLE_HABITS_ARCHIVE + " ADD COLUMN " + COLUMN_IMAGE_NAME + " TEXT");
+            }
+        }
+
+        // Make tag names unique ignoring case if upgrading from version 10-12 (tags created
+        // above already declare name COLLATE NOCASE). Duplicates merge into the oldest tag.
+        if (oldVersion >= 10 && oldVersion < 13) {
+            mergeCaseDuplicateTags(db, TABLE_HABIT_TAGS);
+            mergeCaseDuplicateTags(db, TABLE_HABIT_TAGS_ARCHIVE);
+            db.execSQL("DELETE FROM " + TABLE_TAGS + " WHERE " + COLUMN_ID + " > " + SQL_OLDEST_SAME_TAG);
+            db.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS idx_tags_user_name_nocase ON " + TABLE_TAGS +
+                    "(" + COLUMN_USERNAME + ", " + COLUMN_NAME + " COLLATE NOCASE)");
+        }
+
+        // Make category names unique ignoring case too if upgrading from version 4-13 (a table
+        // created above already declares name COLLATE NOCASE). Duplicates merge into the oldest
+        // category, which takes over their habits (live and archived) and their habit counts.
+        if (oldVersion >= 4 && oldVersion < 14) {
+            db.execSQL("UPDATE " + TABLE_CATEGORIES + " SET " + COLUMN_HABIT_COUNT + " = (" +
+                    "SELECT SUM(k." + COLUMN_HABIT_COUNT + ") FROM " + TABLE_CATEGORIES + " k" +
+                    " WHERE k." + COLUMN_USERNAME + " = " + TABLE_CATEGORIES + "." + COLUMN_USERNAME +
+                    " AND k." + COLUMN_NAME + " = " + TABLE_CATEGORIES + "." + COLUMN_NAME + " COLLATE NOCASE)" +
+                    " WHERE " + COLUMN_ID + " = " + SQL_OLDEST_SAME_CATEGORY);
+            mergeCaseDuplicateCategories(db, TABLE_HABITS);
+            mergeCaseDuplicateCategories(db, TABLE_HABITS_ARCHIVE);
+            db.execSQL("DELETE FROM " + TABLE_CATEGORIES + " WHERE " + COLUMN_ID + " > " + SQL_OLDEST_SAME_CATEGORY);
+            db.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS idx_categories_user_name_nocase ON " + TABLE_CATEGORIES +
+                    "(" + COLUMN_USERNAME + ", " + COLUMN_NAME + " COLLATE NOCASE)");
+        }
+    }
+
+    /**
+     * Points every habit of a habit table whose category has an older case-insensitive
+     * twin at that twin instead.
+     */
+    private void mergeCaseDuplicateCategories(SQLiteDatabase db, String habitTable) {
+        db.execSQL("UPDATE " + habitTable + " SET " + COLUMN_CATEGORY_ID + " = (" +
+                "SELECT " + SQL_OLDEST_SAME_CATEGORY + " FROM " + TABLE_CATEGORIES +
+                " WHERE " + TABLE_CATEGORIES + "." + COLUMN_ID + " = " + habitTable + "." + COLUMN_CATEGORY_ID + ")" +
+                " WHERE " + COLUMN_CATEGORY_ID + " IN (SELECT " + COLUMN_ID + " FROM " + TABLE_CATEGORIES +
+                " WHERE " + COLUMN_ID + " > " + SQL_OLDEST_SAME_CATEGORY + ")");
+    }
+
+    /**
+     * Links every habit of a link table to the oldest of its tags' case-insensitive
+     * twins; the links to the newer twins go when those tags are deleted (cascade).
+     */
+    private void mergeCaseDuplicateTags(SQLiteDatabase db, String linkTable) {
+        db.execSQL("INSERT OR IGNORE INTO " + linkTable + " (" + COLUMN_HABIT_ID + ", " + COLUMN_TAG_ID + ")" +
+                " SELECT l." + COLUMN_HABIT_ID + ", " + SQL_OLDEST_SAME_TAG +
+                " FROM " + linkTable + " l JOIN " + TABLE_TAGS + " ON " + TABLE_TAGS + "." + COLUMN_ID + " = l." + COLUMN_TAG_ID);
+    }
+
+    /**
+     * Indexes that return a user's habits already in sort_key order, either all
+     * of them or one category's (both equality prefixes end in sort_key).
+     */
+    private void createOrderIndexes(SQLiteDatabase db) {
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_habits_user_sort ON " + TABLE_HABITS +
+                "(" + COLUMN_USERNAME + ", " + COLUMN_SORT_KEY + ")");
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_habits_user_category ON " + TABLE_HABITS +
+                "(" + COLUMN_USERNAME + ", " + COLUMN_CATEGORY_ID + ", " + COLUMN_SORT_KEY + ")");
+    }
+
+    /**
+     * Partial index over tombstones only, so purging never scans live rows.
+     */
+    private void createTombstoneIndex(SQLiteDatabase db) {
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_habits_tombstones ON " + TABLE_HABITS +
+                "(" + COLUMN_DELETED_AT + ") WHERE " + COLUMN_DELETED_AT + " > 0");
+    }
+
+    /**
+     * One row per habit and year. WITHOUT ROWID keeps each blob inside the
+     * (habit_id, year) primary-key B-tree, so a row costs little more than its bytes.
+     */
+    private void createHistoryTable(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + TABLE_HISTORY + " (" +
+                COLUMN_HABIT_ID + " INTEGER NOT NULL REFERENCES " + TABLE_HABITS + "(" + COLUMN_ID + ") ON DELETE CASCADE, " +
+                COLUMN_YEAR + " INTEGER NOT NULL, " +
+                COLUMN_DAYS + " BLOB NOT NULL, " +
+                "PRIMARY KEY(" + COLUMN_HABIT_ID + ", " + COLUMN_YEAR + ")" +
+                ") WITHOUT ROWID");
+    }
+
+    /**
+     * Tags per user (unique by name, ignoring case) and the habit ↔ tag link table.
+     * Links are keyed by habit first (a habit's tags, all links of a habit list);
+     * the tag_id index lets deleting a tag cascade without a scan.
+     */
+    private void createTagTables(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + TABLE_TAGS + " (" +
+                COLUMN_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                COLUMN_USERNAME + " TEXT NOT NULL, " +
+                COLUMN_NAME + " TEXT NOT NULL COLLATE NOCASE, " +
+                "UNIQUE(" + COLUMN_USERNAME + ", " + COLUMN_NAME + ")" +
+                ")");
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + TABLE_HABIT_TAGS + " (" +
+                COLUMN_HABIT_ID + " INTEGER NOT NULL REFERENCES " + TABLE_HABITS + "(" + COLUMN_ID + ") ON DELETE CASCADE, " +
+                COLUMN_TAG_ID + " INTEGER NOT NULL REFERENCES " + TABLE_TAGS + "(" + COLUMN_ID + ") ON DELETE CASCADE, " +
+                "PRIMARY KEY(" + COLUMN_HABIT_ID + ", " + COLUMN_TAG_ID + ")" +
+                ") WITHOUT ROWID");
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_habit_tags_tag ON " + TABLE_HABIT_TAGS +
+                "(" + COLUMN_TAG_ID + ")");
+    }
+
+    /**
+     * Archived habits keep their id, so their history moves with them unchanged.
+     * Rows are listed newest-archived first through (username, archived_at).
+     */
+    private void createArchiveTables(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + TABLE_HABITS_ARCHIVE + " (" +
+                COLUMN_ID + " INTEGER PRIMARY KEY, " +
+                COLUMN_NAME + " TEXT, " +
+                COLUMN_FREQUENCY + " TEXT, " +
+                COLUMN_DESCRIPTION + " TEXT, " +
+                COLUMN_CATEGORY_ID + " INTEGER, " +
+                COLUMN_COMPLETED + " INTEGER DEFAULT 0, " +
+                COLUMN_USERNAME + " TEXT, " +
+                COLUMN_VERSION + " INTEGER NOT NULL DEFAULT 0, " +
+                COLUMN_SORT_KEY + " REAL NOT NULL DEFAULT 0, " +
+                COLUMN_SCHEDULE_ANCHOR + " INTEGER NOT NULL DEFAULT 0, " +
+                COLUMN_IMAGE_NAME + " TEXT, " +
+                COLUMN_ARCHIVED_AT + " INTEGER NOT NULL" +
+                ")");
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_habits_archive_user ON " + TABLE_HABITS_ARCHIVE +
+                "(" + COLUMN_USERNAME + ", " + COLUMN_ARCHIVED_AT + ")");
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + TABLE_HISTORY_ARCHIVE + " (" +
+                COLUMN_HABIT_ID + " INTEGER NOT NULL REFERENCES " + TABLE_HABITS_ARCHIVE + "(" + COLUMN_ID + ") ON DELETE CASCADE, " +
+                COLUMN_YEAR + " INTEGER NOT NULL, " +
+                COLUMN_DAYS + " BLOB NOT NULL, " +
+                "PRIMARY KEY(" + COLUMN_HABIT_ID + ", " + COLUMN_YEAR + ")" +
+                ") WITHOUT ROWID");
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + TABLE_HABIT_TAGS_ARCHIVE + " (" +
+                COLUMN_HABIT_ID + " INTEGER NOT NULL REFERENCES " + TABLE_HABITS_ARCHIVE + "(" + COLUMN_ID + ") ON DELETE CASCADE, " +
+                COLUMN_TAG_ID + " INTEGER NOT NULL REFERENCES " + TABLE_TAGS + "(" + COLUMN_ID + ") ON DELETE CASCADE, " +
+                "PRIMARY KEY(" + COLUMN_HABIT_ID + ", " + COLUMN_TAG_ID + ")" +
+                ") WITHOUT ROWID");
+    }
+
+    /**
+     * Creates the category dictionary table; (username, name) is unique per user,
+     * ignoring case (as tag names are).
+     */
+    private void createCategoryTable(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + TABLE_CATEGORIES + " (" +
+                COLUMN_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                COLUMN_USERNAME + " TEXT NOT NULL, " +
+                COLUMN_NAME + " TEXT NOT NULL COLLATE NOCASE, " +
+                COLUMN_HABIT_COUNT + " INTEGER NOT NULL DEFAULT 0, " +
+                "UNIQUE(" + COLUMN_USERNAME + ", " + COLUMN_NAME + ")" +
+                ")");
     }
 
     /**
      * Insert a new habit into the database.
-     * The username of the currently logged-in user is automatically attached.
+     * The username of the currently logged-in user is automatically attached,
+     * the habit is placed at the end of the user's order, and the category's
+     * habit count is incremented in the same transaction.
      */
     public long addHabit(Habit habit) {
         SQLiteDatabase db = this.getWritableDatabase();
-        ContentValues values = new ContentValues();
-        values.put(COLUMN_NAME, habit.getName());
-        values.put(COLUMN_FREQUENCY, habit.getFrequency());
-        values.put(COLUMN_DESCRIPTION, habit.getDescription());
-        values.put(COLUMN_CATEGORY, habit.getCategory() != null ? habit.getCategory() : "General");
-        values.put(COLUMN_COMPLETED, habit.isCompleted() ? 1 : 0);
-        values.put(COLUMN_USERNAME, getLoggedInUsername()); // attach owner
+        String username = getLoggedInUsername();
+        long id;
 
-        long id = db.insert(TABLE_HABITS, null, values);
+        db.beginTransaction();
+        try {
+            int categoryId = resolveCategoryId(db, username, habit);
+
+            ContentValues values = new ContentValues();
+            values.put(COLUMN_NAME, habit.getName());
+            values.put(COLUMN_FREQUENCY, habit.getFrequency());
+            values.put(COLUMN_DESCRIPTION, habit.getDescription());
+            values.put(COLUMN_CATEGORY_ID, categoryId);
+            values.put(COLUMN_COMPLETED, habit.isCompleted() ? 1 : 0);
+            values.put(COLUMN_USERNAME, username); // attach owner
+            values.put(COLUMN_SCHEDULE_ANCHOR, DayMath.today()); // "every N days" counts from today
+
+            // Append after the user's last habit
+            Cursor cursor = db.rawQuery(SQL_MAX_SORT_KEY, new String[]{username});
+            double last = cursor.moveToFirst() && !cursor.isNull(0) ? cursor.getDouble(0) : Double.NaN;
+            cursor.close();
+            habit.setSortKey(SortKeys.between(last, Double.NaN));
+            values.put(COLUMN_SORT_KEY, habit.getSortKey());
+
+            id = db.insert(TABLE_HABITS, null, values);
+            if (id != -1) {
+                adjustCategoryCount(db, categoryId, 1);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
         db.close();
+
+        if (id != -1) {
+            HabitSuggestionProvider.getInstance(context)
+                    .onHabitAdded((int) id, habit.getName(), habit.getCategory());
+            HabitStatsEngine.getInstance().invalidate();
+            onHabitsChanged();
+        }
         return id;
     }
 
@@ -104,108 +537,953 @@ public class HabitDatabaseHelper extends SQLiteOpenHelper {
      * Retrieve all habits belonging to the currently logged-in user.
      */
     public List<Habit> getAllHabits() {
-        List<Habit> habitList = new ArrayList<>();
-        SQLiteDatabase db = this.getReadableDatabase();
-        String username = getLoggedInUsername();
-
-        // Query to fetch only habits for the current user
-        Cursor cursor = db.query(
-                TABLE_HABITS,
-                null,
-                COLUMN_USERNAME + "=?",
-                new String[]{username},
-                null, null, null
-        );
+        return getHabitsForUser(getLoggedInUsername());
+    }
 
-        // Convert each row into a Habit object
+    /**
+     * The current user's live habits as one immutable columnar snapshot (dashboard order),
+     * read straight from the cursor without creating a Habit per row.
+     */
+    public HabitSnapshot loadHabitSnapshot() {
+        String username = getLoggedInUsername();
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.rawQuery(SQL_HABITS_FOR_USER, new String[]{username});
+        HabitSnapshot.Builder builder = new HabitSnapshot.Builder(username, cursor.getCount());
         if (cursor.moveToFirst()) {
+            int idIndex = cursor.getColumnIndexOrThrow(COLUMN_ID);
+            int nameIndex = cursor.getColumnIndexOrThrow(COLUMN_NAME);
+            int frequencyIndex = cursor.getColumnIndexOrThrow(COLUMN_FREQUENCY);
+            int descriptionIndex = cursor.getColumnIndexOrThrow(COLUMN_DESCRIPTION);
+            int categoryIndex = cursor.getColumnIndexOrThrow(COLUMN_CATEGORY);
+            int categoryIdIndex = cursor.getColumnIndexOrThrow(COLUMN_CATEGORY_ID);
+            int completedIndex = cursor.getColumnIndexOrThrow(COLUMN_COMPLETED);
+            int versionIndex = cursor.getColumnIndexOrThrow(COLUMN_VERSION);
+            int sortKeyIndex = cursor.getColumnIndexOrThrow(COLUMN_SORT_KEY);
+            int anchorIndex = cursor.getColumnIndexOrThrow(COLUMN_SCHEDULE_ANCHOR);
+            int imageIndex = cursor.getColumnIndexOrThrow(COLUMN_IMAGE_NAME);
             do {
-                Habit habit = new Habit(
-                        cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_ID)),
-                        cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_NAME)),
-                        cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_FREQUENCY)),
-                        cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_DESCRIPTION)),
-                        cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_CATEGORY)),
-                        cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_COMPLETED)) == 1,
-                        cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_USERNAME))
-                );
-                habitList.add(habit);
+                builder.add(
+                        cursor.getInt(idIndex),
+                        cursor.getString(nameIndex),
+                        cursor.getString(frequencyIndex),
+                        cursor.getString(descriptionIndex),
+                        cursor.getString(categoryIndex),
+                        cursor.getInt(categoryIdIndex),
+                        cursor.getInt(completedIndex) == 1,
+                        cursor.getInt(versionIndex),
+                        cursor.getDouble(sortKeyIndex),
+                        cursor.getInt(anchorIndex),
+                        cursor.getString(imageIndex));
             } while (cursor.moveToNext());
         }
         cursor.close();
         db.close();
+        return builder.build();
+    }
+
+    /**
+     * Search habits by name and optionally filter by category id for the current user.
+     * Pass {@link Category#ALL_ID} to search across every category.
+     */
+    public List<Habit> searchHabits(String query, int categoryId) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        String username = getLoggedInUsername();
+
+        // Pick the query with or without the category filter
+        Cursor cursor;
+        if (categoryId != Category.ALL_ID) {
+            cursor = db.rawQuery(SQL_SEARCH_HABITS_IN_CATEGORY,
+                    new String[]{username, String.valueOf(categoryId), "%" + query + "%"});
+        } else {
+            cursor = db.rawQuery(SQL_SEARCH_HABITS, new String[]{username, "%" + query + "%"});
+        }
+        List<Habit> habitList = readHabits(cursor);
+        db.close();
         return habitList;
     }
 
     /**
-     * Search habits by name and optionally filter by category for the current user.
+     * Update an existing habit in the database.
+     * Only the columns marked dirty on the Habit are written, and the update is
+     * conditional on the row version the habit was loaded with (optimistic locking).
+     * If the category changed, both categories' habit counts are adjusted; if the
+     * completed flag changed, today's bit in the completion history follows it.
+     *
+     * Returns 1 on success (also when nothing was dirty) and 0 when the row was
+     * changed elsewhere or deleted since it was loaded; in that case nothing is
+     * written and the caller should reload the habit (see {@link #getHabit(int)}).
      */
-    public List<Habit> searchHabits(String query, String categoryFilter) {
-        List<Habit> habitList = new ArrayList<>();
+    public int updateHabit(Habit habit) {
+        if (habit.getDirtyFields() == 0) return 1;
+
+        SQLiteDatabase db = this.getWritableDatabase();
+        String username = habit.getUsername() != null && !habit.getUsername().isEmpty() ?
+                habit.getUsername() : getLoggedInUsername();
+        boolean categoryDirty = habit.isDirty(Habit.FIELD_CATEGORY);
+        int rows;
+
+        db.beginTransaction();
+        try {
+            ContentValues values = new ContentValues();
+            if (habit.isDirty(Habit.FIELD_NAME)) values.put(COLUMN_NAME, habit.getName());
+            if (habit.isDirty(Habit.FIELD_FREQUENCY)) {
+                values.put(COLUMN_FREQUENCY, habit.getFrequency());
+                values.put(COLUMN_SCHEDULE_ANCHOR, DayMath.today()); // a new schedule starts today
+            }
+            if (habit.isDirty(Habit.FIELD_DESCRIPTION)) values.put(COLUMN_DESCRIPTION, habit.getDescription());
+            if (habit.isDirty(Habit.FIELD_COMPLETED)) values.put(COLUMN_COMPLETED, habit.isCompleted() ? 1 : 0);
+
+            int oldCategoryId = 0;
+            int categoryId = 0;
+            if (categoryDirty) {
+                oldCategoryId = getHabitCategoryId(db, habit.getId());
+                categoryId = resolveCategoryId(db, username, habit);
+                values.put(COLUMN_CATEGORY_ID, categoryId);
+            }
+            values.put(COLUMN_VERSION, habit.getVersion() + 1);
+
+            rows = db.update(TABLE_HABITS, values,
+                    COLUMN_ID + "=? AND " + COLUMN_VERSION + "=? AND " + COLUMN_DELETED_AT + "=0",
+                    new String[]{String.valueOf(habit.getId()), String.valueOf(habit.getVersion())});
+            if (rows > 0 && categoryDirty && oldCategoryId != categoryId) {
+                adjustCategoryCount(db, oldCategoryId, -1);
+                adjustCategoryCount(db, categoryId, 1);
+            }
+            if (rows > 0 && habit.isDirty(Habit.FIELD_COMPLETED)) {
+                setCompletedOn(db, habit.getId(), DayMath.today(), habit.isCompleted());
+                HabitStatsEngine.getInstance().invalidate();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        db.close();
+
+        if (rows > 0) {
+            if (habit.isDirty(Habit.FIELD_NAME) || categoryDirty) {
+                HabitSuggestionProvider.getInstance(context)
+                        .onHabitUpdated(habit.getId(), habit.getName(), habit.getCategory());
+            }
+            habit.setVersion(habit.getVersion() + 1);
+            habit.clearDirty();
+            onHabitsChanged();
+        }
+        return rows;
+    }
+
+    /**
+     * Soft-delete a habit by its ID: it is hidden immediately and its category's
+     * habit count is decremented, but the row stays as a tombstone so it can be
+     * brought back with {@link #restoreHabit(int)} until it is purged.
+     */
+    public void deleteHabit(int id) {
+        setDeleted(id, true);
+        HabitSuggestionProvider.getInstance(context).onHabitRemoved(id);
+    }
+
+    /**
+     * Undo a soft delete. Returns false if the habit was already purged.
+     */
+    public boolean restoreHabit(int id) {
+        if (!setDeleted(id, false)) return false;
+
+        Habit habit = getHabit(id);
+        if (habit != null) {
+            HabitSuggestionProvider.getInstance(context)
+                    .onHabitAdded(id, habit.getName(), habit.getCategory());
+        }
+        return true;
+    }
+
+    /**
+     * Moves a habit between two others in the user's order by giving it a new
+     * fractional sort key; only the moved habit's row is written.
+     * beforeId / afterId are its new neighbours (0 at either end of the list).
+     * If the neighbours' keys are too close for a new key, the user's order is
+     * renumbered first. Returns the new sort key.
+     */
+    public double moveHabit(int habitId, int beforeId, int afterId) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        double key;
+        db.beginTransaction();
+        try {
+            key = SortKeys.between(readSortKey(db, beforeId), readSortKey(db, afterId));
+            if (Double.isNaN(key)) {
+                renumberSortKeys(db, getLoggedInUsername());
+                key = SortKeys.between(readSortKey(db, beforeId), readSortKey(db, afterId));
+            }
+            ContentValues values = new ContentValues();
+            values.put(COLUMN_SORT_KEY, key);
+            db.update(TABLE_HABITS, values, COLUMN_ID + "=?", new String[]{String.valueOf(habitId)});
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        db.close();
+
+        onHabitsChanged();
+        return key;
+    }
+
+    private double readSortKey(SQLiteDatabase db, int habitId) {
+        if (habitId <= 0) return Double.NaN;
+        Cursor cursor = db.rawQuery(SQL_HABIT_SORT_KEY, new String[]{String.valueOf(habitId)});
+        double key = cursor.moveToFirst() ? cursor.getDouble(0) : Double.NaN;
+        cursor.close();
+        return key;
+    }
+
+    /**
+     * Rewrites a user's sort keys as evenly spaced values, keeping their order.
+     * Returns the number of rows rewritten.
+     */
+    private int renumberSortKeys(SQLiteDatabase db, String username) {
+        Cursor cursor = db.rawQuery(SQL_SORT_KEYS_FOR_USER, new String[]{username});
+        int[] ids = new int[cursor.getCount()];
+        for (int i = 0; cursor.moveToNext(); i++) ids[i] = cursor.getInt(0);
+        cursor.close();
+
+        SQLiteStatement statement = db.compileStatement("UPDATE " + TABLE_HABITS +
+                " SET " + COLUMN_SORT_KEY + "=? WHERE " + COLUMN_ID + "=?");
+        for (int i = 0; i < ids.length; i++) {
+            statement.bindDouble(1, SortKeys.at(i));
+            statement.bindLong(2, ids[i]);
+            statement.executeUpdateDelete();
+        }
+        statement.close();
+        return ids.length;
+    }
+
+    /**
+     * Sets (or with null, removes) a habit's photo. Like the sort key it is not a
+     * dirty-tracked field, so the row version is left alone. Returns the previous
+     * image name, whose file the caller deletes through HabitImageLoader.
+     */
+    public String setHabitImage(int habitId, String imageName) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        String[] args = {String.valueOf(habitId)};
+        String previous;
+        db.beginTransaction();
+        try {
+            Cursor cursor = db.rawQuery(SQL_HABIT_IMAGE_NAME, args);
+            previous = cursor.moveToFirst() ? cursor.getString(0) : null;
+            cursor.close();
+            ContentValues values = new ContentValues();
+            values.put(COLUMN_IMAGE_NAME, imageName);
+            db.update(TABLE_HABITS, values, COLUMN_ID + "=?", args);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        db.close();
+        dataGeneration.incrementAndGet();
+        return previous;
+    }
+
+    // ===============================
+    // 📌 Archive
+    // ===============================
+
+    /**
+     * Moves a live habit, its completion history and its tag links into the archive tables.
+     * The category's habit count is decremented. Returns false if the habit
+     * is missing or deleted.
+     */
+    public boolean archiveHabit(int id) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        String[] args = {String.valueOf(id)};
+        boolean moved;
+
+        db.beginTransaction();
+        try {
+            SQLiteStatement copy = db.compileStatement("INSERT INTO " + TABLE_HABITS_ARCHIVE +
+                    " (" + MOVED_HABIT_COLUMNS + ", " + COLUMN_SORT_KEY + ", " + COLUMN_ARCHIVED_AT + ")" +
+                    " SELECT " + MOVED_HABIT_COLUMNS + ", " + COLUMN_SORT_KEY + ", ? FROM " + TABLE_HABITS +
+                    " WHERE " + COLUMN_ID + "=? AND " + COLUMN_DELETED_AT + "=0");
+            copy.bindLong(1, System.currentTimeMillis());
+            copy.bindLong(2, id);
+            moved = copy.executeInsert() != -1;
+            copy.close();
+
+            if (moved) {
+                db.execSQL("INSERT INTO " + TABLE_HISTORY_ARCHIVE + " (" + HISTORY_COLUMNS + ")" +
+                        " SELECT " + HISTORY_COLUMNS + " FROM " + TABLE_HISTORY +
+                        " WHERE " + COLUMN_HABIT_ID + "=?", args);
+                db.delete(TABLE_HISTORY, COLUMN_HABIT_ID + "=?", args);
+                db.execSQL("INSERT INTO " + TABLE_HABIT_TAGS_ARCHIVE + " (" + TAG_LINK_COLUMNS + ")" +
+                        " SELECT " + TAG_LINK_COLUMNS + " FROM " + TABLE_HABIT_TAGS +
+                        " WHERE " + COLUMN_HABIT_ID + "=?", args);
+                db.delete(TABLE_HABIT_TAGS, COLUMN_HABIT_ID + "=?", args);
+                adjustCategoryCount(db, getHabitCategoryId(db, id), -1);
+                db.delete(TABLE_HABITS, COLUMN_ID + "=?", args);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        db.close();
+
+        if (moved) {
+            HabitSuggestionProvider.getInstance(context).onHabitRemoved(id);
+            HabitStatsEngine.getInstance().invalidate();
+            onHabitsChanged();
+        }
+        return moved;
+    }
+
+    /**
+     * Moves an archived habit, its history and its tag links back into the hot tables,
+     * appended at the end of the user's order. Returns false if it is not archived.
+     */
+    public boolean unarchiveHabit(int id) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        String[] args = {String.valueOf(id)};
+        String username = getLoggedInUsername();
+        boolean moved;
+
+        db.beginTransaction();
+        try {
+            Cursor cursor = db.rawQuery(SQL_MAX_SORT_KEY, new String[]{username});
+            double last = cursor.moveToFirst() && !cursor.isNull(0) ? cursor.getDouble(0) : Double.NaN;
+            cursor.close();
+
+            SQLiteStatement copy = db.compileStatement("INSERT INTO " + TABLE_HABITS +
+                    " (" + MOVED_HABIT_COLUMNS + ", " + COLUMN_SORT_KEY + ")" +
+                    " SELECT " + MOVED_HABIT_COLUMNS + ", ? FROM " + TABLE_HABITS_ARCHIVE +
+                    " WHERE " + COLUMN_ID + "=?");
+            copy.bindDouble(1, SortKeys.between(last, Double.NaN));
+            copy.bindLong(2, id);
+            moved = copy.executeInsert() != -1;
+            copy.close();
+
+            if (moved) {
+                db.execSQL("INSERT INTO " + TABLE_HISTORY + " (" + HISTORY_COLUMNS + ")" +
+                        " SELECT " + HISTORY_COLUMNS + " FROM " + TABLE_HISTORY_ARCHIVE +
+                        " WHERE " + COLUMN_HABIT_ID + "=?", args);
+                db.execSQL("INSERT INTO " + TABLE_HABIT_TAGS + " (" + TAG_LINK_COLUMNS + ")" +
+                        " SELECT " + TAG_LINK_COLUMNS + " FROM " + TABLE_HABIT_TAGS_ARCHIVE +
+                        " WHERE " + COLUMN_HABIT_ID + "=?", args);
+                db.delete(TABLE_HABITS_ARCHIVE, COLUMN_ID + "=?", args); // cascades to its cold history and links
+                adjustCategoryCount(db, getHabitCategoryId(db, id), 1);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        db.close();
+
+        if (moved) {
+            Habit habit = getHabit(id);
+            if (habit != null) {
+                HabitSuggestionProvider.getInstance(context)
+                        .onHabitAdded(id, habit.getName(), habit.getCategory());
+            }
+            HabitStatsEngine.getInstance().invalidate();
+            onHabitsChanged();
+        }
+        return moved;
+    }
+
+    /**
+     * The current user's archived habits, most recently archived first.
+     */
+    public List<Habit> getArchivedHabits() {
         SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.rawQuery(SQL_ARCHIVED_HABITS, new String[]{getLoggedInUsername()});
+        List<Habit> list = readHabits(cursor);
+        db.close();
+        return list;
+    }
+
+    /**
+     * Fetch a single live habit by its ID (null if missing or deleted).
+     */
+    public Habit getHabit(int id) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.rawQuery(SQL_HABIT_BY_ID, new String[]{String.valueOf(id)});
+        List<Habit> list = readHabits(cursor);
+        db.close();
+        return list.isEmpty() ? null : list.get(0);
+    }
+
+    private boolean setDeleted(int id, boolean deleted) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        int rows;
+        db.beginTransaction();
+        try {
+            ContentValues values = new ContentValues();
+            values.put(COLUMN_DELETED_AT, deleted ? System.currentTimeMillis() : 0);
+            rows = db.update(TABLE_HABITS, values,
+                    COLUMN_ID + "=? AND " + COLUMN_DELETED_AT + (deleted ? "=0" : ">0"),
+                    new String[]{String.valueOf(id)});
+            if (rows > 0) {
+                adjustCategoryCount(db, getHabitCategoryId(db, id), deleted ? -1 : 1);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        db.close();
+
+        if (rows > 0) {
+            HabitStatsEngine.getInstance().invalidate();
+            onHabitsChanged();
+        }
+        return rows > 0;
+    }
+
+    // ===============================
+    // 📌 Completion history
+    // ===============================
+
+    /**
+     * Number of consecutive completed days ending today (or ending yesterday
+     * while today is still open), following the run back across years.
+     */
+    public int getCurrentStreak(int habitId) {
+        int today = DayMath.today();
+        int year = DayMath.year(today);
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.rawQuery(SQL_HISTORY_FOR_HABIT, new String[]{
+                String.valueOf(habitId), "0", String.valueOf(year)});
+
+        long[] words = new long[CompletionBitmap.WORDS];
+        int streak = 0;
+        int end = today; // epoch day the run must reach back from
+        boolean first = true;
+        while (cursor.moveToNext()) {
+            int rowYear = cursor.getInt(0);
+            byte[] days = cursor.getBlob(1);
+            if (first) {
+                first = false;
+                if (rowYear != year || !CompletionBitmap.isSet(days, DayMath.dayOfYear(today))) end = today - 1;
+            }
+            if (rowYear > DayMath.year(end)) continue; // today is Jan 1st and still open
+            if (rowYear < DayMath.year(end)) break;    // a whole year without completions
+
+            CompletionBitmap.decodeInto(days, words);
+            int dayOfYear = DayMath.dayOfYear(end);
+            int run = CompletionBitmap.runEndingAt(words, dayOfYear);
+            streak += run;
+            if (run <= dayOfYear) break;
+            end -= run; // run reaches Jan 1st: continue on Dec 31st of the previous year
+        }
+        cursor.close();
+        db.close();
+        return streak;
+    }
+
+    /**
+     * Number of days in [fromDay, toDay] (inclusive epoch days) the habit was completed.
+     */
+    public int countCompletedDays(int habitId, int fromDay, int toDay) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.rawQuery(SQL_HISTORY_FOR_HABIT, new String[]{String.valueOf(habitId),
+                String.valueOf(DayMath.year(fromDay)), String.valueOf(DayMath.year(toDay))});
+
+        long[] words = new long[CompletionBitmap.WORDS];
+        int count = 0;
+        while (cursor.moveToNext()) {
+            int year = cursor.getInt(0);
+            int firstDay = DayMath.epochDay(year, 1, 1);
+            int lastDay = DayMath.epochDay(year, 12, 31);
+            CompletionBitmap.decodeInto(cursor.getBlob(1), words);
+            count += CompletionBitmap.count(words,
+                    Math.max(fromDay, firstDay) - firstDay, Math.min(toDay, lastDay) - firstDay);
+        }
+        cursor.close();
+        db.close();
+        return count;
+    }
+
+    /**
+     * Loads the current user's completion history for the days [firstDay, lastDay]
+     * into primitive columns (one block per live habit) for HabitStatsEngine.
+     */
+    public HistoryColumns loadHistoryColumns(int firstDay, int lastDay) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.rawQuery(SQL_HISTORY_FOR_USER, new String[]{
+                String.valueOf(DayMath.year(firstDay)), String.valueOf(DayMath.year(lastDay)),
+                getLoggedInUsername()});
+
+        HistoryColumns columns = new HistoryColumns(firstDay, lastDay - firstDay + 1, cursor.getCount());
+        int lastHabitId = -1;
+        int index = -1;
+        while (cursor.moveToNext()) {
+            int habitId = cursor.getInt(0);
+            if (habitId != lastHabitId) {
+                index = columns.addHabit(habitId);
+                lastHabitId = habitId;
+            }
+            if (!cursor.isNull(2)) {
+                columns.addYear(index, cursor.getInt(1), cursor.getBlob(2));
+            }
+        }
+        cursor.close();
+        db.close();
+        return columns;
+    }
+
+    /**
+     * Completions per snapshot row between two days (inclusive), from one history query.
+     * An empty range returns all zeros without touching the DB.
+     */
+    public int[] countCompletions(HabitSnapshot habits, int fromDay, int toDay) {
+        int[] counts = new int[habits.size()];
+        if (toDay < fromDay) return counts;
+
+        HistoryColumns columns = loadHistoryColumns(fromDay, toDay);
+        for (int i = 0; i < columns.size(); i++) {
+            int row = habits.indexOf(columns.habitId(i));
+            if (row >= 0) counts[row] = columns.count(i);
+        }
+        return counts;
+    }
+
+    /**
+     * Rows of the snapshot that are due on the given day. Weekly quotas ("3 times a week")
+     * read this week's completions first, and only if the snapshot has any.
+     */
+    public SparseBitSet dueRows(HabitSnapshot habits, int epochDay) {
+        HabitSchedule.Day day = new HabitSchedule.Day(epochDay);
+        int[] doneEarlierThisWeek = habits.hasWeeklyQuotas() ?
+                countCompletions(habits, day.weekStart, epochDay - 1) : null;
+        return habits.dueOn(day, doneEarlierThisWeek);
+    }
+
+    /**
+     * Sets or clears one day in the habit's bitmap for that year (read, patch, write back).
+     */
+    private void setCompletedOn(SQLiteDatabase db, int habitId, int epochDay, boolean done) {
+        String year = String.valueOf(DayMath.year(epochDay));
+        Cursor cursor = db.rawQuery(SQL_HISTORY_DAYS, new String[]{String.valueOf(habitId), year});
+        byte[] days = cursor.moveToFirst() ? cursor.getBlob(0) : null;
+        cursor.close();
+
+        byte[] updated = CompletionBitmap.set(days, DayMath.dayOfYear(epochDay), done);
+        if (updated == days) return; // already in that state
+
+        if (updated.length == 0) {
+            db.delete(TABLE_HISTORY, COLUMN_HABIT_ID + "=? AND " + COLUMN_YEAR + "=?",
+                    new String[]{String.valueOf(habitId), year});
+            return;
+        }
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_HABIT_ID, habitId);
+        values.put(COLUMN_YEAR, Integer.parseInt(year));
+        values.put(COLUMN_DAYS, updated);
+        db.insertWithOnConflict(TABLE_HISTORY, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+    }
+
+    /**
+     * Called after every committed write that changes the user's visible habits.
+     */
+    private void onHabitsChanged() {
+        dataGeneration.incrementAndGet();
+
+        // Rewrite the home-screen widget's snapshot file (coalesced, off the UI thread)
+        HabitWidgetSnapshot.requestRefresh(context);
+    }
+
+    /**
+     * Current data generation; it changes whenever habits, their tags, photos or
+     * the user's categories are written (compare with the value read before a load).
+     */
+    public static long dataGeneration() {
+        return dataGeneration.get();
+    }
+
+    // ===============================
+    // 📌 Maintenance (called from DatabaseMaintenance on a background thread,
+    //    with the one connection it keeps open for the whole pass)
+    // ===============================
+
+    /**
+     * Permanently removes up to batchSize tombstones older than the given time.
+     * Runs as one short transaction so foreground queries are never held up for long;
+     * the purged habits' photos are deleted after it commits.
+     * Returns the number of rows purged.
+     */
+    public int purgeDeletedHabits(SQLiteDatabase db, long deletedBefore, int batchSize) {
+        List<String> imageNames = new ArrayList<>();
+        int rows = 0;
+        db.beginTransaction();
+        try {
+            Cursor cursor = db.rawQuery(SQL_TOMBSTONE_BATCH,
+                    new String[]{String.valueOf(deletedBefore), String.valueOf(batchSize)});
+            SQLiteStatement statement = db.compileStatement("DELETE FROM " + TABLE_HABITS + " WHERE " + COLUMN_ID + "=?");
+            while (cursor.moveToNext()) {
+                statement.bindLong(1, cursor.getLong(0));
+                rows += statement.executeUpdateDelete();
+                if (!cursor.isNull(1)) imageNames.add(cursor.getString(1));
+            }
+            statement.close();
+            cursor.close();
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+
+        HabitImageLoader images = HabitImageLoader.getInstance(context);
+        for (String name : imageNames) images.delete(name);
+        return rows;
+    }
+
+    /**
+     * Releases at most maxPages free pages back to the file system.
+     * Returns the number of free pages left afterwards (0 until the file has
+     * been converted to incremental auto-vacuum, since nothing can be freed).
+     */
+    public int incrementalVacuum(SQLiteDatabase db, int maxPages) {
+        if (readPragmaInt(db, "auto_vacuum") != 2) return 0;
+        drain(db.rawQuery("PRAGMA incremental_vacuum(" + maxPages + ")", null));
+        return readPragmaInt(db, "freelist_count");
+    }
+
+    /**
+     * Whether the file was created before incremental auto-vacuum was enabled
+     * and still needs the one-time conversion.
+     */
+    public boolean needsVacuumConversion(SQLiteDatabase db) {
+        return readPragmaInt(db, "auto_vacuum") != 2;
+    }
+
+    /**
+     * Size of the main database file in bytes (page_count × page_size).
+     */
+    public long getDatabaseSize(SQLiteDatabase db) {
+        return (long) readPragmaInt(db, "page_count") * readPragmaInt(db, "page_size");
+    }
+
+    /**
+     * One-time conversion to incremental auto-vacuum. This rewrites the whole file
+     * with a full VACUUM that holds the write lock throughout, so DatabaseMaintenance
+     * only runs it while the device is idle or charging and the file is small.
+     */
+    public void convertToIncrementalVacuum(SQLiteDatabase db) {
+        db.execSQL("PRAGMA auto_vacuum = INCREMENTAL");
+        db.execSQL("VACUUM");
+    }
+
+    /**
+     * Whether repeated moves have squeezed any two of the logged-in user's neighbouring
+     * sort keys closer than minGap. Reads only the (username, sort_key) index.
+     */
+    public boolean needsSortKeyRebalance(SQLiteDatabase db, double minGap) {
+        Cursor cursor = db.rawQuery(SQL_SORT_KEYS_FOR_USER, new String[]{getLoggedInUsername()});
+        double[] keys = new double[cursor.getCount()];
+        for (int i = 0; cursor.moveToNext(); i++) keys[i] = cursor.getDouble(1);
+        cursor.close();
+        return SortKeys.minGap(keys, keys.length) < minGap;
+    }
+
+    /**
+     * Renumbers one batch of the logged-in user's order, in its own transaction: the
+     * next (at most) size habits with keys above after get keys spaced evenly between
+     * after and the key of the habit that follows them (STEP apart at the end of the
+     * list). The new keys stay between the batch's neighbours, so the order is valid
+     * between batches and habits moved meanwhile keep their place.
+     * Pass -Double.MAX_VALUE to start at the top. Returns the key to continue after,
+     * or NaN once the end of the list was reached.
+     */
+    public double rebalanceSortKeys(SQLiteDatabase db, double after, int size) {
         String username = getLoggedInUsername();
+        double continueAfter;
+        db.beginTransaction();
+        try {
+            Cursor cursor = db.rawQuery(SQL_SORT_KEY_BATCH,
+                    new String[]{username, String.valueOf(after), String.valueOf(size + 1)});
+            int count = Math.min(cursor.getCount(), size);
+            int[] ids = new int[count];
+            double[] keys = new double[count];
+            double next = Double.NaN;   // key of the habit after the batch, NaN at the end
+            for (int i = 0; cursor.moveToNext(); i++) {
+                if (i < count) {
+                    ids[i] = cursor.getInt(0);
+                    keys[i] = cursor.getDouble(1);
+                } else {
+                    next = cursor.getDouble(1);
+                }
+            }
+            cursor.close();
 
-        // Build query with optional category filter
-        String selection = COLUMN_USERNAME + "=? AND " + COLUMN_NAME + " LIKE ?";
-        ArrayList<String> argsList = new ArrayList<>();
-        argsList.add(username);
-        argsList.add("%" + query + "%");
+            // The first batch starts one STEP below its first key; the last one ends STEP apart
+            double lower = after == -Double.MAX_VALUE && count > 0 ? keys[0] - SortKeys.STEP : after;
+            double upper = Double.isNaN(next) ? lower + (count + 1) * SortKeys.STEP : next;
+            double gap = (upper - lower) / (count + 1);
 
-        if (categoryFilter != null && !categoryFilter.equals("All")) {
-            selection += " AND " + COLUMN_CATEGORY + "=?";
-            argsList.add(categoryFilter);
+            SQLiteStatement statement = db.compileStatement("UPDATE " + TABLE_HABITS +
+                    " SET " + COLUMN_SORT_KEY + "=? WHERE " + COLUMN_ID + "=?");
+            double last = lower;
+            for (int i = 0; i < count; i++) {
+                double key = lower + gap * (i + 1);
+                if (!(key > last && key < upper)) {
+                    // No double fits between these neighbours: renumber the whole order
+                    // at once, as moveHabit does
+                    renumberSortKeys(db, username);
+                    next = Double.NaN;
+                    break;
+                }
+                statement.bindDouble(1, key);
+                statement.bindLong(2, ids[i]);
+                statement.executeUpdateDelete();
+                last = key;
+            }
+            statement.close();
+            db.setTransactionSuccessful();
+            continueAfter = Double.isNaN(next) ? Double.NaN : last;
+        } finally {
+            db.endTransaction();
         }
+        return continueAfter;
+    }
 
-        Cursor cursor = db.query(TABLE_HABITS, null, selection,
-                argsList.toArray(new String[0]), null, null, null);
+    /**
+     * Refreshes query-planner statistics. The first run does a full ANALYZE;
+     * later runs use PRAGMA optimize, which only re-analyzes tables that need it.
+     * analysis_limit caps the rows sampled per index so the step stays short.
+     */
+    public void analyze(SQLiteDatabase db, int analysisLimit) {
+        drain(db.rawQuery("PRAGMA analysis_limit = " + analysisLimit, null));
+        Cursor cursor = db.rawQuery(
+                "SELECT 1 FROM sqlite_master WHERE type='table' AND name='sqlite_stat1'", null);
+        boolean hasStats = cursor.moveToFirst();
+        cursor.close();
+        if (hasStats) {
+            drain(db.rawQuery("PRAGMA optimize", null));
+        } else {
+            db.execSQL("ANALYZE");
+        }
+    }
 
+    /**
+     * PASSIVE WAL checkpoint: copies as many frames as it can without waiting for
+     * readers or writers. The -wal file itself is kept small by SQLite's
+     * journal_size_limit (set by Android), which truncates it when the log restarts.
+     * Returns the number of WAL frames still not checkpointed (or -1 if busy).
+     */
+    public int checkpointWal(SQLiteDatabase db) {
+        Cursor cursor = db.rawQuery("PRAGMA wal_checkpoint(PASSIVE)", null);
+        int remaining = 0;
         if (cursor.moveToFirst()) {
-            do {
-                Habit habit = new Habit(
-                        cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_ID)),
-                        cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_NAME)),
-                        cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_FREQUENCY)),
-                        cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_DESCRIPTION)),
-                        cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_CATEGORY)),
-                        cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_COMPLETED)) == 1,
-                        cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_USERNAME))
-                );
-                habitList.add(habit);
-            } while (cursor.moveToNext());
+            boolean busy = cursor.getInt(0) != 0;
+            remaining = busy ? -1 : cursor.getInt(1) - cursor.getInt(2);
+        }
+        cursor.close();
+        return remaining;
+    }
+
+    /**
+     * Runs PRAGMA quick_check (an O(N) consistency check that skips index content
+     * verification). Returns true when the database reports "ok".
+     */
+    public boolean quickCheck(SQLiteDatabase db) {
+        Cursor cursor = db.rawQuery("PRAGMA quick_check(1)", null);
+        boolean ok = cursor.moveToFirst() && "ok".equalsIgnoreCase(cursor.getString(0));
+        cursor.close();
+        return ok;
+    }
+
+    private void drain(Cursor cursor) {
+        while (cursor.moveToNext()) {
+            // pragmas such as incremental_vacuum do their work one step per row
+        }
+        cursor.close();
+    }
+
+    private int readPragmaInt(SQLiteDatabase db, String pragma) {
+        Cursor cursor = db.rawQuery("PRAGMA " + pragma, null);
+        int value = cursor.moveToFirst() ? cursor.getInt(0) : 0;
+        cursor.close();
+        return value;
+    }
+
+    // ===============================
+    // 📌 Tags
+    // ===============================
+
+    /**
+     * Returns the current user's tags, sorted by name.
+     */
+    public List<Tag> getTags() {
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.rawQuery(SQL_TAGS_FOR_USER, new String[]{getLoggedInUsername()});
+        List<Tag> tags = new ArrayList<>();
+        while (cursor.moveToNext()) {
+            tags.add(new Tag(cursor.getInt(0), cursor.getString(1)));
         }
         cursor.close();
         db.close();
-        return habitList;
+        return tags;
     }
 
     /**
-     * Update an existing habit in the database.
-     * Username is preserved to ensure ownership remains intact.
+     * Names of the tags on one habit (in the order they were first created).
      */
-    public int updateHabit(Habit habit) {
+    public List<String> getHabitTagNames(int habitId) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.rawQuery(SQL_TAG_NAMES_FOR_HABIT, new String[]{String.valueOf(habitId)});
+        List<String> names = new ArrayList<>();
+        while (cursor.moveToNext()) names.add(cursor.getString(0));
+        cursor.close();
+        db.close();
+        return names;
+    }
+
+    /**
+     * Replaces a habit's tags with the given names, creating missing tags.
+     * Blank names are skipped and names are trimmed.
+     */
+    public void setHabitTags(int habitId, List<String> names) {
         SQLiteDatabase db = this.getWritableDatabase();
+        String username = getLoggedInUsername();
+        db.beginTransaction();
+        try {
+            db.delete(TABLE_HABIT_TAGS, COLUMN_HABIT_ID + "=?", new String[]{String.valueOf(habitId)});
+            for (String name : names) {
+                String trimmed = name.trim();
+                if (trimmed.isEmpty()) continue;
+                ContentValues values = new ContentValues();
+                values.put(COLUMN_HABIT_ID, habitId);
+                values.put(COLUMN_TAG_ID, getOrCreateTagId(db, username, trimmed));
+                db.insertWithOnConflict(TABLE_HABIT_TAGS, null, values, SQLiteDatabase.CONFLICT_IGNORE);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        db.close();
+        dataGeneration.incrementAndGet();
+    }
+
+    /**
+     * Builds the tag → habit-position bitmap index over the snapshot's rows
+     * from all of the current user's tag links, read in one pass.
+     */
+    public TagBitmapIndex loadTagIndex(HabitSnapshot habits) {
+        TagBitmapIndex index = new TagBitmapIndex(habits);
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.rawQuery(SQL_TAG_LINKS_FOR_USER, new String[]{getLoggedInUsername()});
+        while (cursor.moveToNext()) {
+            index.addLink(cursor.getInt(0), cursor.getInt(1));
+        }
+        cursor.close();
+        db.close();
+        return index;
+    }
+
+    private int getOrCreateTagId(SQLiteDatabase db, String username, String name) {
         ContentValues values = new ContentValues();
-        values.put(COLUMN_NAME, habit.getName());
-        values.put(COLUMN_FREQUENCY, habit.getFrequency());
-        values.put(COLUMN_DESCRIPTION, habit.getDescription());
-        values.put(COLUMN_CATEGORY, habit.getCategory());
-        values.put(COLUMN_COMPLETED, habit.isCompleted() ? 1 : 0);
-        values.put(COLUMN_USERNAME, habit.getUsername() != null ?
-                habit.getUsername() : getLoggedInUsername());
+        values.put(COLUMN_USERNAME, username);
+        values.put(COLUMN_NAME, name);
+        db.insertWithOnConflict(TABLE_TAGS, null, values, SQLiteDatabase.CONFLICT_IGNORE);
 
-        int rows = db.update(TABLE_HABITS, values, COLUMN_ID + "=?",
-                new String[]{String.valueOf(habit.getId())});
+        Cursor cursor = db.rawQuery(SQL_TAG_ID_BY_NAME, new String[]{username, name});
+        int id = cursor.moveToFirst() ? cursor.getInt(0) : 0;
+        cursor.close();
+        return id;
+    }
+
+    // ===============================
+    // 📌 Categories
+    // ===============================
+
+    /**
+     * Returns the current user's categories with their habit counts.
+     * New users are seeded with the default categories from R.array.category_array.
+     */
+    public List<Category> getCategories() {
+        SQLiteDatabase db = this.getWritableDatabase();
+        String username = getLoggedInUsername();
+        List<Category> categories = new ArrayList<>();
+
+        Cursor cursor = queryCategories(db, username);
+        if (cursor.getCount() == 0) {
+            cursor.close();
+            seedDefaultCategories(db, username);
+            cursor = queryCategories(db, username);
+        }
+
+        while (cursor.moveToNext()) {
+            categories.add(new Category(
+                    cursor.getInt(0),
+                    cursor.getString(1),
+                    cursor.getInt(2)
+            ));
+        }
+        cursor.close();
         db.close();
-        return rows;
+        return categories;
     }
 
     /**
-     * Delete a habit by its ID.
+     * Adds a user-defined category (or returns the existing one with that name).
      */
-    public void deleteHabit(int id) {
+    public int addCategory(String name) {
         SQLiteDatabase db = this.getWritableDatabase();
-        db.delete(TABLE_HABITS, COLUMN_ID + "=?", new String[]{String.valueOf(id)});
+        int id = getOrCreateCategoryId(db, getLoggedInUsername(), name.trim());
         db.close();
+        dataGeneration.incrementAndGet();
+        return id;
+    }
+
+    private Cursor queryCategories(SQLiteDatabase db, String username) {
+        return db.rawQuery(SQL_CATEGORIES_FOR_USER, new String[]{username});
+    }
+
+    private void seedDefaultCategories(SQLiteDatabase db, String username) {
+        String[] defaults = context.getResources().getStringArray(R.array.category_array);
+        db.beginTransaction();
+        try {
+            for (String name : defaults) {
+                if (name.equals("All")) continue; // "All" is a filter option, not a category
+                getOrCreateCategoryId(db, username, name);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Uses the habit's category id when set, otherwise looks up (or creates) the id
+     * for its category name. The resolved id is written back to the habit.
+     */
+    private int resolveCategoryId(SQLiteDatabase db, String username, Habit habit) {
+        int categoryId = habit.getCategoryId();
+        if (categoryId <= 0) {
+            String name = habit.getCategory() != null ? habit.getCategory() : DEFAULT_CATEGORY;
+            categoryId = getOrCreateCategoryId(db, username, name);
+            habit.setCategory(name);
+            habit.setCategoryId(categoryId);
+        }
+        return categoryId;
+    }
+
+    private int getOrCreateCategoryId(SQLiteDatabase db, String username, String name) {
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_USERNAME, username);
+        values.put(COLUMN_NAME, name);
+        db.insertWithOnConflict(TABLE_CATEGORIES, null, values, SQLiteDatabase.CONFLICT_IGNORE);
+
+        Cursor cursor = db.rawQuery(SQL_CATEGORY_ID_BY_NAME, new String[]{username, name});
+        int id = cursor.moveToFirst() ? cursor.getInt(0) : 0;
+        cursor.close();
+        return id;
+    }
+
+    private int getHabitCategoryId(SQLiteDatabase db, int habitId) {
+        Cursor cursor = db.rawQuery(SQL_HABIT_CATEGORY_ID, new String[]{String.valueOf(habitId)});
+        int id = cursor.moveToFirst() ? cursor.getInt(0) : 0;
+        cursor.close();
+        return id;
+    }
+
+    private void adjustCategoryCount(SQLiteDatabase db, int categoryId, int delta) {
+        if (categoryId <= 0) return;
+        db.execSQL("UPDATE " + TABLE_CATEGORIES + " SET " + COLUMN_HABIT_COUNT + " = " +
+                        COLUMN_HABIT_COUNT + " + ? WHERE " + COLUMN_ID + " = ?",
+                new Object[]{delta, categoryId});
     }
 
     /**
@@ -221,28 +1499,49 @@ public class HabitDatabaseHelper extends SQLiteOpenHelper {
      * Optional method: fetch habits for any specific user (e.g., admin use or sharing features).
      */
     public List<Habit> getHabitsForUser(String username) {
-        List<Habit> list = new ArrayList<>();
         SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.rawQuery(SQL_HABITS_FOR_USER, new String[]{username});
+        List<Habit> list = readHabits(cursor);
+        db.close();
+        return list;
+    }
 
-        Cursor cursor = db.query(TABLE_HABITS, null, COLUMN_USERNAME + "=?",
-                new String[]{username}, null, null, null);
-
+    /**
+     * Converts each row of a SELECT_HABITS cursor into a Habit object and closes the cursor.
+     */
+    private List<Habit> readHabits(Cursor cursor) {
+        List<Habit> habitList = new ArrayList<>();
         if (cursor.moveToFirst()) {
+            int idIndex = cursor.getColumnIndexOrThrow(COLUMN_ID);
+            int nameIndex = cursor.getColumnIndexOrThrow(COLUMN_NAME);
+            int frequencyIndex = cursor.getColumnIndexOrThrow(COLUMN_FREQUENCY);
+            int descriptionIndex = cursor.getColumnIndexOrThrow(COLUMN_DESCRIPTION);
+            int categoryIndex = cursor.getColumnIndexOrThrow(COLUMN_CATEGORY);
+            int categoryIdIndex = cursor.getColumnIndexOrThrow(COLUMN_CATEGORY_ID);
+            int completedIndex = cursor.getColumnIndexOrThrow(COLUMN_COMPLETED);
+            int usernameIndex = cursor.getColumnIndexOrThrow(COLUMN_USERNAME);
+            int versionIndex = cursor.getColumnIndexOrThrow(COLUMN_VERSION);
+            int sortKeyIndex = cursor.getColumnIndexOrThrow(COLUMN_SORT_KEY);
+            int imageIndex = cursor.getColumnIndexOrThrow(COLUMN_IMAGE_NAME);
             do {
-                Habit h = new Habit(
-                        cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_ID)),
-                        cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_NAME)),
-                        cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_FREQUENCY)),
-                        cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_DESCRIPTION)),
-                        cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_CATEGORY)),
-                        cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_COMPLETED)) == 1,
-                        cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_USERNAME))
+                Habit habit = new Habit(
+                        cursor.getInt(idIndex),
+                        cursor.getString(nameIndex),
+                        cursor.getString(frequencyIndex),
+                        cursor.getString(descriptionIndex),
+                        cursor.getString(categoryIndex),
+                        cursor.getInt(completedIndex) == 1,
+                        cursor.getString(usernameIndex)
                 );
-                list.add(h);
+                habit.setCategoryId(cursor.getInt(categoryIdIndex));
+                habit.setVersion(cursor.getInt(versionIndex));
+                habit.setSortKey(cursor.getDouble(sortKeyIndex));
+                habit.setImageName(cursor.getString(imageIndex));
+                habit.clearDirty();
+                habitList.add(habit);
             } while (cursor.moveToNext());
         }
         cursor.close();
-        db.close();
-        return list;
+        return habitList;
     }
 }
@@ -1,29 +1,57 @@
 package com.example.myapplication;
 
+import android.content.Context;
+import android.net.Uri;
 import android.os.Bundle;
+import android.util.Log;
 import android.widget.ArrayAdapter;
 import android.widget.Button;
 import android.widget.CheckBox;
 import android.widget.EditText;
+import android.widget.ImageView;
 import android.widget.Spinner;
+import android.widget.TextView;
 import android.widget.Toast;
 
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.appcompat.app.AppCompatActivity;
+
+import com.google.android.material.snackbar.Snackbar;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 /*
 Fetches the habit ID from the previous activity.
 Displays all details of the selected habit in editable fields.
 Lets the user update or delete the habit using the database helper.
 Uses a spinner to show categories and a checkbox for completion status.
+The frequency field takes any schedule HabitSchedule can parse (e.g. "Mon/Wed/Fri").
+Tags are edited as a comma-separated list and saved to the habit_tags links.
+Deleting is soft: an Undo snackbar restores the habit before the screen closes.
+Shows the current streak and recent completions from the completion history.
+Archiving moves the habit out of the active list (see ArchiveActivity to restore it).
+Tapping the photo picks a new one (imported and stored off the UI thread); a long press removes it.
  */
 
 public class HabitDetailActivity extends AppCompatActivity {
 
+    // ⏳ How long the Undo action stays available after a delete
+    private static final int UNDO_WINDOW_MILLIS = 5000;
+
+    // 🖼️ Imports picked photos (decode, scale, write) off the UI thread
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor();
+
     // 📝 UI components for displaying and editing habit details
-    private EditText txtName, txtFrequency, txtDescription;
+    private EditText txtName, txtFrequency, txtDescription, txtTags;
     private Spinner spCategory;
     private CheckBox chkCompleted;
-    private Button btnDelete, btnSave;
+    private TextView txtStreak;
+    private ImageView imgHabit;
+    private Button btnDelete, btnSave, btnArchive;
 
     // 📦 Database helper instance for performing CRUD operations
     private HabitDatabaseHelper dbHelper;
@@ -31,6 +59,17 @@ public class HabitDetailActivity extends AppCompatActivity {
     // 🌿 The current habit object being displayed/edited
     private Habit habit;
 
+    // 📂 Categories shown in the spinner (same order)
+    private List<Category> categories;
+
+    // 🏷️ Tag names as loaded, to skip rewriting unchanged tags
+    private List<String> tagNames;
+
+    // 🖼️ Photo loading and the system image picker
+    private HabitImageLoader imageLoader;
+    private final ActivityResultLauncher<String> pickImage =
+            registerForActivityResult(new ActivityResultContracts.GetContent(), this::onImagePicked);
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -40,74 +79,222 @@ public class HabitDetailActivity extends AppCompatActivity {
         txtName = findViewById(R.id.txtDetailName);
         txtFrequency = findViewById(R.id.txtDetailFrequency);
         txtDescription = findViewById(R.id.txtDetailDescription);
+        txtTags = findViewById(R.id.txtDetailTags);
         spCategory = findViewById(R.id.spDetailCategory);
         chkCompleted = findViewById(R.id.chkDetailCompleted);
+        txtStreak = findViewById(R.id.txtDetailStreak);
+        imgHabit = findViewById(R.id.imgDetailHabit);
         btnDelete = findViewById(R.id.btnDeleteHabit);
         btnSave = findViewById(R.id.btnSaveHabit);
+        btnArchive = findViewById(R.id.btnArchiveHabit);
 
         // 🛠 Initialize database helper
         dbHelper = new HabitDatabaseHelper(this);
+        imageLoader = HabitImageLoader.getInstance(this);
 
-        // 🌀 Setup category spinner using predefined string array (from strings.xml)
-        ArrayAdapter<CharSequence> categoryAdapter = ArrayAdapter.createFromResource(
+        // 🌀 Setup category spinner from the user's categories table
+        categories = dbHelper.getCategories();
+        ArrayAdapter<String> categoryAdapter = new ArrayAdapter<>(
                 this,
-                R.array.category_array,                 // Array resource for categories
                 android.R.layout.simple_spinner_item   // Default spinner item layout
         );
+        for (Category category : categories) {
+            categoryAdapter.add(category.getName());
+        }
         categoryAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
         spCategory.setAdapter(categoryAdapter);
 
         // 📥 Retrieve the habit ID sent from HabitAdapter (via Intent)
         int habitId = getIntent().getIntExtra("habit_id", -1);
 
-        // 🔍 If a valid ID is received, fetch all habits and find the matching one
+        // 🔍 If a valid ID is received, load that habit directly by its primary key
         if (habitId != -1) {
-            List<Habit> allHabits = dbHelper.getAllHabits();
-            habit = allHabits.stream()
-                    .filter(h -> h.getId() == habitId)  // Match by ID
-                    .findFirst()
-                    .orElse(null);                      // Return null if not found
+            habit = dbHelper.getHabit(habitId);
         }
 
         // 🖊 Populate all input fields with existing habit details (if habit exists)
         if (habit != null) {
-            txtName.setText(habit.getName());
-            txtFrequency.setText(habit.getFrequency());
-            txtDescription.setText(habit.getDescription());
-            chkCompleted.setChecked(habit.isCompleted());
-
-            // 🌀 Set category spinner position to match the habit’s category
-            String category = habit.getCategory();
-            if (category != null) {
-                int spinnerPosition = categoryAdapter.getPosition(category);
-                spCategory.setSelection(spinnerPosition);
-            }
+            showHabit();
         }
 
-        // 💾 Save Button → Updates habit details in the database
+        // 💾 Save Button → Writes only the changed fields, guarded by the habit's version
         btnSave.setOnClickListener(v -> {
-            // Update habit object with new values from the UI
+            // A changed schedule must be one HabitSchedule understands
+            String frequency = txtFrequency.getText().toString().trim();
+            String oldFrequency = habit.getFrequency() != null ? habit.getFrequency().trim() : "";
+            if (!frequency.equals(oldFrequency)
+                    && HabitSchedule.parse(frequency, DayMath.today()) == HabitSchedule.INVALID) {
+                txtFrequency.setError(getString(R.string.schedule_invalid));
+                return;
+            }
+
+            // Update habit object with new values from the UI (unchanged values stay clean)
             habit.setName(txtName.getText().toString());
-            habit.setFrequency(txtFrequency.getText().toString());
+            habit.setFrequency(frequency);
             habit.setDescription(txtDescription.getText().toString());
-            habit.setCategory(spCategory.getSelectedItem().toString());
+            Category category = categories.get(spCategory.getSelectedItemPosition());
+            habit.setCategory(category.getName());
+            habit.setCategoryId(category.getId());
             habit.setCompleted(chkCompleted.isChecked());
 
             // Update in DB
-            dbHelper.updateHabit(habit);
+            if (dbHelper.updateHabit(habit) == 0) {
+                // Someone else (e.g. a dashboard toggle) changed or deleted it meanwhile
+                Habit latest = dbHelper.getHabit(habit.getId());
+                if (latest == null) {
+                    Toast.makeText(this, "Habit no longer exists", Toast.LENGTH_SHORT).show();
+                    finish();
+                    return;
+                }
+                habit.copyFrom(latest);
+                showHabit();
+                Toast.makeText(this, "Habit was changed elsewhere. Showing the latest version.", Toast.LENGTH_LONG).show();
+                return;
+            }
+            // Tags live in their own link table (not versioned with the habit row)
+            List<String> editedTags = Tag.parseNames(txtTags.getText().toString());
+            if (!editedTags.equals(tagNames)) {
+                dbHelper.setHabitTags(habit.getId(), editedTags);
+            }
             Toast.makeText(this, "Habit updated!", Toast.LENGTH_SHORT).show();
 
             // Go back to previous screen
             finish();
         });
 
-        // 🗑 Delete Button → Removes the habit record permanently from DB
+        // 🖼️ Photo → tap to pick a new one, long press to go back to the category icon
+        imgHabit.setOnClickListener(v -> pickImage.launch("image/*"));
+        imgHabit.setOnLongClickListener(v -> {
+            if (habit.getImageName() == null) return false;
+            removeImage();
+            return true;
+        });
+
+        // 📦 Archive Button → Moves the habit and its history to the archive tables
+        btnArchive.setOnClickListener(v -> {
+            if (dbHelper.archiveHabit(habit.getId())) {
+                Toast.makeText(this, "Habit archived", Toast.LENGTH_SHORT).show();
+            } else {
+                Toast.makeText(this, "Habit no longer exists", Toast.LENGTH_SHORT).show();
+            }
+            finish();
+        });
+
+        // 🗑 Delete Button → Soft-deletes the habit and offers Undo before leaving
         btnDelete.setOnClickListener(v -> {
             dbHelper.deleteHabit(habit.getId());
-            Toast.makeText(this, "Habit deleted!", Toast.LENGTH_SHORT).show();
+            setEditingEnabled(false);
 
-            // Go back to previous screen
-            finish();
+            final boolean[] undone = {false};
+            Snackbar.make(findViewById(android.R.id.content), "Habit deleted!", Snackbar.LENGTH_INDEFINITE)
+                    .setDuration(UNDO_WINDOW_MILLIS)
+                    .setAction("Undo", view -> {
+                        undone[0] = true;
+                        if (dbHelper.restoreHabit(habit.getId())) {
+                            Toast.makeText(this, "Habit restored!", Toast.LENGTH_SHORT).show();
+                        }
+                        setEditingEnabled(true);
+                    })
+                    .addCallback(new Snackbar.Callback() {
+                        @Override
+                        public void onDismissed(Snackbar snackbar, int event) {
+                            // Go back to previous screen once the undo window has passed
+                            if (!undone[0]) finish();
+                        }
+                    })
+                    .show();
         });
     }
+
+    // 🖼️ Copies the picked image into app storage in the background, stores it as the
+    //    habit's photo and deletes the replaced one's files. The background write uses its
+    //    own helper: dbHelper belongs to the UI thread and closes its connection after each call.
+    //    The task only holds the application context and a weak reference to this screen,
+    //    so a slow import never keeps a closed Activity alive.
+    private void onImagePicked(Uri uri) {
+        if (uri == null || habit == null) return;
+        int habitId = habit.getId();
+        Context appContext = getApplicationContext();
+        HabitImageLoader loader = imageLoader;
+        HabitDatabaseHelper backgroundDb = new HabitDatabaseHelper(appContext);
+        WeakReference<HabitDetailActivity> screen = new WeakReference<>(this);
+        executor.execute(() -> {
+            String imageName;
+            try {
+                imageName = loader.importImage(appContext, uri);
+                loader.delete(backgroundDb.setHabitImage(habitId, imageName));
+            } catch (IOException | SecurityException e) {
+                Log.w("HabitDetailActivity", "Could not import " + uri, e);
+                imageName = null;
+            }
+            String stored = imageName;
+            HabitDetailActivity activity = screen.get();
+            if (activity != null) activity.runOnUiThread(() -> activity.onImageImported(stored));
+        });
+    }
+
+    // 🖼️ Result of onImagePicked, on the UI thread (null = the import failed)
+    private void onImageImported(String imageName) {
+        if (isDestroyed()) return;
+        if (imageName == null) {
+            Toast.makeText(this, "Could not load that image", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        showSavedImage(imageName);
+    }
+
+    // 🖼️ Goes back to the category icon: a single-row write, like Save; only the
+    //    old files are deleted in the background
+    private void removeImage() {
+        String previous = dbHelper.setHabitImage(habit.getId(), null);
+        showSavedImage(null);
+        HabitImageLoader loader = imageLoader;
+        executor.execute(() -> loader.delete(previous));
+    }
+
+    // 🖼️ Shows a photo that was just stored (null = none)
+    private void showSavedImage(String imageName) {
+        if (isDestroyed()) return;
+        habit.setImageName(imageName);
+        showImage();
+    }
+
+    // 🖼️ Shows the habit's photo, or its category icon when it has none
+    private void showImage() {
+        imageLoader.bind(imgHabit, habit.getImageName(), habit.getCategory(),
+                getResources().getDimensionPixelSize(R.dimen.habit_detail_image_size));
+    }
+
+    // 🔒 Disables editing while a deleted habit is waiting for a possible Undo
+    private void setEditingEnabled(boolean enabled) {
+        imgHabit.setEnabled(enabled);
+        btnSave.setEnabled(enabled);
+        btnArchive.setEnabled(enabled);
+        btnDelete.setEnabled(enabled);
+    }
+
+    // 🖊 Fills the input fields from the current habit object
+    private void showHabit() {
+        txtName.setText(habit.getName());
+        txtFrequency.setText(habit.getFrequency());
+        txtDescription.setText(habit.getDescription());
+        chkCompleted.setChecked(habit.isCompleted());
+        tagNames = dbHelper.getHabitTagNames(habit.getId());
+        txtTags.setText(Tag.joinNames(tagNames));
+        showImage();
+
+        // 🔥 Streak and last-30-days count, decoded straight from the history bitmaps
+        int today = DayMath.today();
+        txtStreak.setText(getString(R.string.habit_streak,
+                dbHelper.getCurrentStreak(habit.getId()),
+                dbHelper.countCompletedDays(habit.getId(), today - 29, today)));
+
+        // 🌀 Set category spinner position to match the habit’s category id
+        for (int i = 0; i < categories.size(); i++) {
+            if (categories.get(i).getId() == habit.getCategoryId()) {
+                spCategory.setSelection(i);
+                break;
+            }
+        }
+    }
 }
@@ -0,0 +1,332 @@
+package com.example.myapplication;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Matrix;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.media.ExifInterface;
+import android.media.ThumbnailUtils;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.util.LruCache;
+import android.widget.ImageView;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * HabitImageLoader:
+ * -----------------
+ * Photos attached to habits and the thumbnails shown for them.
+ *   - importImage() copies a picked image into app storage ("habit_images/"),
+ *     downsampled and rotated upright, so the original Uri is never needed again.
+ *   - bind() shows a square thumbnail of a given pixel size in an ImageView:
+ *       1. memory: an LruCache of bitmaps bounded by bytes → set synchronously,
+ *          so rebinding a row that was already shown never touches the decoder;
+ *       2. disk: pre-scaled thumbnails in the cache dir ("habit_thumbs/"),
+ *          decoded on a background thread;
+ *       3. otherwise the stored image is decoded with inSampleSize close to the
+ *          target size, cropped, and written to the disk cache.
+ *     Until the bitmap arrives the view shows the category icon, and a result
+ *     is only applied if the view still wants the same image (recycled rows).
+ * Habits without a photo show their category icon.
+ */
+public class HabitImageLoader {
+
+    private static final String TAG = "HabitImageLoader";
+    private static final String IMAGE_DIR = "habit_images";
+    private static final String THUMB_DIR = "habit_thumbs";
+
+    // Longest side of a stored (imported) image
+    private static final int MAX_STORED_SIZE = 1024;
+    private static final int JPEG_QUALITY = 85;
+
+    // Category icons, boxed once: a view showing one is tagged with it, so rebinding
+    // the same icon skips setImageResource (which loads a new Drawable every time)
+    private static final Integer ICON_DEFAULT = R.drawable.ic_default;
+    private static final Integer ICON_HEALTH = R.drawable.ic_health;
+    private static final Integer ICON_FITNESS = R.drawable.ic_fit;
+    private static final Integer ICON_STUDY = R.drawable.ic_study;
+
+    private static HabitImageLoader instance;
+
+    private final File imageDir;
+    private final File thumbDir;
+    private final LruCache<String, Bitmap> memoryCache;
+    private final ExecutorService decoder = Executors.newFixedThreadPool(2);
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private HabitImageLoader(Context context) {
+        Context appContext = context.getApplicationContext();
+        imageDir = new File(appContext.getFilesDir(), IMAGE_DIR);
+        thumbDir = new File(appContext.getCacheDir(), THUMB_DIR);
+
+        // An eighth of the heap, counted in bytes of decoded pixels
+        int maxBytes = (int) Math.min(Runtime.getRuntime().maxMemory() / 8, Integer.MAX_VALUE);
+        memoryCache = new LruCache<String, Bitmap>(maxBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap bitmap) {
+                return bitmap.getAllocationByteCount();
+            }
+        };
+    }
+
+    public static synchronized HabitImageLoader getInstance(Context context) {
+        if (instance == null) {
+            instance = new HabitImageLoader(context);
+        }
+        return instance;
+    }
+
+    /**
+     * Drawable shown for habits without a photo (and while a photo loads).
+     */
+    public static int categoryIcon(String category) {
+        return iconTag(category);
+    }
+
+    // Compared ignoring case without building a lower-cased copy of the name
+    private static Integer iconTag(String category) {
+        if (category == null) return ICON_DEFAULT;
+        String name = category.trim();
+        if (name.equalsIgnoreCase("health")) return ICON_HEALTH;
+        if (name.equalsIgnoreCase("fitness")) return ICON_FITNESS;
+        if (name.equalsIgnoreCase("study")) return ICON_STUDY;
+        return ICON_DEFAULT;
+    }
+
+    // ===============================
+    // 📌 Showing thumbnails
+    // ===============================
+
+    /**
+     * Cache key (memory and disk) of imageName's sizePx thumbnail. Callers that
+     * rebind the same image often keep it and use the bind() overload taking a key.
+     */
+    public static String cacheKey(String imageName, int sizePx) {
+        return imageName + "@" + sizePx;
+    }
+
+    /**
+     * Shows the habit's photo (imageName may be null) as a sizePx square thumbnail.
+     * Must be called on the main thread.
+     */
+    public void bind(ImageView view, String imageName, String category, int sizePx) {
+        bind(view, imageName, imageName != null ? cacheKey(imageName, sizePx) : null, category, sizePx);
+    }
+
+    /**
+     * Same as above with the key already built by cacheKey(imageName, sizePx),
+     * so a memory-cache hit allocates nothing.
+     */
+    public void bind(ImageView view, String imageName, String key, String category, int sizePx) {
+        if (imageName == null) {
+            Integer icon = iconTag(category);
+            if (!icon.equals(view.getTag())) {
+                view.setTag(icon);
+                view.setImageResource(icon);
+            }
+            return;
+        }
+
+        view.setTag(key);
+        Bitmap cached = memoryCache.get(key);
+        if (cached != null) {
+            // Already showing it (a rebind of the same row): setImageBitmap would still
+            // reattach the drawable
+            Drawable shown = view.getDrawable();
+            if (!(shown instanceof BitmapDrawable) || ((BitmapDrawable) shown).getBitmap() != cached) {
+                view.setImageBitmap(cached);
+            }
+            return;
+        }
+
+        view.setImageResource(categoryIcon(category));
+        WeakReference<ImageView> target = new WeakReference<>(view);
+        decoder.execute(() -> {
+            Bitmap bitmap = loadThumbnail(imageName, key, sizePx);
+            if (bitmap == null) return;
+            memoryCache.put(key, bitmap);
+            mainHandler.post(() -> {
+                ImageView imageView = target.get();
+                if (imageView != null && key.equals(imageView.getTag())) {
+                    imageView.setImageBitmap(bitmap);
+                }
+            });
+        });
+    }
+
+    /**
+     * Puts a decoded thumbnail in the memory cache, as a finished decode does
+     * (lets tests bind photo rows without waiting for the decoder).
+     */
+    void putThumbnail(String key, Bitmap bitmap) {
+        memoryCache.put(key, bitmap);
+    }
+
+    /**
+     * Disk thumbnail if present, otherwise a downsampled decode of the stored image
+     * (which is then written to the disk cache). Runs on the decoder threads.
+     */
+    private Bitmap loadThumbnail(String imageName, String key, int sizePx) {
+        File thumb = new File(thumbDir, key + ".jpg");
+        if (thumb.exists()) {
+            Bitmap bitmap = BitmapFactory.decodeFile(thumb.getPath());
+            if (bitmap != null) return bitmap;
+        }
+
+        File original = new File(imageDir, imageName);
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(original.getPath(), options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) return null;
+
+        options.inSampleSize = sampleSize(options.outWidth, options.outHeight, sizePx);
+        options.inJustDecodeBounds = false;
+        Bitmap sampled = BitmapFactory.decodeFile(original.getPath(), options);
+        if (sampled == null) return null;
+        Bitmap bitmap = ThumbnailUtils.extractThumbnail(sampled, sizePx, sizePx,
+                ThumbnailUtils.OPTIONS_RECYCLE_INPUT);
+
+        if (thumbDir.isDirectory() || thumbDir.mkdirs()) {
+            try {
+                writeJpeg(bitmap, thumb);
+            } catch (IOException e) {
+                Log.w(TAG, "Could not cache thumbnail " + key, e);
+            }
+        }
+        return bitmap;
+    }
+
+    // ===============================
+    // 📌 Storing and deleting images
+    // ===============================
+
+    /**
+     * Copies a picked image into app storage, downsampled to at most MAX_STORED_SIZE
+     * on its longest side and rotated upright. Blocking: call off the main thread.
+     * Returns the stored image's name (for HabitDatabaseHelper.setHabitImage).
+     */
+    public String importImage(Context context, Uri source) throws IOException {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        try (InputStream in = context.getContentResolver().openInputStream(source)) {
+            BitmapFactory.decodeStream(in, null, options);
+        }
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            throw new IOException("Not an image: " + source);
+        }
+
+        options.inSampleSize = sampleSize(options.outWidth, options.outHeight, MAX_STORED_SIZE);
+        options.inJustDecodeBounds = false;
+        Bitmap bitmap;
+        try (InputStream in = context.getContentResolver().openInputStream(source)) {
+            bitmap = BitmapFactory.decodeStream(in, null, options);
+        }
+        if (bitmap == null) throw new IOException("Could not decode " + source);
+
+        int degrees;
+        try (InputStream in = context.getContentResolver().openInputStream(source)) {
+            degrees = in != null ? rotationDegrees(new ExifInterface(in).getAttributeInt(
+                    ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_NORMAL)) : 0;
+        }
+        float scale = Math.min(1f, (float) MAX_STORED_SIZE / Math.max(bitmap.getWidth(), bitmap.getHeight()));
+        if (degrees != 0 || scale < 1f) {
+            Matrix matrix = new Matrix();
+            matrix.postScale(scale, scale);
+            matrix.postRotate(degrees);
+            Bitmap adjusted = Bitmap.createBitmap(bitmap, 0, 0, bitmap.getWidth(), bitmap.getHeight(), matrix, true);
+            if (adjusted != bitmap) bitmap.recycle();
+            bitmap = adjusted;
+        }
+
+        if (!imageDir.isDirectory() && !imageDir.mkdirs()) {
+            throw new IOException("Could not create " + imageDir);
+        }
+        String name = "habit_" + System.currentTimeMillis() + ".jpg";
+        try {
+            writeJpeg(bitmap, new File(imageDir, name));
+        } finally {
+            bitmap.recycle();
+        }
+        return name;
+    }
+
+    /**
+     * Deletes a stored image and every cached thumbnail of it (memory and disk).
+     */
+    public void delete(String imageName) {
+        if (imageName == null) return;
+        new File(imageDir, imageName).delete();
+        File[] thumbs = thumbDir.listFiles((dir, file) -> file.startsWith(imageName + "@"));
+        if (thumbs != null) {
+            for (File thumb : thumbs) thumb.delete();
+        }
+        for (String key : memoryCache.snapshot().keySet()) {
+            if (key.startsWith(imageName + "@")) memoryCache.remove(key);
+        }
+    }
+
+    /**
+     * Writes the bitmap as a JPEG to a temp file in the target's directory and renames
+     * it over the target (as HabitWidgetSnapshot does), so a reader never decodes a
+     * partly written file. Temp names are unique: both decoder threads may write the
+     * same thumbnail.
+     */
+    private static void writeJpeg(Bitmap bitmap, File target) throws IOException {
+        File temp = File.createTempFile(target.getName(), ".tmp", target.getParentFile());
+        try {
+            try (FileOutputStream out = new FileOutputStream(temp)) {
+                bitmap.compress(Bitmap.CompressFormat.JPEG, JPEG_QUALITY, out);
+                out.flush();
+                out.getFD().sync();
+            }
+            if (!temp.renameTo(target)) {
+                throw new IOException("rename failed for " + target);
+            }
+        } finally {
+            temp.delete();   // no-op once renamed
+        }
+    }
+
+    /**
+     * Clockwise rotation that turns an image with this EXIF orientation upright.
+     * Mirrored orientations get the rotation of their unmirrored counterpart;
+     * the mirroring itself is ignored.
+     */
+    static int rotationDegrees(int orientation) {
+        switch (orientation) {
+            case ExifInterface.ORIENTATION_ROTATE_90:
+            case ExifInterface.ORIENTATION_TRANSPOSE:
+                return 90;
+            case ExifInterface.ORIENTATION_ROTATE_180:
+            case ExifInterface.ORIENTATION_FLIP_VERTICAL:
+                return 180;
+            case ExifInterface.ORIENTATION_ROTATE_270:
+            case ExifInterface.ORIENTATION_TRANSVERSE:
+                return 270;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Largest power of two that keeps both sides at or above the target size.
+     */
+    static int sampleSize(int width, int height, int targetSize) {
+        int sample = 1;
+        while (width / (sample * 2) >= targetSize && height / (sample * 2) >= targetSize) {
+            sample *= 2;
+        }
+        return sample;
+    }
+}
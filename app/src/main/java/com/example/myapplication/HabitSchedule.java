@@ -0,0 +1,194 @@
+package com.example.myapplication;
+
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * HabitSchedule:
+ * --------------
+ * Recurrence rules for habits, stored as readable text in the frequency
+ * column ("Daily", "Mon/Wed/Fri", "3 times a week", "Every 2nd day",
+ * "1st of month", …) and compiled once per habit into a single int:
+ *   bits 24-27  kind (DAILY, WEEKDAYS, TIMES_PER_WEEK, EVERY_N_DAYS, MONTH_DAY)
+ *   bits 0-23   parameter (weekday mask, weekly quota, interval or day of month)
+ * "Is this habit due on day D" is then a switch plus one mask test or
+ * modulo, against a {@link Day} computed once per date, so evaluating
+ * thousands of habits parses nothing and allocates nothing per habit.
+ *
+ * Legacy values: "Weekly" means once a week (any day, until done) and
+ * "Monthly" means the anchor's day of the month. Unrecognized text is
+ * treated as daily. Plain Java.
+ */
+public final class HabitSchedule {
+
+    public static final int DAILY = 0;
+    public static final int WEEKDAYS = 1;        // parameter: bit 0 = Monday … bit 6 = Sunday
+    public static final int TIMES_PER_WEEK = 2;  // parameter: completions needed per Monday-Sunday week
+    public static final int EVERY_N_DAYS = 3;    // parameter: interval, counted from the anchor day
+    public static final int MONTH_DAY = 4;       // parameter: day of month (clamped to the month's length)
+
+    /** Returned by {@link #parse} for text that is not a schedule. */
+    public static final int INVALID = -1;
+
+    private static final int KIND_SHIFT = 24;
+    private static final int PARAM_MASK = (1 << KIND_SHIFT) - 1;
+    private static final int ALL_DAYS = 0x7F;
+
+    private static final String[] DAY_NAMES =
+            {"monday", "tuesday", "wednesday", "thursday", "friday", "saturday", "sunday"};
+
+    private static final Pattern TIMES_PER_WEEK_TEXT =
+            Pattern.compile("(\\d+)\\s*(x|times?)\\s*(a|per|/)\\s*week");
+    private static final Pattern EVERY_N_DAYS_TEXT =
+            Pattern.compile("every\\s+(\\d+)\\s*(st|nd|rd|th)?\\s*days?");
+    private static final Pattern MONTH_DAY_TEXT =
+            Pattern.compile("(\\d+)\\s*(st|nd|rd|th)?\\s*(of\\s+(the\\s+|each\\s+|every\\s+)?)?month");
+
+    private HabitSchedule() {}
+
+    /**
+     * One calendar day, decomposed once and shared by every isDue() call for that date.
+     */
+    public static final class Day {
+        public final int epochDay;
+        public final int dayOfWeek;       // 0 = Monday
+        public final int dayOfMonth;      // 1-31
+        public final int lengthOfMonth;   // 28-31
+        public final int weekStart;       // epoch day of this week's Monday
+
+        public Day(int epochDay) {
+            this.epochDay = epochDay;
+            this.dayOfWeek = DayMath.dayOfWeek(epochDay);
+            this.dayOfMonth = DayMath.dayOfMonth(epochDay);
+            this.lengthOfMonth = DayMath.lengthOfMonth(epochDay);
+            this.weekStart = epochDay - dayOfWeek;
+        }
+    }
+
+    // ===============================
+    // 📌 Compiling
+    // ===============================
+
+    /**
+     * Compiled form of a frequency text, or {@link #INVALID}. anchorDay (the epoch
+     * day the schedule started) resolves "Monthly".
+     */
+    public static int parse(String text, int anchorDay) {
+        if (text == null) return INVALID;
+        String t = text.trim().toLowerCase(Locale.ROOT);
+
+        switch (t) {
+            case "daily":
+            case "every day":
+                return DAILY;
+            case "weekly":
+                return of(TIMES_PER_WEEK, 1);
+            case "monthly":
+                return of(MONTH_DAY, DayMath.dayOfMonth(anchorDay));
+            case "weekdays":
+                return of(WEEKDAYS, 0x1F);
+            case "weekends":
+                return of(WEEKDAYS, 0x60);
+        }
+
+        Matcher m = TIMES_PER_WEEK_TEXT.matcher(t);
+        if (m.matches()) {
+            int times = parseCount(m.group(1));
+            if (times < 1 || times > 7) return INVALID;
+            return times == 7 ? DAILY : of(TIMES_PER_WEEK, times);
+        }
+        m = EVERY_N_DAYS_TEXT.matcher(t);
+        if (m.matches()) {
+            int interval = parseCount(m.group(1));
+            if (interval < 1 || interval > PARAM_MASK) return INVALID;
+            return interval == 1 ? DAILY : of(EVERY_N_DAYS, interval);
+        }
+        m = MONTH_DAY_TEXT.matcher(t);
+        if (m.matches()) {
+            int day = parseCount(m.group(1));
+            return day < 1 || day > 31 ? INVALID : of(MONTH_DAY, day);
+        }
+
+        int mask = parseWeekdays(t);
+        if (mask == 0) return INVALID;
+        return mask == ALL_DAYS ? DAILY : of(WEEKDAYS, mask);
+    }
+
+    /**
+     * Like {@link #parse}, but unrecognized (e.g. legacy free-text) schedules count as daily.
+     */
+    public static int compile(String text, int anchorDay) {
+        int schedule = parse(text, anchorDay);
+        return schedule == INVALID ? DAILY : schedule;
+    }
+
+    public static int kind(int schedule) {
+        return schedule >>> KIND_SHIFT;
+    }
+
+    public static int parameter(int schedule) {
+        return schedule & PARAM_MASK;
+    }
+
+    // ===============================
+    // 📌 Evaluating
+    // ===============================
+
+    /**
+     * Whether a habit with this compiled schedule is due on the given day.
+     * doneEarlierThisWeek is only read for TIMES_PER_WEEK: completions from the
+     * week's Monday up to (not including) that day.
+     */
+    public static boolean isDue(int schedule, int anchorDay, Day day, int doneEarlierThisWeek) {
+        int parameter = schedule & PARAM_MASK;
+        switch (schedule >>> KIND_SHIFT) {
+            case WEEKDAYS:
+                return (parameter & (1 << day.dayOfWeek)) != 0;
+            case TIMES_PER_WEEK:
+                return doneEarlierThisWeek < parameter;
+            case EVERY_N_DAYS:
+                return Math.floorMod(day.epochDay - anchorDay, parameter) == 0;
+            case MONTH_DAY:
+                return day.dayOfMonth == Math.min(parameter, day.lengthOfMonth);
+            default:
+                return true;
+        }
+    }
+
+    // ===============================
+    // 📌 Helpers
+    // ===============================
+
+    private static int of(int kind, int parameter) {
+        return (kind << KIND_SHIFT) | parameter;
+    }
+
+    private static int parseCount(String digits) {
+        try {
+            return digits.length() > 7 ? -1 : Integer.parseInt(digits);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * "Mon/Wed/Fri", "tue, thu", "Sat Sun" → weekday mask (0 if any token is not a day).
+     */
+    private static int parseWeekdays(String text) {
+        int mask = 0;
+        for (String token : text.split("[/,\\s]+")) {
+            if (token.isEmpty()) continue;
+            int day = -1;
+            for (int d = 0; d < DAY_NAMES.length; d++) {
+                if (token.length() >= 2 && DAY_NAMES[d].startsWith(token)) {
+                    day = d;
+                    break;
+                }
+            }
+            if (day < 0) return 0;
+            mask |= 1 << day;
+        }
+        return mask;
+    }
+}
@@ -0,0 +1,306 @@
+package com.example.myapplication;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * HabitSnapshot:
+ * --------------
+ * Immutable, columnar copy of one user's live habits in dashboard order
+ * (struct of arrays instead of one Habit object per row). Filtering, the
+ * progress summary, the widget and the suggestion trie read the columns
+ * directly; a Habit object is only created for a row that is edited
+ * ({@link #toHabit(int)}).
+ *
+ * Strings repeated across rows (categories, frequencies, names) are
+ * shared through a per-snapshot dictionary, lower-cased names are
+ * precomputed for search, and completion flags are packed one bit per row.
+ * Each row's frequency is compiled once into a HabitSchedule int, so
+ * {@link #dueOn} answers "which habits are due on day D" without parsing.
+ * Rows are addressed by position (0 … size-1). Safe to share across threads.
+ * Plain Java; HabitDatabaseHelper fills it from a cursor through {@link Builder}.
+ */
+public final class HabitSnapshot {
+
+    private final String username;
+    private final int size;
+    private final int[] ids;
+    private final int[] categoryIds;
+    private final int[] versions;
+    private final double[] sortKeys;
+    private final long[] completed;       // bit i = row i is completed
+    private final String[] names;
+    private final String[] lowerNames;    // same reference as names[i] when already lower-case
+    private final String[] frequencies;
+    private final String[] descriptions;
+    private final String[] categories;
+    private final int[] schedules;        // HabitSchedule compiled form of frequencies[i]
+    private final int[] anchors;          // schedule anchor (epoch day)
+    private final String[] imageNames;    // stored photo (HabitImageLoader), null for none
+
+    // id → position lookup: ids sorted ascending with their positions alongside
+    private final int[] sortedIds;
+    private final int[] sortedPositions;
+
+    private HabitSnapshot(Builder b) {
+        username = b.username;
+        size = b.size;
+        ids = Arrays.copyOf(b.ids, size);
+        categoryIds = Arrays.copyOf(b.categoryIds, size);
+        versions = Arrays.copyOf(b.versions, size);
+        sortKeys = Arrays.copyOf(b.sortKeys, size);
+        completed = Arrays.copyOf(b.completed, (size + 63) >>> 6);
+        names = Arrays.copyOf(b.names, size);
+        lowerNames = Arrays.copyOf(b.lowerNames, size);
+        frequencies = Arrays.copyOf(b.frequencies, size);
+        descriptions = Arrays.copyOf(b.descriptions, size);
+        categories = Arrays.copyOf(b.categories, size);
+        schedules = Arrays.copyOf(b.schedules, size);
+        anchors = Arrays.copyOf(b.anchors, size);
+        imageNames = Arrays.copyOf(b.imageNames, size);
+
+        sortedIds = new int[size];
+        sortedPositions = new int[size];
+        indexIds();
+    }
+
+    /** An empty snapshot (no user habits). */
+    public static HabitSnapshot empty(String username) {
+        return new Builder(username, 0).build();
+    }
+
+    // ===============================
+    // 📌 Column access
+    // ===============================
+
+    public int size() { return size; }
+    public String getUsername() { return username; }
+    public int idAt(int position) { return ids[position]; }
+    public int categoryIdAt(int position) { return categoryIds[position]; }
+    public double sortKeyAt(int position) { return sortKeys[position]; }
+    public String nameAt(int position) { return names[position]; }
+    public String lowerNameAt(int position) { return lowerNames[position]; }
+    public String frequencyAt(int position) { return frequencies[position]; }
+    public String categoryAt(int position) { return categories[position]; }
+    public int scheduleAt(int position) { return schedules[position]; }
+    public String imageNameAt(int position) { return imageNames[position]; }
+
+    public boolean isCompletedAt(int position) {
+        return (completed[position >>> 6] & (1L << position)) != 0;
+    }
+
+    /** Number of completed rows (a popcount over the packed flags). */
+    public int completedCount() {
+        int count = 0;
+        for (long word : completed) count += Long.bitCount(word);
+        return count;
+    }
+
+    /** Whether any row has a weekly quota (whose due state depends on this week's completions). */
+    public boolean hasWeeklyQuotas() {
+        for (int i = 0; i < size; i++) {
+            if (HabitSchedule.kind(schedules[i]) == HabitSchedule.TIMES_PER_WEEK) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Rows due on the given day. doneEarlierThisWeek (per row, may be null when
+     * there are no weekly quotas) holds completions from Monday up to that day.
+     */
+    public SparseBitSet dueOn(HabitSchedule.Day day, int[] doneEarlierThisWeek) {
+        SparseBitSet due = new SparseBitSet();
+        for (int i = 0; i < size; i++) {
+            int done = doneEarlierThisWeek != null ? doneEarlierThisWeek[i] : 0;
+            if (HabitSchedule.isDue(schedules[i], anchors[i], day, done)) due.set(i);
+        }
+        return due;
+    }
+
+    /** Position of the habit with this id, or -1. */
+    public int indexOf(int habitId) {
+        int i = Arrays.binarySearch(sortedIds, habitId);
+        return i >= 0 ? sortedPositions[i] : -1;
+    }
+
+    /**
+     * Creates an editable Habit for one row (clean, with its row version),
+     * e.g. when it is toggled or opened.
+     */
+    public Habit toHabit(int position) {
+        Habit habit = new Habit(ids[position], names[position], frequencies[position],
+                descriptions[position], categories[position], isCompletedAt(position), username);
+        habit.setCategoryId(categoryIds[position]);
+        habit.setVersion(versions[position]);
+        habit.setSortKey(sortKeys[position]);
+        habit.setImageName(imageNames[position]);
+        habit.clearDirty();
+        return habit;
+    }
+
+    /**
+     * Position the row at from ends up at once its sort key is changed to sortKey:
+     * a binary search over the other rows' keys, which are in ascending order.
+     * Hidden (filtered) rows count too, so the result matches the stored order.
+     */
+    public int positionOf(int from, double sortKey) {
+        // Search the rows without from: index j stands for row j < from ? j : j + 1
+        int low = 0;
+        int high = size - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            double key = sortKeys[middle < from ? middle : middle + 1];
+            if (key < sortKey) low = middle + 1;
+            else high = middle;
+        }
+        return low;
+    }
+
+    /**
+     * Copy with the row at from moved to position to and given a new sort key
+     * (mirrors a drag-and-drop that was already saved; see {@link #positionOf}).
+     * Rows are copied as they are, compiled schedules included.
+     */
+    public HabitSnapshot moved(int from, int to, double sortKey) {
+        Builder b = new Builder(username, size);
+        for (int i = 0; i < size; i++) {
+            int source = i;
+            if (from < to && i >= from && i < to) source = i + 1;
+            else if (from > to && i > to && i <= from) source = i - 1;
+            else if (i == to) source = from;
+            b.copyRow(this, source);
+        }
+        b.sortKeys[to] = sortKey;
+        return b.build();
+    }
+
+    private void indexIds() {
+        long[] packed = new long[size];
+        for (int i = 0; i < size; i++) {
+            packed[i] = ((long) ids[i] << 32) | i; // ids are non-negative, so this sorts by id
+        }
+        Arrays.sort(packed);
+        for (int i = 0; i < size; i++) {
+            sortedIds[i] = (int) (packed[i] >>> 32);
+            sortedPositions[i] = (int) packed[i];
+        }
+    }
+
+    // ===============================
+    // 📌 Builder (one row at a time, in list order)
+    // ===============================
+
+    public static final class Builder {
+        private final String username;
+        private final Map<String, String> dictionary = new HashMap<>();
+        private int size;
+        private int[] ids;
+        private int[] categoryIds;
+        private int[] versions;
+        private double[] sortKeys;
+        private long[] completed;
+        private String[] names;
+        private String[] lowerNames;
+        private String[] frequencies;
+        private String[] descriptions;
+        private String[] categories;
+        private int[] schedules;
+        private int[] anchors;
+        private String[] imageNames;
+
+        /** expectedRows sizes the columns up front (e.g. the cursor's row count). */
+        public Builder(String username, int expectedRows) {
+            this.username = username;
+            int capacity = Math.max(expectedRows, 1);
+            ids = new int[capacity];
+            categoryIds = new int[capacity];
+            versions = new int[capacity];
+            sortKeys = new double[capacity];
+            completed = new long[(capacity + 63) >>> 6];
+            names = new String[capacity];
+            lowerNames = new String[capacity];
+            frequencies = new String[capacity];
+            descriptions = new String[capacity];
+            categories = new String[capacity];
+            schedules = new int[capacity];
+            anchors = new int[capacity];
+            imageNames = new String[capacity];
+        }
+
+        public Builder add(int id, String name, String frequency, String description, String category,
+                           int categoryId, boolean isCompleted, int version, double sortKey, int scheduleAnchor,
+                           String imageName) {
+            ensureCapacity();
+            int i = size++;
+            ids[i] = id;
+            categoryIds[i] = categoryId;
+            versions[i] = version;
+            sortKeys[i] = sortKey;
+            if (isCompleted) completed[i >>> 6] |= 1L << i;
+            names[i] = shared(name);
+            String lower = name != null ? name.toLowerCase() : "";
+            lowerNames[i] = lower.equals(names[i]) ? names[i] : shared(lower);
+            frequencies[i] = shared(frequency);
+            descriptions[i] = shared(description);
+            categories[i] = shared(category);
+            anchors[i] = scheduleAnchor;
+            schedules[i] = HabitSchedule.compile(frequency, scheduleAnchor);
+            imageNames[i] = imageName;
+            return this;
+        }
+
+        public HabitSnapshot build() {
+            return new HabitSnapshot(this);
+        }
+
+        /**
+         * Appends row p of another snapshot without recompiling its schedule;
+         * its strings are already shared within that snapshot.
+         */
+        private void copyRow(HabitSnapshot s, int p) {
+            ensureCapacity();
+            int i = size++;
+            ids[i] = s.ids[p];
+            categoryIds[i] = s.categoryIds[p];
+            versions[i] = s.versions[p];
+            sortKeys[i] = s.sortKeys[p];
+            if (s.isCompletedAt(p)) completed[i >>> 6] |= 1L << i;
+            names[i] = s.names[p];
+            lowerNames[i] = s.lowerNames[p];
+            frequencies[i] = s.frequencies[p];
+            descriptions[i] = s.descriptions[p];
+            categories[i] = s.categories[p];
+            anchors[i] = s.anchors[p];
+            schedules[i] = s.schedules[p];
+            imageNames[i] = s.imageNames[p];
+        }
+
+        /** One String instance per distinct value within the snapshot. */
+        private String shared(String value) {
+            if (value == null) return null;
+            String existing = dictionary.get(value);
+            if (existing != null) return existing;
+            dictionary.put(value, value);
+            return value;
+        }
+
+        private void ensureCapacity() {
+            if (size < ids.length) return;
+            int capacity = ids.length * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            categoryIds = Arrays.copyOf(categoryIds, capacity);
+            versions = Arrays.copyOf(versions, capacity);
+            sortKeys = Arrays.copyOf(sortKeys, capacity);
+            completed = Arrays.copyOf(completed, (capacity + 63) >>> 6);
+            names = Arrays.copyOf(names, capacity);
+            lowerNames = Arrays.copyOf(lowerNames, capacity);
+            frequencies = Arrays.copyOf(frequencies, capacity);
+            descriptions = Arrays.copyOf(descriptions, capacity);
+            categories = Arrays.copyOf(categories, capacity);
+            schedules = Arrays.copyOf(schedules, capacity);
+            anchors = Arrays.copyOf(anchors, capacity);
+            imageNames = Arrays.copyOf(imageNames, capacity);
+        }
+    }
+}
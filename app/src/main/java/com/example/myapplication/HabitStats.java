@@ -0,0 +1,50 @@
+package com.example.myapplication;
+
+/**
+ * HabitStats:
+ * -----------
+ * Per-habit statistics computed by HabitStatsEngine, one primitive column per
+ * metric (index i matches HistoryColumns index i). Plain Java.
+ */
+public final class HabitStats {
+
+    // Completion-rate windows in days, ending today
+    public static final int[] RATE_WINDOWS = {7, 30, 90};
+
+    // Weeks of history the trend slope is fitted over
+    public static final int TREND_WEEKS = 12;
+
+    public static final int NO_WEEKDAY = -1;
+
+    public final int today;
+    public final int[] habitIds;
+    public final float[][] rates;      // rates[w][i]: share of the last RATE_WINDOWS[w] days completed
+    public final int[] currentStreak;  // ending today, or yesterday while today is still open
+    public final int[] longestStreak;  // within the loaded window
+    public final int[] bestWeekday;    // DayMath.dayOfWeek value, or NO_WEEKDAY
+    public final float[] trendSlope;   // change in completions per week, per week
+
+    HabitStats(int today, int size) {
+        this.today = today;
+        this.habitIds = new int[size];
+        this.rates = new float[RATE_WINDOWS.length][size];
+        this.currentStreak = new int[size];
+        this.longestStreak = new int[size];
+        this.bestWeekday = new int[size];
+        this.trendSlope = new float[size];
+    }
+
+    public int size() {
+        return habitIds.length;
+    }
+
+    /**
+     * Index of a habit id, or -1 if it is not part of these stats.
+     */
+    public int indexOf(int habitId) {
+        for (int i = 0; i < habitIds.length; i++) {
+            if (habitIds[i] == habitId) return i;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,200 @@
+package com.example.myapplication;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * HabitStatsEngine:
+ * -----------------
+ * Computes HabitStats for every habit in a HistoryColumns window. Habits are
+ * split into ranges and processed in parallel on a small dedicated fork/join
+ * pool (never the common pool, so UI-adjacent work is not starved); each
+ * habit's metrics are computed from its long[] block with word operations.
+ *
+ * The last result is cached per key (user) and day. HabitDatabaseHelper calls
+ * {@link #invalidate()} whenever completions or the habit set change, so the
+ * history is only reloaded and recomputed when something actually changed.
+ * Plain Java.
+ */
+public final class HabitStatsEngine {
+
+    // Days of history loaded for the statistics (covers the largest rate window and the trend)
+    public static final int WINDOW_DAYS = 365;
+
+    // Habits per fork/join leaf task
+    private static final int SPLIT_THRESHOLD = 16;
+
+    private static HabitStatsEngine instance;
+
+    private final ForkJoinPool pool;
+    private final AtomicLong generation = new AtomicLong();
+
+    // Cached result and what it was computed for (guarded by this)
+    private HabitStats cached;
+    private String cachedKey;
+    private long cachedGeneration = -1;
+
+    public HabitStatsEngine(int parallelism) {
+        this.pool = new ForkJoinPool(parallelism);
+    }
+
+    /**
+     * Shared engine with one worker per spare core, at most 4.
+     */
+    public static synchronized HabitStatsEngine getInstance() {
+        if (instance == null) {
+            int cores = Runtime.getRuntime().availableProcessors();
+            instance = new HabitStatsEngine(Math.max(1, Math.min(4, cores - 1)));
+        }
+        return instance;
+    }
+
+    // ===============================
+    // 📌 Cache
+    // ===============================
+
+    /**
+     * Drops the cached stats; the next {@link #get} reloads and recomputes.
+     */
+    public void invalidate() {
+        generation.incrementAndGet();
+    }
+
+    /**
+     * Returns the cached stats for key and today if still valid, otherwise loads the
+     * history with loader, computes the stats and caches them.
+     * A result computed while an invalidation happened is returned but not cached.
+     */
+    public HabitStats get(String key, int today, Supplier<HistoryColumns> loader) {
+        long current = generation.get();
+        synchronized (this) {
+            if (cached != null && cachedGeneration == current
+                    && cached.today == today && key.equals(cachedKey)) {
+                return cached;
+            }
+        }
+
+        HabitStats stats = compute(loader.get(), today);
+
+        synchronized (this) {
+            if (generation.get() == current) {
+                cached = stats;
+                cachedKey = key;
+                cachedGeneration = current;
+            }
+        }
+        return stats;
+    }
+
+    // ===============================
+    // 📌 Computation
+    // ===============================
+
+    /**
+     * Computes all metrics for every habit in columns, in parallel.
+     * today must be the last day of the columns' window.
+     */
+    public HabitStats compute(HistoryColumns columns, int today) {
+        HabitStats stats = new HabitStats(today, columns.size());
+        if (columns.size() > 0) {
+            pool.invoke(new StatsTask(columns, stats, 0, columns.size()));
+        }
+        return stats;
+    }
+
+    private static final class StatsTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final HistoryColumns columns;
+        private final HabitStats stats;
+        private final int from;
+        private final int to;
+
+        StatsTask(HistoryColumns columns, HabitStats stats, int from, int to) {
+            this.columns = columns;
+            this.stats = stats;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SPLIT_THRESHOLD) {
+                int[] weekdays = new int[7];
+                int[] weeks = new int[HabitStats.TREND_WEEKS];
+                for (int i = from; i < to; i++) computeHabit(columns, stats, i, weekdays, weeks);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new StatsTask(columns, stats, from, middle),
+                      new StatsTask(columns, stats, middle, to));
+        }
+    }
+
+    static void computeHabit(HistoryColumns columns, HabitStats stats, int i, int[] weekdays, int[] weeks) {
+        long[] bits = columns.bits();
+        int base = i * columns.wordsPerHabit;
+        int last = columns.dayCount - 1; // window bit of today
+
+        stats.habitIds[i] = columns.habitId(i);
+
+        // 📈 Completion rate per window
+        for (int w = 0; w < HabitStats.RATE_WINDOWS.length; w++) {
+            int window = Math.min(HabitStats.RATE_WINDOWS[w], columns.dayCount);
+            stats.rates[w][i] = CompletionBitmap.count(bits, base, last - window + 1, last) / (float) window;
+        }
+
+        // 🔥 Streaks (the current one may still be extended today)
+        boolean doneToday = columns.isSet(i, columns.firstDay + last);
+        stats.currentStreak[i] = doneToday ? CompletionBitmap.runEndingAt(bits, base, last)
+                : last > 0 ? CompletionBitmap.runEndingAt(bits, base, last - 1) : 0;
+        stats.longestStreak[i] = CompletionBitmap.longestRun(bits, base, columns.wordsPerHabit);
+
+        // 📅 Best weekday: visit set bits only
+        Arrays.fill(weekdays, 0);
+        int firstWeekday = DayMath.dayOfWeek(columns.firstDay);
+        for (int w = 0; w < columns.wordsPerHabit; w++) {
+            long word = bits[base + w];
+            while (word != 0) {
+                int bit = (w << 6) + Long.numberOfTrailingZeros(word);
+                weekdays[(firstWeekday + bit) % 7]++;
+                word &= word - 1;
+            }
+        }
+        int best = HabitStats.NO_WEEKDAY;
+        for (int d = 0; d < 7; d++) {
+            if (weekdays[d] > 0 && (best == HabitStats.NO_WEEKDAY || weekdays[d] > weekdays[best])) best = d;
+        }
+        stats.bestWeekday[i] = best;
+
+        // ↗ Trend: least-squares slope of completions per week over the last TREND_WEEKS weeks
+        int weekCount = Math.min(weeks.length, columns.dayCount / 7);
+        for (int k = 0; k < weekCount; k++) {
+            int end = last - (weekCount - 1 - k) * 7;
+            weeks[k] = CompletionBitmap.count(bits, base, end - 6, end);
+        }
+        stats.trendSlope[i] = slope(weeks, weekCount);
+    }
+
+    /**
+     * Least-squares slope of values[0..n) against their index.
+     */
+    static float slope(int[] values, int n) {
+        if (n < 2) return 0f;
+        double meanX = (n - 1) / 2.0;
+        double meanY = 0;
+        for (int k = 0; k < n; k++) meanY += values[k];
+        meanY /= n;
+        double numerator = 0;
+        double denominator = 0;
+        for (int k = 0; k < n; k++) {
+            double dx = k - meanX;
+            numerator += dx * (values[k] - meanY);
+            denominator += dx * dx;
+        }
+        return (float) (numerator / denominator);
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.myapplication;
+
+import android.content.Context;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+import android.widget.Filter;
+import android.widget.Filterable;
+import android.widget.TextView;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * HabitSuggestionAdapter:
+ * -----------------------
+ * Dropdown adapter for the dashboard search box. Instead of ArrayAdapter's
+ * linear scan over every habit name, its filter asks HabitSuggestionProvider,
+ * which answers from a prefix trie with ranked top-k results.
+ */
+public class HabitSuggestionAdapter extends BaseAdapter implements Filterable {
+
+    private final Context context;
+    private final HabitSuggestionProvider provider;
+    private List<HabitSuggestionTrie.Term> suggestions = new ArrayList<>();
+
+    public HabitSuggestionAdapter(Context context) {
+        this.context = context;
+        this.provider = HabitSuggestionProvider.getInstance(context);
+    }
+
+    @Override
+    public int getCount() {
+        return suggestions.size();
+    }
+
+    @Override
+    public HabitSuggestionTrie.Term getItem(int position) {
+        return suggestions.get(position);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return position;
+    }
+
+    @Override
+    public View getView(int position, View convertView, ViewGroup parent) {
+        TextView view = (TextView) (convertView != null ? convertView :
+                LayoutInflater.from(context).inflate(android.R.layout.simple_dropdown_item_1line, parent, false));
+        HabitSuggestionTrie.Term term = suggestions.get(position);
+        if (term.getKind() == HabitSuggestionTrie.KIND_CATEGORY) {
+            view.setText(context.getString(R.string.suggestion_category, term.getDisplay()));
+        } else {
+            view.setText(term.getDisplay());
+        }
+        return view;
+    }
+
+    @Override
+    public Filter getFilter() {
+        return filter;
+    }
+
+    private final Filter filter = new Filter() {
+        @Override
+        protected FilterResults performFiltering(CharSequence constraint) {
+            FilterResults results = new FilterResults();
+            List<HabitSuggestionTrie.Term> found = constraint == null
+                    ? new ArrayList<>()
+                    : provider.suggest(constraint.toString());
+            results.values = found;
+            results.count = found.size();
+            return results;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        protected void publishResults(CharSequence constraint, FilterResults results) {
+            suggestions = (List<HabitSuggestionTrie.Term>) results.values;
+            if (results.count > 0) {
+                notifyDataSetChanged();
+            } else {
+                notifyDataSetInvalidated();
+            }
+        }
+
+        @Override
+        public CharSequence convertResultToString(Object resultValue) {
+            HabitSuggestionTrie.Term term = (HabitSuggestionTrie.Term) resultValue;
+            // Picking a category filters by category instead of searching by name
+            return term.getKind() == HabitSuggestionTrie.KIND_CATEGORY ? "" : term.getDisplay();
+        }
+    };
+}
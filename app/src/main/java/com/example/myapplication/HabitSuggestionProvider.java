@@ -0,0 +1,154 @@
+package com.example.myapplication;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * HabitSuggestionProvider:
+ * ------------------------
+ * App-wide source of search suggestions for the logged-in user.
+ * It owns a {@link HabitSuggestionTrie} that is built once from the user's
+ * habits and then kept up to date by HabitDatabaseHelper on every
+ * add / rename / delete, instead of being rebuilt on each dashboard load.
+ * Usage scores are persisted in SharedPreferences so rankings survive restarts.
+ */
+public class HabitSuggestionProvider {
+
+    private static final int MAX_SUGGESTIONS = 8;
+    private static HabitSuggestionProvider instance;
+
+    private final Context appContext;
+    private final HabitSuggestionTrie trie = new HabitSuggestionTrie(MAX_SUGGESTIONS);
+    private final Map<Integer, String[]> indexedHabits = new HashMap<>(); // id → {name, category}
+    private String loadedUser;  // user the trie was built for (null = not built)
+
+    private HabitSuggestionProvider(Context context) {
+        this.appContext = context.getApplicationContext();
+    }
+
+    public static synchronized HabitSuggestionProvider getInstance(Context context) {
+        if (instance == null) {
+            instance = new HabitSuggestionProvider(context);
+        }
+        return instance;
+    }
+
+    /**
+     * Builds the trie from an already loaded habit snapshot, once per user.
+     * Later changes arrive through the onHabit* callbacks.
+     */
+    public synchronized void ensureLoaded(HabitSnapshot habits) {
+        String user = currentUser();
+        if (user.equals(loadedUser)) return;
+
+        trie.clear();
+        indexedHabits.clear();
+        loadedUser = user;
+        for (int i = 0; i < habits.size(); i++) {
+            index(habits.idAt(i), habits.nameAt(i), habits.categoryAt(i));
+        }
+        restoreScores();
+    }
+
+    public synchronized void onHabitAdded(int id, String name, String category) {
+        if (!isLoadedForCurrentUser()) return;
+        index(id, name, category);
+        restoreScore(name, HabitSuggestionTrie.KIND_NAME);
+        restoreScore(category, HabitSuggestionTrie.KIND_CATEGORY);
+    }
+
+    public synchronized void onHabitUpdated(int id, String name, String category) {
+        if (!isLoadedForCurrentUser()) return;
+        String[] old = indexedHabits.get(id);
+        if (old != null && eq(old[0], name) && eq(old[1], category)) return;
+        unindex(id);
+        onHabitAdded(id, name, category);
+    }
+
+    public synchronized void onHabitRemoved(int id) {
+        if (!isLoadedForCurrentUser()) return;
+        unindex(id);
+    }
+
+    /**
+     * Raises the rank of a term after the user picked or opened it.
+     */
+    public synchronized void recordUse(String text, int kind) {
+        if (!isLoadedForCurrentUser() || text == null) return;
+        trie.recordUse(text, kind, System.currentTimeMillis());
+        double score = trie.getScore(text, kind);
+        if (score != Double.NEGATIVE_INFINITY) {
+            prefs().edit().putString(prefKey(text, kind), Double.toString(score)).apply();
+        }
+    }
+
+    /**
+     * Returns up to MAX_SUGGESTIONS ranked terms for the prefix.
+     */
+    public synchronized List<HabitSuggestionTrie.Term> suggest(String prefix) {
+        List<HabitSuggestionTrie.Term> result = new ArrayList<>(MAX_SUGGESTIONS);
+        if (isLoadedForCurrentUser()) {
+            trie.suggest(prefix, result);
+        }
+        return result;
+    }
+
+    // ===============================
+    // 📌 Internal helpers
+    // ===============================
+
+    private void index(int id, String name, String category) {
+        indexedHabits.put(id, new String[]{name, category});
+        trie.add(name, HabitSuggestionTrie.KIND_NAME);
+        trie.add(category, HabitSuggestionTrie.KIND_CATEGORY);
+    }
+
+    private void unindex(int id) {
+        String[] old = indexedHabits.remove(id);
+        if (old == null) return;
+        trie.remove(old[0], HabitSuggestionTrie.KIND_NAME);
+        trie.remove(old[1], HabitSuggestionTrie.KIND_CATEGORY);
+    }
+
+    private void restoreScores() {
+        for (String[] entry : indexedHabits.values()) {
+            restoreScore(entry[0], HabitSuggestionTrie.KIND_NAME);
+            restoreScore(entry[1], HabitSuggestionTrie.KIND_CATEGORY);
+        }
+    }
+
+    private void restoreScore(String text, int kind) {
+        if (text == null) return;
+        String saved = prefs().getString(prefKey(text, kind), null);
+        if (saved == null) return;
+        try {
+            trie.setScore(text, kind, Double.parseDouble(saved));
+        } catch (NumberFormatException ignored) {}
+    }
+
+    private boolean isLoadedForCurrentUser() {
+        return loadedUser != null && loadedUser.equals(currentUser());
+    }
+
+    private SharedPreferences prefs() {
+        return appContext.getSharedPreferences("SuggestionPrefs_" + loadedUser, Context.MODE_PRIVATE);
+    }
+
+    private String currentUser() {
+        SharedPreferences prefs = appContext.getSharedPreferences("UserPrefs", Context.MODE_PRIVATE);
+        return prefs.getString("username", "");
+    }
+
+    private static String prefKey(String text, int kind) {
+        return kind + ":" + text.trim().toLowerCase();
+    }
+
+    private static boolean eq(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+}
@@ -0,0 +1,270 @@
+package com.example.myapplication;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * HabitSuggestionTrie:
+ * --------------------
+ * Prefix trie over habit names and categories used for search suggestions.
+ * Every node caches the top-k terms of its subtree, so a lookup only walks
+ * the prefix (O(prefix length)) and copies that cached list.
+ *
+ * Terms are ranked by a "frecency" score: each use adds 2^(time / half-life),
+ * stored in log space. Because the score only depends on when uses happened
+ * (not on "now"), the cached rankings never go stale between updates.
+ *
+ * The trie is updated incrementally (add / remove / use); only the nodes on
+ * the changed term's path are recomputed. Plain Java, no Android types.
+ */
+public class HabitSuggestionTrie {
+
+    public static final int KIND_NAME = 0;
+    public static final int KIND_CATEGORY = 1;
+
+    private static final double HALF_LIFE_MILLIS = 7d * 24 * 60 * 60 * 1000; // one week
+    private static final double LN2 = Math.log(2);
+
+    /**
+     * A suggestion term: either a habit name or a category.
+     */
+    public static final class Term {
+        final String display;   // text shown to the user (first spelling seen)
+        final String key;       // lower-cased lookup key
+        final int kind;         // KIND_NAME or KIND_CATEGORY
+        int refCount;           // number of habits currently using this term
+        double score = Double.NEGATIVE_INFINITY; // log-space frecency
+
+        Term(String display, String key, int kind) {
+            this.display = display;
+            this.key = key;
+            this.kind = kind;
+        }
+
+        public String getDisplay() { return display; }
+        public int getKind() { return kind; }
+        public double getScore() { return score; }
+    }
+
+    private static final class Node {
+        char[] keys = new char[0];
+        Node[] children = new Node[0];
+        Term nameTerm;          // term ending exactly at this node (habit name)
+        Term categoryTerm;      // term ending exactly at this node (category)
+        Term[] top;             // best terms of this subtree, best first
+        int topSize;
+
+        Node(int k) { top = new Term[k]; }
+
+        Node child(char c) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] == c) return children[i];
+            }
+            return null;
+        }
+
+        Node addChild(char c, int k) {
+            Node node = new Node(k);
+            int n = keys.length;
+            char[] newKeys = new char[n + 1];
+            Node[] newChildren = new Node[n + 1];
+            System.arraycopy(keys, 0, newKeys, 0, n);
+            System.arraycopy(children, 0, newChildren, 0, n);
+            newKeys[n] = c;
+            newChildren[n] = node;
+            keys = newKeys;
+            children = newChildren;
+            return node;
+        }
+
+        void removeChild(Node node) {
+            int n = children.length;
+            for (int i = 0; i < n; i++) {
+                if (children[i] == node) {
+                    char[] newKeys = new char[n - 1];
+                    Node[] newChildren = new Node[n - 1];
+                    System.arraycopy(keys, 0, newKeys, 0, i);
+                    System.arraycopy(children, 0, newChildren, 0, i);
+                    System.arraycopy(keys, i + 1, newKeys, i, n - i - 1);
+                    System.arraycopy(children, i + 1, newChildren, i, n - i - 1);
+                    keys = newKeys;
+                    children = newChildren;
+                    return;
+                }
+            }
+        }
+
+        boolean isEmpty() {
+            return keys.length == 0 && nameTerm == null && categoryTerm == null;
+        }
+    }
+
+    private final int k;
+    private final Node root;
+    private final Map<String, Term> terms = new HashMap<>();
+
+    public HabitSuggestionTrie(int k) {
+        this.k = k;
+        this.root = new Node(k);
+    }
+
+    /**
+     * Adds one reference to a term (a habit using this name / category).
+     */
+    public void add(String text, int kind) {
+        String key = normalize(text);
+        if (key.isEmpty()) return;
+
+        Term term = terms.get(termId(key, kind));
+        if (term != null) {
+            term.refCount++;
+            return;
+        }
+        term = new Term(text.trim(), key, kind);
+        term.refCount = 1;
+        terms.put(termId(key, kind), term);
+
+        Node[] path = path(key, true);
+        Node leaf = path[key.length()];
+        if (kind == KIND_NAME) leaf.nameTerm = term; else leaf.categoryTerm = term;
+        recompute(path);
+    }
+
+    /**
+     * Drops one reference to a term; the term leaves the trie when unused.
+     */
+    public void remove(String text, int kind) {
+        String key = normalize(text);
+        Term term = terms.get(termId(key, kind));
+        if (term == null || --term.refCount > 0) return;
+
+        terms.remove(termId(key, kind));
+        Node[] path = path(key, false);
+        if (path == null) return;
+        Node leaf = path[key.length()];
+        if (kind == KIND_NAME) leaf.nameTerm = null; else leaf.categoryTerm = null;
+
+        // Prune now-empty nodes bottom-up before recomputing rankings
+        for (int i = key.length(); i > 0 && path[i].isEmpty(); i--) {
+            path[i - 1].removeChild(path[i]);
+        }
+        recompute(path);
+    }
+
+    /**
+     * Records one use of a term at the given time, raising its rank.
+     */
+    public void recordUse(String text, int kind, long timeMillis) {
+        Term term = terms.get(termId(normalize(text), kind));
+        if (term == null) return;
+        term.score = logAddExp(term.score, timeMillis / HALF_LIFE_MILLIS * LN2);
+        recompute(path(term.key, false));
+    }
+
+    /**
+     * Restores a previously persisted score (see {@link #getScore}).
+     */
+    public void setScore(String text, int kind, double score) {
+        Term term = terms.get(termId(normalize(text), kind));
+        if (term == null || term.score == score) return;
+        term.score = score;
+        recompute(path(term.key, false));
+    }
+
+    public double getScore(String text, int kind) {
+        Term term = terms.get(termId(normalize(text), kind));
+        return term == null ? Double.NEGATIVE_INFINITY : term.score;
+    }
+
+    /**
+     * Appends up to k best terms starting with the prefix to {@code out}.
+     * Runs in time proportional to the prefix length (plus k copies).
+     */
+    public void suggest(String prefix, List<Term> out) {
+        String key = normalize(prefix);
+        Node node = root;
+        for (int i = 0; i < key.length() && node != null; i++) {
+            node = node.child(key.charAt(i));
+        }
+        if (node == null) return;
+        for (int i = 0; i < node.topSize; i++) out.add(node.top[i]);
+    }
+
+    public void clear() {
+        terms.clear();
+        root.keys = new char[0];
+        root.children = new Node[0];
+        root.nameTerm = null;
+        root.categoryTerm = null;
+        root.topSize = 0;
+    }
+
+    // ===============================
+    // 📌 Internal helpers
+    // ===============================
+
+    private Node[] path(String key, boolean create) {
+        Node[] path = new Node[key.length() + 1];
+        Node node = root;
+        path[0] = node;
+        for (int i = 0; i < key.length(); i++) {
+            Node next = node.child(key.charAt(i));
+            if (next == null) {
+                if (!create) return null;
+                next = node.addChild(key.charAt(i), k);
+            }
+            node = next;
+            path[i + 1] = node;
+        }
+        return path;
+    }
+
+    /**
+     * Rebuilds the cached top-k lists on a path, deepest node first.
+     * Each node merges its own terms with its children's (already correct) lists.
+     */
+    private void recompute(Node[] path) {
+        if (path == null) return;
+        for (int i = path.length - 1; i >= 0; i--) {
+            Node node = path[i];
+            node.topSize = 0;
+            offer(node, node.nameTerm);
+            offer(node, node.categoryTerm);
+            for (Node child : node.children) {
+                for (int j = 0; j < child.topSize; j++) offer(node, child.top[j]);
+            }
+        }
+    }
+
+    private void offer(Node node, Term term) {
+        if (term == null) return;
+        int pos = node.topSize;
+        while (pos > 0 && better(term, node.top[pos - 1])) pos--;
+        if (pos >= k) return;
+        int last = Math.min(node.topSize, k - 1);
+        System.arraycopy(node.top, pos, node.top, pos + 1, last - pos);
+        node.top[pos] = term;
+        if (node.topSize < k) node.topSize++;
+    }
+
+    private static boolean better(Term a, Term b) {
+        if (a.score != b.score) return a.score > b.score;
+        int cmp = a.key.compareTo(b.key);
+        return cmp != 0 ? cmp < 0 : a.kind < b.kind;
+    }
+
+    private static double logAddExp(double a, double b) {
+        if (a == Double.NEGATIVE_INFINITY) return b;
+        double max = Math.max(a, b);
+        return max + Math.log(Math.exp(a - max) + Math.exp(b - max));
+    }
+
+    private static String termId(String key, int kind) {
+        return kind + ":" + key;
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.trim().toLowerCase();
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.myapplication;
+
+import android.app.PendingIntent;
+import android.appwidget.AppWidgetManager;
+import android.appwidget.AppWidgetProvider;
+import android.content.Context;
+import android.content.Intent;
+import android.text.TextUtils;
+import android.widget.RemoteViews;
+
+/**
+ * HabitWidgetProvider:
+ * --------------------
+ * Home-screen widget showing today's habits and the completion percentage.
+ * Each update is a single read of the HabitWidgetSnapshot file written by the
+ * app; the widget never opens the SQLite database itself.
+ */
+public class HabitWidgetProvider extends AppWidgetProvider {
+
+    @Override
+    public void onUpdate(Context context, AppWidgetManager appWidgetManager, int[] appWidgetIds) {
+        HabitWidgetSnapshot snapshot = HabitWidgetSnapshot.read(context);
+        if (snapshot == null || snapshot.day != DayMath.today()) {
+            // First widget placed, or the snapshot is from another day (different habits due):
+            // ask the app side to write a fresh one (it will call back here)
+            HabitWidgetSnapshot.requestRefresh(context);
+        }
+
+        RemoteViews views = buildViews(context, snapshot);
+        for (int appWidgetId : appWidgetIds) {
+            appWidgetManager.updateAppWidget(appWidgetId, views);
+        }
+    }
+
+    private RemoteViews buildViews(Context context, HabitWidgetSnapshot snapshot) {
+        RemoteViews views = new RemoteViews(context.getPackageName(), R.layout.widget_habits);
+
+        if (snapshot == null || snapshot.total == 0) {
+            views.setTextViewText(R.id.txtWidgetSummary, context.getString(R.string.widget_empty));
+            views.setTextViewText(R.id.txtWidgetHabits, "");
+            views.setProgressBar(R.id.progressWidget, 100, 0, false);
+        } else {
+            views.setTextViewText(R.id.txtWidgetSummary, context.getString(R.string.widget_summary,
+                    snapshot.completed, snapshot.total, snapshot.getPercent()));
+            views.setTextViewText(R.id.txtWidgetHabits,
+                    TextUtils.join("\n", snapshot.lines("✔", "○")));
+            views.setProgressBar(R.id.progressWidget, 100, snapshot.getPercent(), false);
+        }
+
+        // Tapping the widget opens the dashboard
+        Intent intent = new Intent(context, DashboardActivity.class);
+        PendingIntent pendingIntent = PendingIntent.getActivity(context, 0, intent,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+        views.setOnClickPendingIntent(R.id.widgetRoot, pendingIntent);
+        return views;
+    }
+}
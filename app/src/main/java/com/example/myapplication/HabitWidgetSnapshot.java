@@ -0,0 +1,201 @@
+package com.example.myapplication;
+
+import android.appwidget.AppWidgetManager;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * HabitWidgetSnapshot:
+ * --------------------
+ * Small binary summary of the logged-in user's habits due today for the home-screen
+ * widget (the same due-today count as ProgressActivity). The app rewrites it after
+ * habit writes (via HabitDatabaseHelper), so the widget only ever reads this one
+ * file and never opens habittracker.db.
+ *
+ * File layout (big-endian, DataOutputStream):
+ *   int magic, byte version, long writtenAt, int day (epoch day), int total,
+ *   int completed, int rowCount, then rowCount × (boolean completed, UTF name).
+ * It is written to a temp file and renamed over the old one, so readers
+ * always see either the previous or the new snapshot, never a partial one.
+ */
+public class HabitWidgetSnapshot {
+
+    private static final String TAG = "HabitWidgetSnapshot";
+    private static final String FILE_NAME = "widget_snapshot.bin";
+    private static final int MAGIC = 0x48424953; // "HBIS"
+    private static final byte VERSION = 2;
+    static final int MAX_ROWS = 8;
+    private static final long REFRESH_DELAY_MILLIS = 500;   // writes within this window share one rebuild
+    private static final Object REFRESH_TOKEN = new Object();
+
+    private static Handler refreshHandler;                   // lazily started background thread
+
+    // Snapshot contents
+    public final long writtenAt;
+    public final int day;           // epoch day the due habits were computed for
+    public final int total;
+    public final int completed;
+    public final String[] names;
+    public final boolean[] completedFlags;
+
+    private HabitWidgetSnapshot(long writtenAt, int day, int total, int completed,
+                                String[] names, boolean[] completedFlags) {
+        this.writtenAt = writtenAt;
+        this.day = day;
+        this.total = total;
+        this.completed = completed;
+        this.names = names;
+        this.completedFlags = completedFlags;
+    }
+
+    public int getPercent() {
+        return total == 0 ? 0 : (completed * 100) / total;
+    }
+
+    // ===============================
+    // 📌 Writing (app side)
+    // ===============================
+
+    /**
+     * Schedules a rebuild of the snapshot on a background thread, debounced: each call
+     * pushes the rebuild back by REFRESH_DELAY_MILLIS, so a burst of writes costs one
+     * rebuild. Cheap to call from the UI thread; the widget lookup (a binder call)
+     * happens in the rebuild, which does nothing if no widget is placed.
+     */
+    public static void requestRefresh(Context context) {
+        Context appContext = context.getApplicationContext();
+        Handler handler = refreshHandler();
+        handler.removeCallbacksAndMessages(REFRESH_TOKEN);
+        handler.postAtTime(() -> refresh(appContext), REFRESH_TOKEN,
+                SystemClock.uptimeMillis() + REFRESH_DELAY_MILLIS);
+    }
+
+    private static void refresh(Context context) {
+        try {
+            int[] widgetIds = getWidgetIds(context);
+            if (widgetIds.length == 0) return;
+            HabitDatabaseHelper dbHelper = new HabitDatabaseHelper(context);
+            HabitSnapshot habits = dbHelper.loadHabitSnapshot();
+            int today = DayMath.today();
+            write(context, habits, dbHelper.dueRows(habits, today), today);
+            notifyWidgets(context, widgetIds);
+        } catch (Exception e) {
+            Log.w(TAG, "Could not refresh widget snapshot", e);
+        }
+    }
+
+    static void write(Context context, HabitSnapshot habits, SparseBitSet due, int day) throws IOException {
+        int total = due.cardinality();
+        int completed = 0;
+        for (int row = due.nextSetBit(0); row >= 0; row = due.nextSetBit(row + 1)) {
+            if (habits.isCompletedAt(row)) completed++;
+        }
+        int rows = Math.min(total, MAX_ROWS);
+
+        File target = new File(context.getFilesDir(), FILE_NAME);
+        File temp = new File(context.getFilesDir(), FILE_NAME + ".tmp");
+        try (FileOutputStream fileOut = new FileOutputStream(temp);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut))) {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeLong(System.currentTimeMillis());
+            out.writeInt(day);
+            out.writeInt(total);
+            out.writeInt(completed);
+            out.writeInt(rows);
+            int row = due.nextSetBit(0);
+            for (int i = 0; i < rows; i++, row = due.nextSetBit(row + 1)) {
+                out.writeBoolean(habits.isCompletedAt(row));
+                out.writeUTF(habits.nameAt(row) != null ? habits.nameAt(row) : "");
+            }
+            out.flush();
+            fileOut.getFD().sync();
+        }
+        if (!temp.renameTo(target)) {
+            throw new IOException("rename failed for " + target);
+        }
+    }
+
+    // ===============================
+    // 📌 Reading (widget side)
+    // ===============================
+
+    /**
+     * Reads the current snapshot, or returns null if none has been written yet.
+     */
+    public static HabitWidgetSnapshot read(Context context) {
+        File file = new File(context.getFilesDir(), FILE_NAME);
+        if (!file.exists()) return null;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readByte() != VERSION) return null;
+            long writtenAt = in.readLong();
+            int day = in.readInt();
+            int total = in.readInt();
+            int completed = in.readInt();
+            int rows = Math.min(in.readInt(), MAX_ROWS);
+            String[] names = new String[rows];
+            boolean[] flags = new boolean[rows];
+            for (int i = 0; i < rows; i++) {
+                flags[i] = in.readBoolean();
+                names[i] = in.readUTF();
+            }
+            return new HabitWidgetSnapshot(writtenAt, day, total, completed, names, flags);
+        } catch (IOException e) {
+            Log.w(TAG, "Unreadable widget snapshot", e);
+            return null;
+        }
+    }
+
+    // ===============================
+    // 📌 Internal helpers
+    // ===============================
+
+    private static synchronized Handler refreshHandler() {
+        if (refreshHandler == null) {
+            HandlerThread thread = new HandlerThread(TAG);
+            thread.start();
+            refreshHandler = new Handler(thread.getLooper());
+        }
+        return refreshHandler;
+    }
+
+    private static int[] getWidgetIds(Context context) {
+        return AppWidgetManager.getInstance(context)
+                .getAppWidgetIds(new ComponentName(context, HabitWidgetProvider.class));
+    }
+
+    private static void notifyWidgets(Context context, int[] widgetIds) {
+        Intent intent = new Intent(context, HabitWidgetProvider.class);
+        intent.setAction(AppWidgetManager.ACTION_APPWIDGET_UPDATE);
+        intent.putExtra(AppWidgetManager.EXTRA_APPWIDGET_IDS, widgetIds);
+        context.sendBroadcast(intent);
+    }
+
+    /**
+     * Convenience for the widget: the row list as display lines.
+     */
+    List<String> lines(String doneMark, String todoMark) {
+        List<String> lines = new ArrayList<>(names.length);
+        for (int i = 0; i < names.length; i++) {
+            lines.add((completedFlags[i] ? doneMark : todoMark) + " " + names[i]);
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.myapplication;
+
+import java.util.Arrays;
+
+/**
+ * HistoryColumns:
+ * ---------------
+ * Completion history of many habits over one window of days, in primitive
+ * columns instead of objects:
+ *   habitIds[i]  – id of the i-th habit
+ *   bits         – wordsPerHabit words per habit, back to back; bit n of
+ *                  habit i's block is set when it was completed on firstDay + n
+ * Filled from the per-year CompletionBitmap blobs with word shifts, so the
+ * statistics engine can work on plain long[] ranges. Plain Java.
+ */
+public final class HistoryColumns {
+
+    public final int firstDay;     // epoch day of bit 0
+    public final int dayCount;     // days in the window (last day = firstDay + dayCount - 1)
+    public final int wordsPerHabit;
+
+    private int size;
+    private int[] habitIds;
+    private long[] bits;
+
+    private final long[] yearWords = new long[CompletionBitmap.WORDS];
+
+    public HistoryColumns(int firstDay, int dayCount, int expectedHabits) {
+        this.firstDay = firstDay;
+        this.dayCount = dayCount;
+        this.wordsPerHabit = (dayCount + 63) >>> 6;
+        int capacity = Math.max(expectedHabits, 8);
+        this.habitIds = new int[capacity];
+        this.bits = new long[capacity * wordsPerHabit];
+    }
+
+    /**
+     * Appends a habit with an empty history and returns its index.
+     */
+    public int addHabit(int habitId) {
+        if (size == habitIds.length) {
+            habitIds = Arrays.copyOf(habitIds, size * 2);
+            bits = Arrays.copyOf(bits, size * 2 * wordsPerHabit);
+        }
+        habitIds[size] = habitId;
+        return size++;
+    }
+
+    /**
+     * ORs one habit-year blob into habit index's block; days outside the window are dropped.
+     */
+    public void addYear(int index, int year, byte[] days) {
+        CompletionBitmap.decodeInto(days, yearWords);
+        int base = index * wordsPerHabit;
+        int shift = DayMath.epochDay(year, 1, 1) - firstDay; // window bit of Jan 1st (may be negative)
+
+        for (int w = 0; w < CompletionBitmap.WORDS; w++) {
+            long value = yearWords[w];
+            int position = shift + (w << 6);
+            if (value == 0 || position <= -64) continue;
+            if (position < 0) {
+                value >>>= -position;
+                position = 0;
+            }
+            int word = position >>> 6;
+            if (word >= wordsPerHabit) break;
+            int offset = position & 63;
+            bits[base + word] |= value << offset;
+            if (offset != 0 && word + 1 < wordsPerHabit) {
+                bits[base + word + 1] |= value >>> (64 - offset);
+            }
+        }
+
+        // Clear anything past the last day of the window
+        int tail = dayCount & 63;
+        if (tail != 0) bits[base + wordsPerHabit - 1] &= (1L << tail) - 1;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int habitId(int index) {
+        return habitIds[index];
+    }
+
+    /**
+     * The shared bit column; habit index's block starts at index * wordsPerHabit.
+     */
+    long[] bits() {
+        return bits;
+    }
+
+    /**
+     * Number of completed days in habit index's block.
+     */
+    public int count(int index) {
+        int count = 0;
+        int base = index * wordsPerHabit;
+        for (int w = 0; w < wordsPerHabit; w++) count += Long.bitCount(bits[base + w]);
+        return count;
+    }
+
+    public boolean isSet(int index, int day) {
+        int bit = day - firstDay;
+        if (bit < 0 || bit >= dayCount) return false;
+        return (bits[index * wordsPerHabit + (bit >>> 6)] & (1L << (bit & 63))) != 0;
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.myapplication;
+
+/**
+ * LatencyHistogram:
+ * -----------------
+ * Fixed-size histogram of durations in microseconds, used by PerformanceMonitor
+ * for frame times and main-thread stalls. Values below 32 µs get one bucket each;
+ * above that every power of two is split into 16 buckets, so any percentile is
+ * within ~6% of the true value while recording stays one array increment (no
+ * allocation, no sorting). Values above ~2 minutes share the last bucket.
+ * Not thread-safe: callers synchronize. Plain Java.
+ */
+public final class LatencyHistogram {
+
+    private static final int LINEAR = 32;        // values 0-31 µs are counted exactly
+    private static final int SUB_BUCKETS = 16;   // buckets per power of two above that
+    private static final int MAX_SHIFT = 22;     // covers up to 2^27 µs (~2 min)
+    private static final int BUCKETS = LINEAR + MAX_SHIFT * SUB_BUCKETS;
+
+    private final int[] counts = new int[BUCKETS];
+    private long total;
+    private long sumMicros;
+    private long maxMicros;
+
+    public void record(long micros) {
+        if (micros < 0) micros = 0;
+        counts[bucketOf(micros)]++;
+        total++;
+        sumMicros += micros;
+        if (micros > maxMicros) maxMicros = micros;
+    }
+
+    public long count() { return total; }
+    public long maxMicros() { return maxMicros; }
+
+    public long meanMicros() {
+        return total == 0 ? 0 : sumMicros / total;
+    }
+
+    /**
+     * Number of recorded values above the given duration (counted by bucket,
+     * so a bucket straddling the limit counts as above when its midpoint is).
+     */
+    public long countAbove(long micros) {
+        long above = 0;
+        for (int i = BUCKETS - 1; i >= 0 && midpoint(i) > micros; i--) above += counts[i];
+        return above;
+    }
+
+    /**
+     * Value at the given percentile (0-100), as its bucket's midpoint; 0 when empty.
+     */
+    public long percentileMicros(double percentile) {
+        if (total == 0) return 0;
+        long rank = (long) Math.ceil(percentile / 100.0 * total);
+        if (rank < 1) rank = 1;
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) return Math.min(midpoint(i), maxMicros);
+        }
+        return maxMicros;
+    }
+
+    // ===============================
+    // 📌 Bucket layout
+    // ===============================
+
+    static int bucketOf(long micros) {
+        if (micros < LINEAR) return (int) micros;
+        int shift = 63 - Long.numberOfLeadingZeros(micros) - 4;   // micros >> shift is 16-31
+        if (shift > MAX_SHIFT) return BUCKETS - 1;
+        return LINEAR + (shift - 1) * SUB_BUCKETS + (int) (micros >> shift) - SUB_BUCKETS;
+    }
+
+    static long lowerBound(int bucket) {
+        if (bucket < LINEAR) return bucket;
+        int shift = (bucket - LINEAR) / SUB_BUCKETS + 1;
+        long sub = (bucket - LINEAR) % SUB_BUCKETS + SUB_BUCKETS;
+        return sub << shift;
+    }
+
+    private static long midpoint(int bucket) {
+        if (bucket < LINEAR) return bucket;
+        long lower = lowerBound(bucket);
+        long width = 1L << ((bucket - LINEAR) / SUB_BUCKETS + 1);
+        return lower + width / 2;
+    }
+}
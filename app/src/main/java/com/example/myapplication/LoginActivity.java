@@ -53,6 +53,9 @@ public class LoginActivity extends AppCompatActivity {
                 SharedPreferences prefs = getSharedPreferences("UserPrefs", MODE_PRIVATE);
                 prefs.edit().putString("username", username).apply();
 
+                // Point the home-screen widget at the newly logged-in user's habits
+                HabitWidgetSnapshot.requestRefresh(LoginActivity.this);
+
                 Toast.makeText(LoginActivity.this, "Login Successful", Toast.LENGTH_SHORT).show();
 
                 // Redirect to DashboardActivity after successful login
@@ -0,0 +1,407 @@
+package com.example.myapplication;
+
+import android.app.Activity;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.util.Log;
+import android.util.Printer;
+import android.view.FrameMetrics;
+import android.view.Window;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.reflect.Field;
+import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.WeakHashMap;
+
+/**
+ * PerformanceMonitor:
+ * -------------------
+ * In-app jank measurement for the dashboard and progress screens.
+ *   - Frames: a FrameMetrics listener on the visible screen's window records the
+ *     total duration of every rendered frame (an idle screen renders nothing,
+ *     so it costs nothing).
+ *   - Stalls (opt-in, {@link #setStallTracking}): a printer on the main Looper times
+ *     every dispatched message and records those taking {@link #STALL_THRESHOLD_MS}
+ *     or longer. With a printer set, the Looper formats two log lines per message,
+ *     which itself slows the main thread, so it is off unless asked for. It is only
+ *     installed while a monitored screen is visible, forwards every line to the
+ *     printer it replaced, and puts that printer back when removed.
+ * Each frame and stall is attributed to its screen and to the user action that
+ * overlapped it (see {@link #begin}/{@link #end} around search keystrokes,
+ * toggles, resume reloads, …), or to "idle". Durations are aggregated per
+ * (kind, screen, action) in LatencyHistograms; {@link #writeReport()} writes their
+ * percentiles plus the most recent stalls to a tab-separated file in the app's
+ * external files dir ("perf/"), so runs of different builds can be compared.
+ *
+ * Frame recording is on by default in debuggable builds. Other builds switch it
+ * on with a long press on the dashboard's progress button; the same gesture then
+ * offers the export and the stall tracking switch.
+ */
+public final class PerformanceMonitor {
+
+    private static final String TAG = "PerformanceMonitor";
+    private static final String PREFS = "PerformanceMonitor";
+    private static final String KEY_ENABLED = "enabled";
+    private static final String KEY_STALLS = "stalls";
+
+    // Screens and actions used for attribution
+    public static final String SCREEN_DASHBOARD = "Dashboard";
+    public static final String SCREEN_PROGRESS = "Progress";
+    public static final String ACTION_FIRST_LOAD = "first load";
+    public static final String ACTION_RESUME_RELOAD = "resume reload";
+    public static final String ACTION_SEARCH_KEYSTROKE = "search keystroke";
+    public static final String ACTION_FILTER = "filter";
+    public static final String ACTION_TOGGLE = "toggle";
+    public static final String ACTION_REORDER = "reorder";
+    private static final String IDLE = "idle";
+
+    // A main-thread message at least this long is a stall
+    public static final long STALL_THRESHOLD_MS = 100;
+
+    // Frames starting this soon after an action ended still belong to it (its layout/draw pass)
+    private static final long ACTION_LINGER_NANOS = 32_000_000L;
+
+    private static final int RECENT_ACTIONS = 8;
+    private static final int RECENT_STALLS = 20;
+
+    private static PerformanceMonitor instance;
+
+    private final Context appContext;
+    private final long collectingSince = System.currentTimeMillis();
+    private boolean enabled;
+    private boolean stallTracking;           // opt-in, see setStallTracking()
+    private Handler frameHandler;            // FrameMetrics are delivered on this thread
+    private volatile String visibleScreen;   // for stalls outside any action
+    private volatile float refreshRate = 60f;
+
+    // Frame listeners of the attached screens (main thread only)
+    private final Map<Activity, Window.OnFrameMetricsAvailableListener> listeners = new WeakHashMap<>();
+
+    // Main-thread message timing (main thread only)
+    private Printer stallPrinter;            // ours, while installed on the main Looper
+    private Printer previousPrinter;         // the one it replaced, restored on removal
+    private long dispatchStartNanos;
+
+    // Recent actions as a ring, newest at actionHead (guarded by this)
+    private final String[] actionScreens = new String[RECENT_ACTIONS];
+    private final String[] actionNames = new String[RECENT_ACTIONS];
+    private final long[] actionStarts = new long[RECENT_ACTIONS];
+    private final long[] actionEnds = new long[RECENT_ACTIONS];   // Long.MAX_VALUE while running
+    private int actionHead = -1;
+
+    // Aggregates, keyed "screen\taction" (guarded by this)
+    private final Map<String, LatencyHistogram> frames = new TreeMap<>();
+    private final Map<String, LatencyHistogram> stalls = new TreeMap<>();
+    private final ArrayDeque<String> recentStalls = new ArrayDeque<>();
+
+    private PerformanceMonitor(Context context) {
+        appContext = context.getApplicationContext();
+        boolean debuggable = (appContext.getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0;
+        enabled = debuggable || prefs().getBoolean(KEY_ENABLED, false);
+        stallTracking = prefs().getBoolean(KEY_STALLS, false);
+    }
+
+    public static synchronized PerformanceMonitor getInstance(Context context) {
+        if (instance == null) {
+            instance = new PerformanceMonitor(context);
+        }
+        return instance;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Switches monitoring on or off (remembered across launches). Screens that are
+     * already visible are picked up on their next attach().
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        prefs().edit().putBoolean(KEY_ENABLED, enabled).apply();
+        if (!enabled) removeStallPrinter();
+    }
+
+    public boolean isStallTrackingEnabled() {
+        return stallTracking;
+    }
+
+    /**
+     * Switches main-thread stall timing on or off (remembered across launches).
+     * Takes effect right away for a visible screen. Main thread only.
+     */
+    public void setStallTracking(boolean on) {
+        stallTracking = on;
+        prefs().edit().putBoolean(KEY_STALLS, on).apply();
+        if (on && enabled && !listeners.isEmpty()) {
+            installStallPrinter();
+        } else if (!on) {
+            removeStallPrinter();
+        }
+    }
+
+    // ===============================
+    // 📌 Screens (call from onResume / onPause)
+    // ===============================
+
+    /**
+     * Starts recording the activity's frames under the given screen name.
+     */
+    @SuppressWarnings("deprecation") // getDefaultDisplay() is the only option before API 30
+    public void attach(Activity activity, String screen) {
+        if (!enabled || listeners.containsKey(activity)) return;
+        if (stallTracking) installStallPrinter();
+        if (frameHandler == null) {
+            HandlerThread thread = new HandlerThread(TAG);
+            thread.start();
+            frameHandler = new Handler(thread.getLooper());
+        }
+        visibleScreen = screen;
+        refreshRate = activity.getWindowManager().getDefaultDisplay().getRefreshRate();
+
+        Window.OnFrameMetricsAvailableListener listener =
+                (window, metrics, dropCount) -> onFrame(screen, metrics);
+        activity.getWindow().addOnFrameMetricsAvailableListener(listener, frameHandler);
+        listeners.put(activity, listener);
+    }
+
+    public void detach(Activity activity) {
+        Window.OnFrameMetricsAvailableListener listener = listeners.remove(activity);
+        if (listener == null) return;
+        try {
+            activity.getWindow().removeOnFrameMetricsAvailableListener(listener);
+        } catch (IllegalArgumentException ignored) {
+            // Window already dropped its listeners
+        }
+        visibleScreen = null;
+        if (listeners.isEmpty()) removeStallPrinter();
+    }
+
+    // ===============================
+    // 📌 Actions (main thread)
+    // ===============================
+
+    /**
+     * Marks the start of a user action; frames and stalls overlapping it until
+     * {@link #end()} (plus its following layout pass) are attributed to it.
+     */
+    public void begin(String screen, String action) {
+        if (!enabled) return;
+        synchronized (this) {
+            actionHead = (actionHead + 1) % RECENT_ACTIONS;
+            actionScreens[actionHead] = screen;
+            actionNames[actionHead] = action;
+            actionStarts[actionHead] = System.nanoTime();
+            actionEnds[actionHead] = Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Ends the action started by the last {@link #begin}.
+     */
+    public void end() {
+        if (!enabled) return;
+        synchronized (this) {
+            if (actionHead >= 0) actionEnds[actionHead] = System.nanoTime();
+        }
+    }
+
+    /**
+     * Index of the newest action overlapping [from, to] (nanoTime), or -1. Caller holds the lock.
+     */
+    private int actionDuring(long from, long to) {
+        for (int n = 0; n < RECENT_ACTIONS && actionHead >= 0; n++) {
+            int i = Math.floorMod(actionHead - n, RECENT_ACTIONS);
+            if (actionNames[i] == null) break;
+            boolean startedBefore = actionStarts[i] <= to;
+            boolean endedAfter = actionEnds[i] == Long.MAX_VALUE || actionEnds[i] + ACTION_LINGER_NANOS >= from;
+            if (startedBefore && endedAfter) return i;
+        }
+        return -1;
+    }
+
+    // ===============================
+    // 📌 Recording
+    // ===============================
+
+    // Runs on the frame thread
+    private void onFrame(String screen, FrameMetrics metrics) {
+        long total = metrics.getMetric(FrameMetrics.TOTAL_DURATION);
+        long start = Build.VERSION.SDK_INT >= Build.VERSION_CODES.O
+                ? metrics.getMetric(FrameMetrics.INTENDED_VSYNC_TIMESTAMP)
+                : System.nanoTime() - total;
+        synchronized (this) {
+            int action = actionDuring(start, start + total);
+            histogram(frames, screen, action >= 0 ? actionNames[action] : IDLE).record(total / 1000);
+        }
+    }
+
+    /**
+     * Times main-thread messages through the Looper's dispatch log lines
+     * (">>>>> Dispatching …" / "<<<<< Finished …"), passing every line on to the
+     * printer that was set before. Main thread only.
+     */
+    private void installStallPrinter() {
+        if (stallPrinter != null) return;
+        Printer previous = currentMainLooperPrinter();
+        stallPrinter = line -> {
+            if (previous != null) previous.println(line);
+            if (line.startsWith(">>>>>")) {
+                dispatchStartNanos = System.nanoTime();
+            } else if (line.startsWith("<<<<<") && dispatchStartNanos != 0) {
+                long end = System.nanoTime();
+                long tookMillis = (end - dispatchStartNanos) / 1_000_000;
+                if (tookMillis >= STALL_THRESHOLD_MS) onStall(dispatchStartNanos, end);
+                dispatchStartNanos = 0;
+            }
+        };
+        previousPrinter = previous;
+        Looper.getMainLooper().setMessageLogging(stallPrinter);
+    }
+
+    /**
+     * Puts back the printer installStallPrinter() replaced (null if there was none).
+     */
+    private void removeStallPrinter() {
+        if (stallPrinter == null) return;
+        Looper.getMainLooper().setMessageLogging(previousPrinter);
+        stallPrinter = null;
+        previousPrinter = null;
+        dispatchStartNanos = 0;
+    }
+
+    /**
+     * The main Looper's current printer. Looper has no getter, so this reads its
+     * field; if that is not accessible, another printer cannot be chained (null).
+     */
+    private static Printer currentMainLooperPrinter() {
+        try {
+            Field field = Looper.class.getDeclaredField("mLogging");
+            field.setAccessible(true);
+            return (Printer) field.get(Looper.getMainLooper());
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            Log.w(TAG, "Cannot read the main Looper's printer; it will not be chained", e);
+            return null;
+        }
+    }
+
+    private void onStall(long start, long end) {
+        synchronized (this) {
+            int action = actionDuring(start, end);
+            String screen = action >= 0 ? actionScreens[action] : visibleScreen;
+            String name = action >= 0 ? actionNames[action] : IDLE;
+            if (screen == null) screen = "background";
+            long micros = (end - start) / 1000;
+            histogram(stalls, screen, name).record(micros);
+
+            if (recentStalls.size() == RECENT_STALLS) recentStalls.removeFirst();
+            recentStalls.addLast(timestamp(System.currentTimeMillis()) + "\t" + screen + "\t" + name +
+                    "\t" + formatMillis(micros));
+        }
+        Log.w(TAG, "Main thread stalled for " + (end - start) / 1_000_000 + " ms");
+    }
+
+    private static LatencyHistogram histogram(Map<String, LatencyHistogram> map, String screen, String action) {
+        String key = screen + "\t" + action;
+        LatencyHistogram histogram = map.get(key);
+        if (histogram == null) {
+            histogram = new LatencyHistogram();
+            map.put(key, histogram);
+        }
+        return histogram;
+    }
+
+    // ===============================
+    // 📌 Report
+    // ===============================
+
+    /**
+     * Writes the percentile report (collected since the process started) and
+     * returns its file. Blocking: call off the main thread.
+     */
+    public File writeReport() throws IOException {
+        File dir = appContext.getExternalFilesDir("perf");
+        if (dir == null) dir = new File(appContext.getFilesDir(), "perf");
+        if (!dir.isDirectory() && !dir.mkdirs()) throw new IOException("Could not create " + dir);
+
+        long now = System.currentTimeMillis();
+        String name = "perf-" + new SimpleDateFormat("yyyyMMdd-HHmmss", Locale.US).format(new Date(now)) + ".tsv";
+        File file = new File(dir, name);
+        long budgetMicros = (long) (1_000_000 / refreshRate);
+
+        try (PrintWriter out = new PrintWriter(new FileWriter(file))) {
+            out.println("# Habit Tracker performance report");
+            out.println("# build\t" + buildVersion());
+            out.println("# device\t" + Build.MANUFACTURER + " " + Build.MODEL +
+                    ", Android " + Build.VERSION.RELEASE + " (API " + Build.VERSION.SDK_INT + ")");
+            out.println("# display\t" + Math.round(refreshRate) + " Hz, frame budget " + formatMillis(budgetMicros) + " ms");
+            out.println("# collected\t" + timestamp(collectingSince) + " - " + timestamp(now));
+            out.println("# stalls\t" + (stallTracking
+                    ? "tracked, threshold " + STALL_THRESHOLD_MS + " ms" : "not tracked (opt-in)"));
+            out.println("kind\tscreen\taction\tcount\tmean_ms\tp50_ms\tp90_ms\tp95_ms\tp99_ms\tmax_ms\tover_budget");
+            synchronized (this) {
+                for (Map.Entry<String, LatencyHistogram> e : frames.entrySet()) {
+                    printRow(out, "frame", e.getKey(), e.getValue(), e.getValue().countAbove(budgetMicros));
+                }
+                for (Map.Entry<String, LatencyHistogram> e : stalls.entrySet()) {
+                    printRow(out, "stall", e.getKey(), e.getValue(), e.getValue().count());
+                }
+                out.println();
+                out.println("# recent stalls");
+                out.println("time\tscreen\taction\tms");
+                for (String stall : recentStalls) out.println(stall);
+            }
+        }
+        Log.d(TAG, "Report written to " + file);
+        return file;
+    }
+
+    private static void printRow(PrintWriter out, String kind, String key, LatencyHistogram h, long overBudget) {
+        out.println(kind + "\t" + key + "\t" + h.count() +
+                "\t" + formatMillis(h.meanMicros()) +
+                "\t" + formatMillis(h.percentileMicros(50)) +
+                "\t" + formatMillis(h.percentileMicros(90)) +
+                "\t" + formatMillis(h.percentileMicros(95)) +
+                "\t" + formatMillis(h.percentileMicros(99)) +
+                "\t" + formatMillis(h.maxMicros()) +
+                "\t" + overBudget);
+    }
+
+    @SuppressWarnings("deprecation") // versionCode before API 28
+    private String buildVersion() {
+        try {
+            PackageInfo info = appContext.getPackageManager().getPackageInfo(appContext.getPackageName(), 0);
+            long code = Build.VERSION.SDK_INT >= Build.VERSION_CODES.P ? info.getLongVersionCode() : info.versionCode;
+            return info.versionName + " (" + code + ")";
+        } catch (PackageManager.NameNotFoundException e) {
+            return "unknown";
+        }
+    }
+
+    private static String formatMillis(long micros) {
+        return String.format(Locale.US, "%.1f", micros / 1000.0);
+    }
+
+    private static String timestamp(long millis) {
+        return new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.US).format(new Date(millis));
+    }
+
+    private SharedPreferences prefs() {
+        return appContext.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+    }
+}
@@ -7,16 +7,18 @@ import android.widget.ProgressBar;
 import android.widget.TextView;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 import androidx.appcompat.app.AppCompatActivity;
-import java.util.List;
+import java.text.DateFormatSymbols;
+import java.util.Calendar;
 
 
 public class ProgressActivity extends AppCompatActivity {
 
     // UI components to display habit progress
-    private TextView txtTotalHabits, txtCompletedHabits, txtCompletionPercent, txtMotivation;
+    private TextView txtTotalHabits, txtCompletedHabits, txtCompletionPercent, txtMotivation, txtStats;
     private ProgressBar progressBarCompletion;
     private HabitDatabaseHelper dbHelper; // Database helper to fetch habit data
     private FloatingActionButton fabLogoutProgress; // Logout button
+    private PerformanceMonitor perfMonitor; // Frame/stall attribution for this screen
 
     @SuppressLint("MissingInflatedId")
     @Override
@@ -29,14 +31,18 @@ public class ProgressActivity extends AppCompatActivity {
         txtCompletedHabits = findViewById(R.id.txtCompletedHabits);
         txtCompletionPercent = findViewById(R.id.txtCompletionPercent);
         txtMotivation = findViewById(R.id.txtMotivation);
+        txtStats = findViewById(R.id.txtStats);
         progressBarCompletion = findViewById(R.id.progressBarCompletion);
         fabLogoutProgress = findViewById(R.id.fabLogoutProgress);
 
         // Initialize database helper
         dbHelper = new HabitDatabaseHelper(this);
+        perfMonitor = PerformanceMonitor.getInstance(this);
 
         // Load habit progress data and update UI
+        perfMonitor.begin(PerformanceMonitor.SCREEN_PROGRESS, PerformanceMonitor.ACTION_FIRST_LOAD);
         loadProgress();
+        perfMonitor.end();
 
         // Logout functionality: Clears the current task and returns to LoginActivity
         fabLogoutProgress.setOnClickListener(v -> {
@@ -47,16 +53,29 @@ public class ProgressActivity extends AppCompatActivity {
         });
     }
 
+    @Override
+    protected void onResume() {
+        super.onResume();
+        perfMonitor.attach(this, PerformanceMonitor.SCREEN_PROGRESS);
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        perfMonitor.detach(this);
+    }
+
     // Method to fetch habit data, calculate progress, and update UI
     @SuppressLint("SetTextI18n")
     private void loadProgress() {
-        List<Habit> habits = dbHelper.getAllHabits(); // Fetch all habits
-        int total = habits.size(); // Total number of habits
-        int completed = 0; // Counter for completed habits
+        HabitSnapshot habits = dbHelper.loadHabitSnapshot(); // Fetch all habits (columnar)
 
-        // Count completed habits
-        for (Habit habit : habits) {
-            if (habit.isCompleted()) completed++;
+        // Only habits whose schedule falls on today are counted
+        SparseBitSet due = dbHelper.dueRows(habits, DayMath.today());
+        int total = due.cardinality(); // Number of habits due today
+        int completed = 0; // Counter for completed habits among them
+        for (int row = due.nextSetBit(0); row >= 0; row = due.nextSetBit(row + 1)) {
+            if (habits.isCompletedAt(row)) completed++;
         }
 
         // Calculate completion percentage
@@ -78,5 +97,56 @@ public class ProgressActivity extends AppCompatActivity {
         } else {
             txtMotivation.setText("Excellent! All habits completed! 🎉");
         }
+
+        loadStatistics(habits);
+    }
+
+    // Computes per-habit statistics off the UI thread (cached until completions change)
+    private void loadStatistics(HabitSnapshot habits) {
+        String username = getSharedPreferences("UserPrefs", MODE_PRIVATE).getString("username", "");
+        int today = DayMath.today();
+        int firstDay = today - HabitStatsEngine.WINDOW_DAYS + 1;
+
+        new Thread(() -> {
+            HabitStats stats = HabitStatsEngine.getInstance().get(username, today,
+                    () -> dbHelper.loadHistoryColumns(firstDay, today));
+            runOnUiThread(() -> {
+                if (!isDestroyed()) showStatistics(stats, habits);
+            });
+        }, "ProgressStats").start();
+    }
+
+    // Summarizes the per-habit columns: average rates, best streak, most common best day, average trend
+    private void showStatistics(HabitStats stats, HabitSnapshot habits) {
+        int n = stats.size();
+        int best = -1;
+        int[] weekdayVotes = new int[7];
+        float[] rateSums = new float[HabitStats.RATE_WINDOWS.length];
+        float trendSum = 0;
+        for (int i = 0; i < n; i++) {
+            for (int w = 0; w < rateSums.length; w++) rateSums[w] += stats.rates[w][i];
+            if (best == -1 || stats.longestStreak[i] > stats.longestStreak[best]) best = i;
+            if (stats.bestWeekday[i] != HabitStats.NO_WEEKDAY) weekdayVotes[stats.bestWeekday[i]]++;
+            trendSum += stats.trendSlope[i];
+        }
+        if (best == -1 || stats.longestStreak[best] == 0) {
+            txtStats.setText(R.string.stats_empty);
+            return;
+        }
+
+        int bestRow = habits.indexOf(stats.habitIds[best]);
+        String bestName = bestRow >= 0 ? habits.nameAt(bestRow) : "";
+        int bestDay = 0;
+        for (int d = 1; d < 7; d++) {
+            if (weekdayVotes[d] > weekdayVotes[bestDay]) bestDay = d;
+        }
+        // DayMath counts Monday = 0, Calendar counts Sunday = 1
+        String dayName = new DateFormatSymbols().getWeekdays()[(bestDay + 1) % 7 + Calendar.SUNDAY];
+
+        txtStats.setText(getString(R.string.stats_summary,
+                Math.round(rateSums[0] * 100 / n),
+                Math.round(rateSums[1] * 100 / n),
+                Math.round(rateSums[2] * 100 / n),
+                stats.longestStreak[best], bestName, dayName, trendSum / n));
     }
 }
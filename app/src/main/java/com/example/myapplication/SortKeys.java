@@ -0,0 +1,55 @@
+package com.example.myapplication;
+
+/**
+ * SortKeys:
+ * ---------
+ * Fractional sort keys for the user-defined habit order. Moving a habit only
+ * gives it a new key strictly between its new neighbours' keys, so a move is a
+ * single-row write no matter how many habits follow it.
+ *
+ * Repeated moves into the same gap halve it each time; once neighbouring keys
+ * get closer than {@link #MIN_GAP} the list is renumbered in the background
+ * (DatabaseMaintenance), or immediately if no key fits between them at all.
+ * Plain Java.
+ */
+public final class SortKeys {
+
+    // Spacing between keys for appended habits and after a rebalance
+    public static final double STEP = 1.0;
+
+    // Neighbouring keys closer than this trigger a background rebalance
+    public static final double MIN_GAP = 1e-6;
+
+    private SortKeys() {}
+
+    /**
+     * A key strictly between before and after. Either bound may be NaN, meaning
+     * "no neighbour on that side". Returns NaN when no double fits in between.
+     */
+    public static double between(double before, double after) {
+        if (Double.isNaN(before) && Double.isNaN(after)) return STEP;
+        if (Double.isNaN(before)) return after - STEP;
+        if (Double.isNaN(after)) return before + STEP;
+
+        double key = before + (after - before) / 2;
+        return key > before && key < after ? key : Double.NaN;
+    }
+
+    /**
+     * Key for the habit at position index after a rebalance.
+     */
+    public static double at(int index) {
+        return (index + 1) * STEP;
+    }
+
+    /**
+     * Smallest gap between consecutive keys of an ascending array (infinity if fewer than two).
+     */
+    public static double minGap(double[] sortedKeys, int count) {
+        double gap = Double.POSITIVE_INFINITY;
+        for (int i = 1; i < count; i++) {
+            gap = Math.min(gap, sortedKeys[i] - sortedKeys[i - 1]);
+        }
+        return gap;
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.myapplication;
+
+import java.util.Arrays;
+
+/**
+ * SparseBitSet:
+ * -------------
+ * Compressed bitset that stores only its non-zero 64-bit words, as two
+ * parallel sorted arrays (word index → word). Tags cover small, scattered
+ * subsets of a user's habits, so most words of a plain bitset would be zero.
+ * AND / OR merge the word indexes and combine matching words, touching only
+ * non-empty words. Plain Java.
+ */
+public final class SparseBitSet {
+
+    private int[] keys;     // ascending word indexes
+    private long[] words;   // words[i] holds bits keys[i] * 64 … keys[i] * 64 + 63
+    private int size;       // number of stored words
+
+    public SparseBitSet() {
+        this(new int[4], new long[4], 0);
+    }
+
+    private SparseBitSet(int[] keys, long[] words, int size) {
+        this.keys = keys;
+        this.words = words;
+        this.size = size;
+    }
+
+    /**
+     * Sets one bit (any order; appending in ascending order is cheapest).
+     */
+    public void set(int position) {
+        int key = position >>> 6;
+        long bit = 1L << (position & 63);
+        if (size > 0 && keys[size - 1] == key) {
+            words[size - 1] |= bit;
+            return;
+        }
+        int index = size > 0 && keys[size - 1] < key ? -(size + 1) : Arrays.binarySearch(keys, 0, size, key);
+        if (index >= 0) {
+            words[index] |= bit;
+            return;
+        }
+        index = -(index + 1);
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            words = Arrays.copyOf(words, size * 2);
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(words, index, words, index + 1, size - index);
+        keys[index] = key;
+        words[index] = bit;
+        size++;
+    }
+
+    public boolean get(int position) {
+        int index = Arrays.binarySearch(keys, 0, size, position >>> 6);
+        return index >= 0 && (words[index] & (1L << (position & 63))) != 0;
+    }
+
+    /**
+     * First set bit at or after from, or -1.
+     */
+    public int nextSetBit(int from) {
+        int key = from >>> 6;
+        int index = Arrays.binarySearch(keys, 0, size, key);
+        if (index >= 0) {
+            long word = words[index] & (-1L << (from & 63));
+            if (word != 0) return (key << 6) + Long.numberOfTrailingZeros(word);
+            index++;
+        } else {
+            index = -(index + 1);
+        }
+        return index < size ? (keys[index] << 6) + Long.numberOfTrailingZeros(words[index]) : -1;
+    }
+
+    public int cardinality() {
+        int count = 0;
+        for (int i = 0; i < size; i++) count += Long.bitCount(words[i]);
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Copy with positions renumbered for a list in which the item at from moved
+     * to to (the items in between shift by one), as after HabitSnapshot.moved.
+     */
+    public SparseBitSet moved(int from, int to) {
+        SparseBitSet result = new SparseBitSet();
+        for (int p = nextSetBit(0); p >= 0; p = nextSetBit(p + 1)) {
+            int q = p;
+            if (p == from) q = to;
+            else if (from < to && p > from && p <= to) q = p - 1;
+            else if (from > to && p >= to && p < from) q = p + 1;
+            result.set(q);
+        }
+        return result;
+    }
+
+    // ===============================
+    // 📌 Set operations (return new sets)
+    // ===============================
+
+    public SparseBitSet and(SparseBitSet other) {
+        int capacity = Math.max(1, Math.min(size, other.size));
+        int[] resultKeys = new int[capacity];
+        long[] resultWords = new long[capacity];
+        int n = 0;
+        int i = 0;
+        int j = 0;
+        while (i < size && j < other.size) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                long word = words[i] & other.words[j];
+                if (word != 0) {
+                    resultKeys[n] = keys[i];
+                    resultWords[n++] = word;
+                }
+                i++;
+                j++;
+            }
+        }
+        return new SparseBitSet(resultKeys, resultWords, n);
+    }
+
+    public SparseBitSet or(SparseBitSet other) {
+        int capacity = Math.max(1, size + other.size);
+        int[] resultKeys = new int[capacity];
+        long[] resultWords = new long[capacity];
+        int n = 0;
+        int i = 0;
+        int j = 0;
+        while (i < size || j < other.size) {
+            if (j >= other.size || (i < size && keys[i] < other.keys[j])) {
+                resultKeys[n] = keys[i];
+                resultWords[n++] = words[i++];
+            } else if (i >= size || keys[i] > other.keys[j]) {
+                resultKeys[n] = other.keys[j];
+                resultWords[n++] = other.words[j++];
+            } else {
+                resultKeys[n] = keys[i];
+                resultWords[n++] = words[i++] | other.words[j++];
+            }
+        }
+        return new SparseBitSet(resultKeys, resultWords, n);
+    }
+}
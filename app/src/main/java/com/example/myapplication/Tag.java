@@ -0,0 +1,62 @@
+package com.example.myapplication;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Model class representing a habit Tag.
+ * Unlike categories (one per habit), a habit can carry any number of tags;
+ * the links live in the habit_tags table. Tags are per user and unique by name,
+ * ignoring case ("Morning" and "morning" are one tag, shown as first entered).
+ */
+public class Tag {
+
+    private final int id;           // Primary key in the tags table
+    private final String name;      // Display name (e.g., "morning")
+
+    public Tag(int id, String name) {
+        this.id = id;
+        this.name = name;
+    }
+
+    public int getId() { return id; }
+    public String getName() { return name; }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    /**
+     * Splits the comma-separated tag field of the add/edit screens into names
+     * (trimmed, blanks and case-insensitive duplicates dropped).
+     */
+    public static List<String> parseNames(String text) {
+        List<String> names = new ArrayList<>();
+        for (String part : text.split(",")) {
+            String name = part.trim();
+            if (name.isEmpty()) continue;
+            boolean duplicate = false;
+            for (String existing : names) {
+                if (existing.equalsIgnoreCase(name)) {
+                    duplicate = true;
+                    break;
+                }
+            }
+            if (!duplicate) names.add(name);
+        }
+        return names;
+    }
+
+    /**
+     * Inverse of {@link #parseNames(String)}, for pre-filling the tag field.
+     */
+    public static String joinNames(List<String> names) {
+        StringBuilder text = new StringBuilder();
+        for (String name : names) {
+            if (text.length() > 0) text.append(", ");
+            text.append(name);
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.myapplication;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * TagBitmapIndex:
+ * ---------------
+ * In-memory index from tag id to the positions (rows of the dashboard's
+ * HabitSnapshot) of the habits carrying that tag, one SparseBitSet per tag.
+ * A multi-tag filter is answered by AND-ing (match all) or OR-ing (match any)
+ * those bitsets, and the result is walked in list order, so no habit's tags
+ * are ever compared one by one. Rebuilt whenever the snapshot changes.
+ * Plain Java.
+ */
+public final class TagBitmapIndex {
+
+    private final HabitSnapshot habits;
+    private final Map<Integer, SparseBitSet> byTag = new HashMap<>();
+
+    /**
+     * Starts an index over the snapshot's rows.
+     */
+    public TagBitmapIndex(HabitSnapshot habits) {
+        this.habits = habits;
+    }
+
+    /**
+     * The same links over moved, a copy of this index's snapshot with the row at
+     * from moved to to (HabitSnapshot.moved): every bitset is renumbered in memory.
+     */
+    public TagBitmapIndex moved(HabitSnapshot moved, int from, int to) {
+        TagBitmapIndex index = new TagBitmapIndex(moved);
+        for (Map.Entry<Integer, SparseBitSet> e : byTag.entrySet()) {
+            index.byTag.put(e.getKey(), e.getValue().moved(from, to));
+        }
+        return index;
+    }
+
+    /**
+     * Records that a habit carries a tag. Links to habits not in the snapshot are ignored.
+     */
+    public void addLink(int habitId, int tagId) {
+        int position = habits.indexOf(habitId);
+        if (position < 0) return;
+        SparseBitSet bits = byTag.get(tagId);
+        if (bits == null) {
+            bits = new SparseBitSet();
+            byTag.put(tagId, bits);
+        }
+        bits.set(position);
+    }
+
+    /**
+     * Number of listed habits carrying the tag.
+     */
+    public int count(int tagId) {
+        SparseBitSet bits = byTag.get(tagId);
+        return bits == null ? 0 : bits.cardinality();
+    }
+
+    /**
+     * Positions of the habits matching all (matchAll) or any of the tags,
+     * or null when no tag is selected (i.e. no tag filter applies).
+     */
+    public SparseBitSet query(List<Integer> tagIds, boolean matchAll) {
+        if (tagIds.isEmpty()) return null;
+        SparseBitSet result = null;
+        for (int tagId : tagIds) {
+            SparseBitSet bits = byTag.get(tagId);
+            if (bits == null) bits = new SparseBitSet();
+            if (result == null) {
+                result = bits;
+            } else {
+                result = matchAll ? result.and(bits) : result.or(bits);
+            }
+            if (matchAll && result.isEmpty()) break;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.myapplication;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * CompletionBitmapTest:
+ * ---------------------
+ * Blob encoding (trimmed, copy-on-write) and the word-level count / run
+ * computations, including runs that cross 64-bit word boundaries.
+ */
+public class CompletionBitmapTest {
+
+    @Test
+    public void setAppendsAndClearTrims() {
+        byte[] days = CompletionBitmap.set(null, 365, true);
+        assertEquals(46, days.length);
+        assertTrue(CompletionBitmap.isSet(days, 365));
+
+        byte[] more = CompletionBitmap.set(days, 3, true);
+        assertFalse("input was modified", CompletionBitmap.isSet(days, 3));
+        assertTrue(CompletionBitmap.isSet(more, 3));
+        assertEquals(more, CompletionBitmap.set(more, 3, true));   // already set: same array
+
+        byte[] cleared = CompletionBitmap.set(more, 365, false);
+        assertArrayEquals(new byte[]{0x08}, cleared);
+        assertEquals(0, CompletionBitmap.set(cleared, 3, false).length);
+    }
+
+    @Test
+    public void countRespectsInclusiveBoundsAcrossWords() {
+        long[] words = decode(range(null, 0, 99));
+
+        assertEquals(100, CompletionBitmap.count(words, 0, 365));
+        assertEquals(11, CompletionBitmap.count(words, 60, 70));
+        assertEquals(2, CompletionBitmap.count(words, 63, 64));
+        assertEquals(1, CompletionBitmap.count(words, 99, 99));
+        assertEquals(0, CompletionBitmap.count(words, 100, 365));
+        assertEquals(0, CompletionBitmap.count(words, 5, 4));
+    }
+
+    @Test
+    public void runEndingAtCountsBackAcrossWords() {
+        long[] words = decode(range(null, 50, 130));
+
+        assertEquals(81, CompletionBitmap.runEndingAt(words, 130));
+        assertEquals(15, CompletionBitmap.runEndingAt(words, 64));
+        assertEquals(0, CompletionBitmap.runEndingAt(words, 49));
+        assertEquals(0, CompletionBitmap.runEndingAt(words, 131));
+
+        // A run reaching Jan 1st is dayOfYear + 1 long: the caller continues in the previous year
+        long[] fromStart = decode(range(null, 0, 10));
+        assertEquals(11, CompletionBitmap.runEndingAt(fromStart, 10));
+    }
+
+    @Test
+    public void longestRunFindsRunsInsideAndAcrossWords() {
+        byte[] days = range(null, 3, 5);
+        days = range(days, 60, 200);     // spans words 0 to 3
+        days = range(days, 300, 310);
+        assertEquals(141, CompletionBitmap.longestRun(decode(days)));
+
+        assertEquals(3, CompletionBitmap.longestRun(decode(range(null, 3, 5))));
+        assertEquals(366, CompletionBitmap.longestRun(decode(range(null, 0, 365))));
+        assertEquals(0, CompletionBitmap.longestRun(decode(null)));
+    }
+
+    private static byte[] range(byte[] days, int from, int to) {
+        for (int d = from; d <= to; d++) days = CompletionBitmap.set(days, d, true);
+        return days;
+    }
+
+    private static long[] decode(byte[] days) {
+        long[] words = new long[CompletionBitmap.WORDS];
+        CompletionBitmap.decodeInto(days, words);
+        return words;
+    }
+}
@@ -0,0 +1,218 @@
+package com.example.myapplication;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.File;
+import java.util.Random;
+
+/**
+ * CompletionHistoryTest:
+ * ----------------------
+ * Completion history stored as one CompletionBitmap blob per habit-year:
+ *   - getCurrentStreak / countCompletedDays read the blobs correctly, across years;
+ *   - the benchmark behind the storage choice, kept reproducible: the same seeded
+ *     history (HABITS × YEARS at ~70% completion) stored row-per-event with a
+ *     (habit_id, day) index and as bitmap blobs. The size ratio is asserted, the
+ *     scan times are only printed (they depend on the machine running the tests).
+ */
+@RunWith(RobolectricTestRunner.class)
+public class CompletionHistoryTest {
+
+    // Benchmark dataset: fixed seed, so every run stores exactly the same events
+    private static final int HABITS = 200;
+    private static final int YEARS = 3;
+    private static final int FIRST_YEAR = 2022;
+    private static final double COMPLETION_RATE = 0.7;
+    private static final long SEED = 34;
+
+    private Context context;
+    private HabitDatabaseHelper dbHelper;
+
+    @Before
+    public void setUp() {
+        context = RuntimeEnvironment.getApplication();
+        context.getSharedPreferences("UserPrefs", Context.MODE_PRIVATE)
+                .edit().putString("username", "tester").commit();
+        dbHelper = new HabitDatabaseHelper(context);
+    }
+
+    // ===============================
+    // 📌 Reading history through the helper
+    // ===============================
+
+    @Test
+    public void streakFollowsTheRunBackAcrossYears() {
+        int habitId = (int) dbHelper.addHabit(new Habit("Read", "Daily", "", "General", false));
+        int today = DayMath.today();
+        // 400 days ending today: the run always spans at least one New Year
+        storeCompleted(habitId, today - 399, today);
+
+        assertEquals(400, dbHelper.getCurrentStreak(habitId));
+        assertEquals(31, dbHelper.countCompletedDays(habitId, today - 30, today));
+        assertEquals(400, dbHelper.countCompletedDays(habitId, today - 1000, today));
+    }
+
+    @Test
+    public void openTodayKeepsYesterdaysStreakAndAGapEndsIt() {
+        int habitId = (int) dbHelper.addHabit(new Habit("Walk", "Daily", "", "General", false));
+        int today = DayMath.today();
+        storeCompleted(habitId, today - 20, today - 12);   // older run, not counted
+        storeCompleted(habitId, today - 10, today - 1);    // today not done yet
+
+        assertEquals(10, dbHelper.getCurrentStreak(habitId));
+        assertEquals(19, dbHelper.countCompletedDays(habitId, today - 30, today));
+    }
+
+    // ===============================
+    // 📌 Storage benchmark
+    // ===============================
+
+    @Test
+    public void bitmapBlobsAreSmallerThanRowPerEvent() {
+        // Same events in both layouts
+        boolean[][] done = new boolean[HABITS][YEARS * 366];
+        Random random = new Random(SEED);
+        int events = 0;
+        for (int h = 0; h < HABITS; h++) {
+            for (int d = 0; d < done[h].length; d++) {
+                done[h][d] = random.nextDouble() < COMPLETION_RATE;
+                if (done[h][d] && d % 366 < daysInYear(FIRST_YEAR + d / 366)) events++;
+            }
+        }
+
+        SQLiteDatabase rows = openScratch("history_rows.db");
+        rows.execSQL("CREATE TABLE history_events (habit_id INTEGER NOT NULL, day INTEGER NOT NULL)");
+        rows.execSQL("CREATE UNIQUE INDEX idx_history_events ON history_events(habit_id, day)");
+        SQLiteDatabase blobs = openScratch("history_blobs.db");
+        blobs.execSQL("CREATE TABLE completion_history (habit_id INTEGER NOT NULL, year INTEGER NOT NULL," +
+                " days BLOB NOT NULL, PRIMARY KEY(habit_id, year)) WITHOUT ROWID");
+
+        rows.beginTransaction();
+        blobs.beginTransaction();
+        SQLiteStatement event = rows.compileStatement("INSERT INTO history_events (habit_id, day) VALUES (?, ?)");
+        SQLiteStatement year = blobs.compileStatement("INSERT INTO completion_history (habit_id, year, days) VALUES (?, ?, ?)");
+        for (int h = 0; h < HABITS; h++) {
+            for (int y = 0; y < YEARS; y++) {
+                int firstDay = DayMath.epochDay(FIRST_YEAR + y, 1, 1);
+                byte[] days = null;
+                for (int d = 0; d < daysInYear(FIRST_YEAR + y); d++) {
+                    if (!done[h][y * 366 + d]) continue;
+                    event.bindLong(1, h + 1);
+                    event.bindLong(2, firstDay + d);
+                    event.executeInsert();
+                    days = CompletionBitmap.set(days, d, true);
+                }
+                year.bindLong(1, h + 1);
+                year.bindLong(2, FIRST_YEAR + y);
+                year.bindBlob(3, days);
+                year.executeInsert();
+            }
+        }
+        event.close();
+        year.close();
+        rows.setTransactionSuccessful();
+        rows.endTransaction();
+        blobs.setTransactionSuccessful();
+        blobs.endTransaction();
+
+        long rowBytes = vacuumedSize(rows);
+        long blobBytes = vacuumedSize(blobs);
+        long rowScan = timeScan(rows, "SELECT habit_id, day FROM history_events");
+        long blobScan = timeScan(blobs, "SELECT habit_id, year, days FROM completion_history");
+
+        // Both layouts hold the same events
+        assertEquals(events, rows.compileStatement("SELECT COUNT(*) FROM history_events").simpleQueryForLong());
+        assertEquals(events, countBits(blobs));
+
+        System.out.println("CompletionHistoryTest: " + events + " events, row-per-event " + rowBytes
+                + " bytes / scan " + rowScan + " µs, bitmap " + blobBytes + " bytes / scan " + blobScan + " µs");
+        assertTrue("bitmap layout is not much smaller: " + blobBytes + " vs " + rowBytes,
+                blobBytes * 20 < rowBytes);
+        rows.close();
+        blobs.close();
+    }
+
+    // ===============================
+    // 📌 Helpers
+    // ===============================
+
+    /**
+     * Marks every day in [fromDay, toDay] as completed, one blob per year.
+     */
+    private void storeCompleted(int habitId, int fromDay, int toDay) {
+        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        for (int y = DayMath.year(fromDay); y <= DayMath.year(toDay); y++) {
+            byte[] days = readDays(db, habitId, y);
+            int first = Math.max(fromDay, DayMath.epochDay(y, 1, 1));
+            int last = Math.min(toDay, DayMath.epochDay(y, 12, 31));
+            for (int day = first; day <= last; day++) {
+                days = CompletionBitmap.set(days, DayMath.dayOfYear(day), true);
+            }
+            ContentValues values = new ContentValues();
+            values.put("habit_id", habitId);
+            values.put("year", y);
+            values.put("days", days);
+            db.insertWithOnConflict("completion_history", null, values, SQLiteDatabase.CONFLICT_REPLACE);
+        }
+    }
+
+    private static byte[] readDays(SQLiteDatabase db, int habitId, int year) {
+        Cursor cursor = db.rawQuery("SELECT days FROM completion_history WHERE habit_id=? AND year=?",
+                new String[]{String.valueOf(habitId), String.valueOf(year)});
+        byte[] days = cursor.moveToFirst() ? cursor.getBlob(0) : null;
+        cursor.close();
+        return days;
+    }
+
+    private SQLiteDatabase openScratch(String name) {
+        File file = context.getDatabasePath(name);
+        file.getParentFile().mkdirs();
+        file.delete();
+        return SQLiteDatabase.openOrCreateDatabase(file, null);
+    }
+
+    private static long vacuumedSize(SQLiteDatabase db) {
+        db.execSQL("VACUUM");
+        return db.compileStatement("PRAGMA page_count").simpleQueryForLong()
+                * db.compileStatement("PRAGMA page_size").simpleQueryForLong();
+    }
+
+    private static long timeScan(SQLiteDatabase db, String sql) {
+        long start = System.nanoTime();
+        Cursor cursor = db.rawQuery(sql, null);
+        while (cursor.moveToNext()) {
+            cursor.getLong(0);   // force every row to be produced
+        }
+        cursor.close();
+        return (System.nanoTime() - start) / 1_000;
+    }
+
+    private static long countBits(SQLiteDatabase db) {
+        long[] words = new long[CompletionBitmap.WORDS];
+        long total = 0;
+        Cursor cursor = db.rawQuery("SELECT days FROM completion_history", null);
+        while (cursor.moveToNext()) {
+            CompletionBitmap.decodeInto(cursor.getBlob(0), words);
+            total += CompletionBitmap.count(words, 0, 365);
+        }
+        cursor.close();
+        return total;
+    }
+
+    private static int daysInYear(int year) {
+        return DayMath.epochDay(year + 1, 1, 1) - DayMath.epochDay(year, 1, 1);
+    }
+}
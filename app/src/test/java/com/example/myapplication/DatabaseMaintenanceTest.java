@@ -0,0 +1,37 @@
+package com.example.myapplication;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * DatabaseMaintenanceTest:
+ * ------------------------
+ * Unit sizing: a slow unit shrinks the next one right away, a fast one grows it
+ * at most twofold, and sizes stay within their bounds.
+ */
+public class DatabaseMaintenanceTest {
+
+    private static final long TARGET = DatabaseMaintenance.MAX_BLOCKING_MILLIS / 2;
+
+    @Test
+    public void slowUnitShrinksProportionally() {
+        // Took twice the target → half the size
+        assertEquals(50, DatabaseMaintenance.nextUnitSize(100, 2 * TARGET, 10, 1000));
+        // Over the blocking limit → well under it next time
+        assertEquals(25, DatabaseMaintenance.nextUnitSize(100, 4 * TARGET, 10, 1000));
+    }
+
+    @Test
+    public void fastUnitGrowsAtMostTwofold() {
+        assertEquals(200, DatabaseMaintenance.nextUnitSize(100, 1, 10, 1000));
+        assertEquals(200, DatabaseMaintenance.nextUnitSize(100, 0, 10, 1000));
+        assertEquals(100, DatabaseMaintenance.nextUnitSize(100, TARGET, 10, 1000));
+    }
+
+    @Test
+    public void sizeStaysWithinBounds() {
+        assertEquals(10, DatabaseMaintenance.nextUnitSize(10, 100 * TARGET, 10, 1000));
+        assertEquals(1000, DatabaseMaintenance.nextUnitSize(800, 1, 10, 1000));
+    }
+}
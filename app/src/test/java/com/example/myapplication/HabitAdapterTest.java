@@ -0,0 +1,176 @@
+package com.example.myapplication;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.util.SparseArray;
+import android.view.View;
+
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * HabitAdapterTest:
+ * -----------------
+ * Binding rows (first bind, recycled holders, full rebinds) only pushes state
+ * into the views; the database is written only when the user toggles a checkbox.
+ * A warm rebind of recycled holders allocates nothing, measured with the JVM's
+ * per-thread allocation counter.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class HabitAdapterTest {
+
+    private static final int HABITS = 60;   // several screens, so scrolling recycles holders
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 1920;
+    private static final int WARM_UP_PASSES = 3;   // class loading and first-call linking
+
+    private Context context;
+    private HabitDatabaseHelper dbHelper;
+    private HabitSnapshot snapshot;
+    private HabitAdapter adapter;
+    private RecyclerView recyclerView;
+
+    @Before
+    public void setUp() {
+        context = RuntimeEnvironment.getApplication();
+        context.getSharedPreferences("UserPrefs", Context.MODE_PRIVATE)
+                .edit().putString("username", "tester").commit();
+        dbHelper = new HabitDatabaseHelper(context);
+        for (int i = 0; i < HABITS; i++) {
+            // Alternate completed / not completed, so a recycled holder always changes state
+            dbHelper.addHabit(new Habit("Habit " + i, "Daily", "", "General", i % 2 == 0));
+        }
+        snapshot = dbHelper.loadHabitSnapshot();
+
+        adapter = new HabitAdapter(context, new SparseArray<>());
+        adapter.setRows(snapshot, allRows(), snapshot.size());
+        recyclerView = new RecyclerView(context);
+        recyclerView.setLayoutManager(new LinearLayoutManager(context));
+        recyclerView.setAdapter(adapter);
+        layout();
+    }
+
+    @Test
+    public void recycledBindsNeverWriteToTheDatabase() {
+        long generation = HabitDatabaseHelper.dataGeneration();
+
+        // Scroll to the end and back: holders are recycled and rebound with the opposite state
+        for (int i = 0; i < 2 * HABITS; i++) {
+            recyclerView.scrollBy(0, i < HABITS ? HEIGHT / 4 : -HEIGHT / 4);
+            layout();
+        }
+        // Full rebind of every attached holder
+        adapter.setRows(snapshot, allRows(), snapshot.size());
+        layout();
+
+        assertEquals("bind wrote to the database", generation, HabitDatabaseHelper.dataGeneration());
+        HabitSnapshot stored = dbHelper.loadHabitSnapshot();
+        for (int row = 0; row < stored.size(); row++) {
+            assertEquals(stored.nameAt(row), row % 2 == 0, stored.isCompletedAt(row));
+        }
+    }
+
+    @Test
+    public void boundCheckboxesShowTheirOwnRow() {
+        recyclerView.scrollBy(0, HEIGHT);
+        layout();
+
+        assertTrue(recyclerView.getChildCount() > 0);
+        for (int i = 0; i < recyclerView.getChildCount(); i++) {
+            View child = recyclerView.getChildAt(i);
+            HabitAdapter.HabitViewHolder holder =
+                    (HabitAdapter.HabitViewHolder) recyclerView.getChildViewHolder(child);
+            int row = adapter.rowAt(holder.getBindingAdapterPosition());
+            assertEquals(snapshot.nameAt(row), snapshot.isCompletedAt(row), holder.chkCompleted.isChecked());
+        }
+    }
+
+    @Test
+    public void userToggleWritesOnce() {
+        HabitAdapter.HabitViewHolder holder =
+                (HabitAdapter.HabitViewHolder) recyclerView.findViewHolderForAdapterPosition(1);
+        long generation = HabitDatabaseHelper.dataGeneration();
+
+        holder.chkCompleted.performClick();   // row 1 starts not completed
+        layout();
+
+        assertEquals(generation + 1, HabitDatabaseHelper.dataGeneration());
+        assertTrue(dbHelper.getHabit(snapshot.idAt(1)).isCompleted());
+    }
+
+    @Test
+    public void warmRebindsOfRecycledHoldersAllocateNothing() {
+        // Every third habit gets a photo whose row-size thumbnail is already in the memory
+        // cache. Photo rows whose thumbnail is not cached are left out on purpose: their bind
+        // shows the category icon and starts a background decode, which allocates by design.
+        HabitImageLoader imageLoader = HabitImageLoader.getInstance(context);
+        int thumbSize = context.getResources().getDimensionPixelSize(R.dimen.habit_thumb_size);
+        for (int row = 0; row < snapshot.size(); row += 3) {
+            String imageName = "photo_" + row + ".jpg";
+            dbHelper.setHabitImage(snapshot.idAt(row), imageName);
+            imageLoader.putThumbnail(HabitImageLoader.cacheKey(imageName, thumbSize),
+                    Bitmap.createBitmap(thumbSize, thumbSize, Bitmap.Config.ARGB_8888));
+        }
+        snapshot = dbHelper.loadHabitSnapshot();
+        adapter.setRows(snapshot, allRows(), snapshot.size());
+        layout();
+
+        // Warm-up: scroll to the end and back, so every attached holder has been recycled,
+        // then rebind each one to its row a few times
+        for (int i = 0; i < 2 * HABITS; i++) {
+            recyclerView.scrollBy(0, i < HABITS ? HEIGHT / 4 : -HEIGHT / 4);
+            layout();
+        }
+        int count = recyclerView.getChildCount();
+        HabitAdapter.HabitViewHolder[] holders = new HabitAdapter.HabitViewHolder[count];
+        int[] positions = new int[count];
+        int photos = 0;
+        for (int i = 0; i < count; i++) {
+            holders[i] = (HabitAdapter.HabitViewHolder) recyclerView.getChildViewHolder(recyclerView.getChildAt(i));
+            positions[i] = holders[i].getBindingAdapterPosition();
+            if (snapshot.imageNameAt(adapter.rowAt(positions[i])) != null) photos++;
+        }
+        assertTrue("no photo rows on screen", photos > 0);
+        for (int pass = 0; pass < WARM_UP_PASSES; pass++) {
+            for (int i = 0; i < count; i++) adapter.onBindViewHolder(holders[i], positions[i]);
+        }
+
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+        long thread = Thread.currentThread().getId();
+        long start = threads.getThreadAllocatedBytes(thread);
+        long probe = threads.getThreadAllocatedBytes(thread) - start;   // what reading the counter costs
+        start = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < count; i++) adapter.onBindViewHolder(holders[i], positions[i]);
+        long allocated = threads.getThreadAllocatedBytes(thread) - start - probe;
+
+        assertEquals("bytes allocated by " + count + " warm rebinds", 0, allocated);
+    }
+
+    private int[] allRows() {
+        int[] rows = new int[snapshot.size()];
+        for (int i = 0; i < rows.length; i++) rows[i] = i;
+        return rows;
+    }
+
+    private void layout() {
+        recyclerView.measure(
+                View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        recyclerView.layout(0, 0, WIDTH, HEIGHT);
+    }
+}
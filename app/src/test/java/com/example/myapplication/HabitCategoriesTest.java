@@ -0,0 +1,107 @@
+package com.example.myapplication;
+
+import static org.junit.Assert.assertEquals;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * HabitCategoriesTest:
+ * --------------------
+ * Category names are unique per user ignoring case, like tag names: both on a
+ * fresh schema and on one upgraded from version 13, whose case-insensitive
+ * duplicates are merged with their habits (live and archived) and counts.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class HabitCategoriesTest {
+
+    private Context context;
+    private HabitDatabaseHelper dbHelper;
+
+    @Before
+    public void setUp() {
+        context = RuntimeEnvironment.getApplication();
+        context.getSharedPreferences("UserPrefs", Context.MODE_PRIVATE)
+                .edit().putString("username", "tester").commit();
+        dbHelper = new HabitDatabaseHelper(context);
+    }
+
+    @Test
+    public void namesDifferingInCaseShareOneCategory() {
+        int work = dbHelper.addCategory("Work");
+        assertEquals(work, dbHelper.addCategory("WORK"));
+
+        int habitId = (int) dbHelper.addHabit(new Habit("Report", "Daily", "", "work", false));
+
+        assertEquals(work, dbHelper.getHabit(habitId).getCategoryId());
+        assertEquals("Work", dbHelper.getHabit(habitId).getCategory());   // first spelling is kept
+        int named = 0;
+        for (Category category : dbHelper.getCategories()) {
+            if (category.getName().equalsIgnoreCase("work")) {
+                named++;
+                assertEquals(1, category.getHabitCount());
+            }
+        }
+        assertEquals(1, named);
+    }
+
+    @Test
+    public void upgradeFromVersion13MergesCaseDuplicates() {
+        int live = (int) dbHelper.addHabit(new Habit("Run", "Daily", "", "General", false));
+        int archived = (int) dbHelper.addHabit(new Habit("Stretch", "Daily", "", "General", false));
+        dbHelper.archiveHabit(archived);
+        SQLiteDatabase db = dbHelper.getWritableDatabase();
+
+        // Version 13 categories table: name compared case-sensitively
+        db.execSQL("DROP TABLE categories");
+        db.execSQL("CREATE TABLE categories (id INTEGER PRIMARY KEY AUTOINCREMENT, username TEXT NOT NULL," +
+                " name TEXT NOT NULL, habit_count INTEGER NOT NULL DEFAULT 0, UNIQUE(username, name))");
+        db.execSQL("INSERT INTO categories (id, username, name, habit_count) VALUES (1, 'tester', 'Work', 0)," +
+                " (2, 'tester', 'work', 1), (3, 'tester', 'WORK', 0), (4, 'other', 'work', 2)");
+        db.execSQL("UPDATE habits SET category_id = 2 WHERE id = ?", new Object[]{live});
+        db.execSQL("UPDATE habits_archive SET category_id = 3 WHERE id = ?", new Object[]{archived});
+
+        db.beginTransaction();
+        try {
+            dbHelper.onUpgrade(db, 13, 14);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+
+        assertEquals(Arrays.asList("1 tester Work 1", "4 other work 2"),
+                rows(db, "SELECT id, username, name, habit_count FROM categories ORDER BY id"));
+        assertEquals(Arrays.asList("1"),
+                rows(db, "SELECT category_id FROM habits WHERE id = " + live));
+        assertEquals(Arrays.asList("1"),
+                rows(db, "SELECT category_id FROM habits_archive WHERE id = " + archived));
+
+        // New spellings now resolve to the merged category
+        assertEquals(1, dbHelper.addCategory("wOrK"));
+    }
+
+    private static List<String> rows(SQLiteDatabase db, String sql) {
+        Cursor cursor = db.rawQuery(sql, null);
+        String[] rows = new String[cursor.getCount()];
+        for (int i = 0; cursor.moveToNext(); i++) {
+            StringBuilder row = new StringBuilder();
+            for (int c = 0; c < cursor.getColumnCount(); c++) {
+                if (c > 0) row.append(' ');
+                row.append(cursor.getString(c));
+            }
+            rows[i] = row.toString();
+        }
+        cursor.close();
+        return Arrays.asList(rows);
+    }
+}
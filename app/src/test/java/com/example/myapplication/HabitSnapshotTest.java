@@ -0,0 +1,281 @@
+package com.example.myapplication;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * HabitSnapshotTest:
+ * ------------------
+ * Column building (packed completion bits, shared strings, compiled schedules,
+ * id lookup) and moving a row after a drag-and-drop.
+ * The benchmark behind the columnar layout, kept reproducible: the same seeded
+ * rows (1k, 10k and 100k habits) held as a List<Habit> read the way a cursor
+ * returns them and as a HabitSnapshot. Retained sizes are computed by walking
+ * both object graphs, so they do not depend on the GC of the machine running
+ * the tests; the ratio is asserted.
+ */
+public class HabitSnapshotTest {
+
+    private static final String[] FREQUENCIES = {"Daily", "Weekdays", "Weekends", "3 times a week"};
+    private static final int ANCHOR = DayMath.epochDay(2025, 1, 1);
+
+    // Benchmark dataset: fixed seed, so every run builds exactly the same rows
+    private static final int[] BENCHMARK_ROWS = {1_000, 10_000, 100_000};
+    private static final String[] CATEGORIES = {"General", "Health", "Fitness", "Study", "Work", "Personal", "Other"};
+    private static final double COMPLETION_RATE = 0.5;
+    private static final double PHOTO_RATE = 0.1;
+    private static final long SEED = 39;
+
+    @Test
+    public void builderFillsTheColumns() {
+        int rows = 70;   // completion bits span two words
+        HabitSnapshot snapshot = snapshot(rows);
+
+        assertEquals(rows, snapshot.size());
+        assertEquals("tester", snapshot.getUsername());
+        assertEquals(35, snapshot.completedCount());
+        for (int i = 0; i < rows; i++) {
+            assertEquals(1000 - 3 * i, snapshot.idAt(i));
+            assertEquals(i % 2 == 0, snapshot.isCompletedAt(i));
+            assertEquals((i + 1) * 10.0, snapshot.sortKeyAt(i), 0);
+            assertEquals(HabitSchedule.compile(FREQUENCIES[i % FREQUENCIES.length], ANCHOR), snapshot.scheduleAt(i));
+        }
+        assertTrue(snapshot.hasWeeklyQuotas());
+    }
+
+    @Test
+    public void repeatedStringsAreShared() {
+        HabitSnapshot snapshot = snapshot(8);
+
+        // Built from distinct String instances with equal values
+        assertSame(snapshot.categoryAt(0), snapshot.categoryAt(4));
+        assertSame(snapshot.frequencyAt(1), snapshot.frequencyAt(5));
+        assertEquals("habit 3", snapshot.lowerNameAt(3));
+
+        HabitSnapshot lower = new HabitSnapshot.Builder("tester", 1)
+                .add(1, "walk", "Daily", "", "Health", 2, false, 0, 10, ANCHOR, null)
+                .build();
+        assertSame(lower.nameAt(0), lower.lowerNameAt(0));
+    }
+
+    @Test
+    public void indexOfFindsIdsInAnyOrder() {
+        HabitSnapshot snapshot = snapshot(70);
+
+        for (int i = 0; i < 70; i++) assertEquals(i, snapshot.indexOf(1000 - 3 * i));
+        assertEquals(-1, snapshot.indexOf(999));
+        assertEquals(-1, HabitSnapshot.empty("tester").indexOf(1000));
+    }
+
+    @Test
+    public void dueOnReadsTheCompiledSchedules() {
+        HabitSnapshot snapshot = snapshot(4);
+        HabitSchedule.Day saturday = new HabitSchedule.Day(DayMath.epochDay(2025, 1, 4));
+
+        SparseBitSet due = snapshot.dueOn(saturday, new int[]{0, 0, 0, 3});
+        assertTrue(due.get(0));       // Daily
+        assertFalse(due.get(1));      // Weekdays
+        assertTrue(due.get(2));       // Weekends
+        assertFalse(due.get(3));      // 3 times a week, already done 3 times
+        assertEquals(2, due.cardinality());
+    }
+
+    @Test
+    public void toHabitCopiesTheRow() {
+        HabitSnapshot snapshot = snapshot(3);
+        Habit habit = snapshot.toHabit(2);
+
+        assertEquals(994, habit.getId());
+        assertEquals("Habit 2", habit.getName());
+        assertEquals("Weekends", habit.getFrequency());
+        assertEquals("Category 2", habit.getCategory());
+        assertEquals(30.0, habit.getSortKey(), 0);
+        assertTrue(habit.isCompleted());
+    }
+
+    @Test
+    public void movedShiftsRowsBothWays() {
+        HabitSnapshot snapshot = snapshot(5);   // ids 1000, 997, 994, 991, 988; keys 10 … 50
+
+        HabitSnapshot down = snapshot.moved(0, 2, 35);
+        assertIds(down, 997, 994, 1000, 991, 988);
+        assertEquals(35, down.sortKeyAt(2), 0);
+        assertTrue(down.isCompletedAt(2));      // row 0 was completed
+        assertFalse(down.isCompletedAt(0));
+        assertEquals(2, down.indexOf(1000));
+        assertEquals(snapshot.scheduleAt(0), down.scheduleAt(2));
+        assertSame(snapshot.nameAt(0), down.nameAt(2));
+
+        HabitSnapshot up = snapshot.moved(4, 1, 15);
+        assertIds(up, 1000, 988, 997, 994, 991);
+        assertEquals(15, up.sortKeyAt(1), 0);
+        assertEquals(snapshot.completedCount(), up.completedCount());
+        assertEquals(1, up.indexOf(988));
+
+        // The original is unchanged
+        assertIds(snapshot, 1000, 997, 994, 991, 988);
+    }
+
+    @Test
+    public void positionOfPlacesByKeyAmongAllRows() {
+        HabitSnapshot snapshot = snapshot(5);   // keys 10, 20, 30, 40, 50
+
+        assertEquals(1, snapshot.positionOf(4, 15));
+        assertEquals(2, snapshot.positionOf(0, 35));
+        assertEquals(0, snapshot.positionOf(2, 5));
+        assertEquals(4, snapshot.positionOf(2, 60));
+        assertEquals(2, snapshot.positionOf(2, 30));    // same key: stays put
+
+        // Filter hides rows 1-3; row 4 dropped after visible row 0 gets key (10 + 50) / 2 = 30,
+        // which sorts after hidden row 1 (20), not right after row 0
+        int to = snapshot.positionOf(4, 30);
+        assertEquals(2, to);
+        HabitSnapshot moved = snapshot.moved(4, to, 30);
+        for (int i = 1; i < moved.size(); i++) {
+            assertTrue(moved.sortKeyAt(i - 1) <= moved.sortKeyAt(i));
+        }
+    }
+
+    // ===============================
+    // 📌 Memory benchmark
+    // ===============================
+
+    @Test
+    public void snapshotRetainsLessThanHabitObjects() throws IllegalAccessException {
+        for (int rows : BENCHMARK_ROWS) {
+            Random random = new Random(SEED);
+            List<Habit> habits = new ArrayList<>(rows);
+            HabitSnapshot.Builder builder = new HabitSnapshot.Builder("tester", rows);
+            for (int i = 0; i < rows; i++) {
+                int id = i + 1;
+                String frequency = FREQUENCIES[random.nextInt(FREQUENCIES.length)];
+                int category = random.nextInt(CATEGORIES.length);
+                boolean completed = random.nextDouble() < COMPLETION_RATE;
+                String imageName = random.nextDouble() < PHOTO_RATE ? "habit_" + (1_700_000_000_000L + i) + ".jpg" : null;
+
+                // Every string is a fresh copy per row, as cursor.getString() returns them
+                Habit habit = new Habit(id, fresh("Habit " + i), fresh(frequency), fresh(""),
+                        fresh(CATEGORIES[category]), completed, fresh("tester"));
+                habit.setCategoryId(category + 1);
+                habit.setSortKey(SortKeys.at(i));
+                habit.setImageName(fresh(imageName));
+                habit.clearDirty();
+                habits.add(habit);
+                builder.add(id, fresh("Habit " + i), fresh(frequency), fresh(""), fresh(CATEGORIES[category]),
+                        category + 1, completed, 0, SortKeys.at(i), ANCHOR, fresh(imageName));
+            }
+            HabitSnapshot snapshot = builder.build();
+
+            long listBytes = retainedBytes(habits);
+            long snapshotBytes = retainedBytes(snapshot);
+            System.out.println("HabitSnapshotTest: " + rows + " habits, List<Habit> " + listBytes
+                    + " bytes (" + listBytes / rows + " per habit), HabitSnapshot " + snapshotBytes
+                    + " bytes (" + snapshotBytes / rows + " per habit)");
+            assertTrue("snapshot is not much smaller for " + rows + " habits: " + snapshotBytes + " vs " + listBytes,
+                    snapshotBytes * 3 < listBytes * 2);
+        }
+    }
+
+    // ===============================
+    // 📌 Helpers
+    // ===============================
+
+    private static String fresh(String s) {
+        return s != null ? new String(s.toCharArray()) : null;
+    }
+
+    /**
+     * Bytes retained by everything reachable from root, each object counted once, on the
+     * layout of a 64-bit HotSpot JVM with compressed pointers: 12-byte headers (16 for
+     * arrays), 4-byte references, 8-byte alignment, Latin-1 strings. ART's constants
+     * differ a little; what each layout retains does not.
+     */
+    private static long retainedBytes(Object root) throws IllegalAccessException {
+        Set<Object> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        ArrayDeque<Object> pending = new ArrayDeque<>();
+        pending.push(root);
+        long total = 0;
+        while (!pending.isEmpty()) {
+            Object object = pending.pop();
+            if (!seen.add(object)) continue;
+            Class<?> type = object.getClass();
+            if (object instanceof String) {
+                // value, hash, coder, hashIsZero + the byte[] it owns
+                total += 24 + align(16 + ((String) object).length());
+            } else if (object instanceof ArrayList) {
+                // java.base fields cannot be read reflectively; elementData counted at size()
+                List<?> list = (List<?>) object;
+                total += 24 + align(16 + 4L * list.size());
+                for (Object element : list) {
+                    if (element != null) pending.push(element);
+                }
+            } else if (type.isArray()) {
+                int length = Array.getLength(object);
+                Class<?> component = type.getComponentType();
+                total += align(16 + (long) length * slotBytes(component));
+                if (!component.isPrimitive()) {
+                    for (int i = 0; i < length; i++) {
+                        Object element = Array.get(object, i);
+                        if (element != null) pending.push(element);
+                    }
+                }
+            } else {
+                long size = 12;
+                for (Class<?> c = type; c != Object.class; c = c.getSuperclass()) {
+                    for (Field field : c.getDeclaredFields()) {
+                        if (Modifier.isStatic(field.getModifiers())) continue;
+                        size += slotBytes(field.getType());
+                        if (field.getType().isPrimitive()) continue;
+                        field.setAccessible(true);
+                        Object value = field.get(object);
+                        if (value != null) pending.push(value);
+                    }
+                }
+                total += align(size);
+            }
+        }
+        return total;
+    }
+
+    private static int slotBytes(Class<?> type) {
+        if (type == long.class || type == double.class) return 8;
+        if (type == int.class || type == float.class || !type.isPrimitive()) return 4;
+        if (type == short.class || type == char.class) return 2;
+        return 1;
+    }
+
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+
+    private static HabitSnapshot snapshot(int rows) {
+        HabitSnapshot.Builder builder = new HabitSnapshot.Builder("tester", 2);   // grows while adding
+        for (int i = 0; i < rows; i++) {
+            builder.add(1000 - 3 * i, "Habit " + i,
+                    new String(FREQUENCIES[i % FREQUENCIES.length]), "",
+                    new String("Category " + (i % 4)), i % 4 + 1,
+                    i % 2 == 0, 0, (i + 1) * 10.0, ANCHOR, null);
+        }
+        return builder.build();
+    }
+
+    private static void assertIds(HabitSnapshot snapshot, int... ids) {
+        assertEquals(ids.length, snapshot.size());
+        for (int i = 0; i < ids.length; i++) assertEquals("row " + i, ids[i], snapshot.idAt(i));
+    }
+}
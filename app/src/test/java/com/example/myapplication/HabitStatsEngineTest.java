@@ -0,0 +1,137 @@
+package com.example.myapplication;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import java.util.function.IntPredicate;
+
+/**
+ * HabitStatsEngineTest:
+ * ---------------------
+ * Metrics over a one-year window ending shortly after New Year, so streaks and
+ * windows have to cross the year boundary between the per-year blobs.
+ */
+public class HabitStatsEngineTest {
+
+    private static final int TODAY = DayMath.epochDay(2025, 1, 10);
+    private static final int FIRST_DAY = TODAY - HabitStatsEngine.WINDOW_DAYS + 1;
+    private static final float DELTA = 1e-6f;
+
+    private final HabitStatsEngine engine = new HabitStatsEngine(2);
+
+    @Test
+    public void currentStreakCrossesNewYear() {
+        int dec20 = DayMath.epochDay(2024, 12, 20);
+        HabitStats stats = compute(day -> day >= dec20);
+
+        assertEquals(22, stats.currentStreak[0]);   // Dec 20–31 and Jan 1–10
+        assertEquals(22, stats.longestStreak[0]);
+    }
+
+    @Test
+    public void openTodayKeepsYesterdaysStreak() {
+        int dec25 = DayMath.epochDay(2024, 12, 25);
+        HabitStats stats = compute(day -> day >= dec25 && day < TODAY);
+
+        assertEquals(16, stats.currentStreak[0]);
+        assertEquals(0, compute(day -> day < TODAY - 1).currentStreak[0]);   // missed yesterday too
+    }
+
+    @Test
+    public void longestRunIsFoundInsideTheWindow() {
+        int mar1 = DayMath.epochDay(2024, 3, 1);
+        HabitStats stats = compute(day -> (day >= mar1 && day < mar1 + 40) || day > TODAY - 5);
+
+        assertEquals(40, stats.longestStreak[0]);
+        assertEquals(5, stats.currentStreak[0]);
+    }
+
+    @Test
+    public void ratesCountTheirOwnWindow() {
+        HabitStats stats = compute(day -> day > TODAY - 7);
+
+        assertEquals(1f, stats.rates[0][0], DELTA);
+        assertEquals(7f / 30, stats.rates[1][0], DELTA);
+        assertEquals(7f / 90, stats.rates[2][0], DELTA);
+    }
+
+    @Test
+    public void bestWeekdayIsTheMostCompletedOne() {
+        // Every Wednesday, plus the Mondays of the last month
+        HabitStats stats = compute(day -> DayMath.dayOfWeek(day) == 2
+                || (DayMath.dayOfWeek(day) == 0 && day > TODAY - 30));
+
+        assertEquals(2, stats.bestWeekday[0]);
+        assertEquals(HabitStats.NO_WEEKDAY, compute(day -> false).bestWeekday[0]);
+    }
+
+    @Test
+    public void slopeFollowsWeeklyCompletions() {
+        assertEquals(1f, HabitStatsEngine.slope(new int[]{1, 2, 3, 4}, 4), DELTA);
+        assertEquals(-2f, HabitStatsEngine.slope(new int[]{6, 4, 2}, 3), DELTA);
+        assertEquals(0f, HabitStatsEngine.slope(new int[]{5, 5, 5}, 3), DELTA);
+        assertEquals(0f, HabitStatsEngine.slope(new int[]{5}, 1), DELTA);
+
+        // Nothing for six weeks, then every day for the last six
+        HabitStats stats = compute(day -> day > TODAY - 42);
+        float expected = HabitStatsEngine.slope(new int[]{0, 0, 0, 0, 0, 0, 7, 7, 7, 7, 7, 7}, 12);
+        assertEquals(expected, stats.trendSlope[0], DELTA);
+    }
+
+    @Test
+    public void parallelSplitsKeepEveryHabitsOwnResult() {
+        int habits = 100;   // several fork/join leaves
+        HistoryColumns columns = new HistoryColumns(FIRST_DAY, HabitStatsEngine.WINDOW_DAYS, habits);
+        for (int i = 0; i < habits; i++) {
+            int run = i + 1;
+            add(columns, 1000 + i, day -> day > TODAY - run);
+        }
+        HabitStats stats = engine.compute(columns, TODAY);
+
+        for (int i = 0; i < habits; i++) {
+            assertEquals(1000 + i, stats.habitIds[i]);
+            assertEquals(i + 1, stats.currentStreak[i]);
+        }
+    }
+
+    @Test
+    public void cachedUntilInvalidatedOrANewDay() {
+        HabitStats first = engine.get("tester", TODAY, () -> columns(day -> true));
+
+        assertSame(first, engine.get("tester", TODAY, () -> columns(day -> true)));
+        assertNotSame(first, engine.get("tester", TODAY + 1, () -> columns(day -> true)));
+        HabitStats next = engine.get("tester", TODAY, () -> columns(day -> true));
+        engine.invalidate();
+        assertNotSame(next, engine.get("tester", TODAY, () -> columns(day -> true)));
+    }
+
+    private HabitStats compute(IntPredicate done) {
+        return engine.compute(columns(done), TODAY);
+    }
+
+    private static HistoryColumns columns(IntPredicate done) {
+        HistoryColumns columns = new HistoryColumns(FIRST_DAY, HabitStatsEngine.WINDOW_DAYS, 1);
+        add(columns, 1, done);
+        return columns;
+    }
+
+    /**
+     * Adds a habit completed on the window days matching done, one blob per year
+     * as HabitDatabaseHelper.loadHistoryColumns would.
+     */
+    private static void add(HistoryColumns columns, int habitId, IntPredicate done) {
+        int index = columns.addHabit(habitId);
+        for (int year = DayMath.year(FIRST_DAY); year <= DayMath.year(TODAY); year++) {
+            byte[] days = null;
+            int from = Math.max(FIRST_DAY, DayMath.epochDay(year, 1, 1));
+            int to = Math.min(TODAY, DayMath.epochDay(year, 12, 31));
+            for (int day = from; day <= to; day++) {
+                if (done.test(day)) days = CompletionBitmap.set(days, DayMath.dayOfYear(day), true);
+            }
+            if (days != null) columns.addYear(index, year, days);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.myapplication;
+
+import static org.junit.Assert.assertEquals;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * HabitTagsTest:
+ * --------------
+ * Tag names are unique per user ignoring case, both on a fresh schema and on
+ * one upgraded from version 12, whose case-insensitive duplicates are merged.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class HabitTagsTest {
+
+    private Context context;
+    private HabitDatabaseHelper dbHelper;
+
+    @Before
+    public void setUp() {
+        context = RuntimeEnvironment.getApplication();
+        context.getSharedPreferences("UserPrefs", Context.MODE_PRIVATE)
+                .edit().putString("username", "tester").commit();
+        dbHelper = new HabitDatabaseHelper(context);
+    }
+
+    @Test
+    public void namesDifferingInCaseShareOneTag() {
+        int first = (int) dbHelper.addHabit(new Habit("Run", "Daily", "", "General", false));
+        int second = (int) dbHelper.addHabit(new Habit("Stretch", "Daily", "", "General", false));
+
+        dbHelper.setHabitTags(first, Collections.singletonList("Morning"));
+        dbHelper.setHabitTags(second, Arrays.asList("MORNING", "outdoor"));
+
+        List<Tag> tags = dbHelper.getTags();
+        assertEquals(2, tags.size());
+        assertEquals("Morning", tags.get(0).getName());   // first spelling is kept
+        assertEquals(Collections.singletonList("Morning"), dbHelper.getHabitTagNames(first));
+        assertEquals(Arrays.asList("Morning", "outdoor"), dbHelper.getHabitTagNames(second));
+    }
+
+    @Test
+    public void upgradeFromVersion12MergesCaseDuplicates() {
+        int first = (int) dbHelper.addHabit(new Habit("Run", "Daily", "", "General", false));
+        int second = (int) dbHelper.addHabit(new Habit("Stretch", "Daily", "", "General", false));
+        SQLiteDatabase db = dbHelper.getWritableDatabase();
+
+        // Version 12 tags table: name compared case-sensitively
+        db.execSQL("DROP TABLE habit_tags");
+        db.execSQL("DROP TABLE habit_tags_archive");
+        db.execSQL("DROP TABLE tags");
+        db.execSQL("CREATE TABLE tags (id INTEGER PRIMARY KEY AUTOINCREMENT, username TEXT NOT NULL," +
+                " name TEXT NOT NULL, UNIQUE(username, name))");
+        db.execSQL("CREATE TABLE habit_tags (habit_id INTEGER NOT NULL REFERENCES habits(id) ON DELETE CASCADE," +
+                " tag_id INTEGER NOT NULL REFERENCES tags(id) ON DELETE CASCADE," +
+                " PRIMARY KEY(habit_id, tag_id)) WITHOUT ROWID");
+        db.execSQL("CREATE TABLE habit_tags_archive (habit_id INTEGER NOT NULL," +
+                " tag_id INTEGER NOT NULL REFERENCES tags(id) ON DELETE CASCADE," +
+                " PRIMARY KEY(habit_id, tag_id)) WITHOUT ROWID");
+        db.execSQL("INSERT INTO tags (id, username, name) VALUES (1, 'tester', 'Morning'), (2, 'tester', 'morning')," +
+                " (3, 'tester', 'MORNING'), (4, 'other', 'morning')");
+        db.execSQL("INSERT INTO habit_tags (habit_id, tag_id) VALUES (?, 1), (?, 2), (?, 3)",
+                new Object[]{first, first, second});
+
+        db.beginTransaction();
+        try {
+            dbHelper.onUpgrade(db, 12, 13);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+
+        assertEquals(Arrays.asList("1 tester Morning", "4 other morning"),
+                rows(db, "SELECT id, username, name FROM tags ORDER BY id"));
+        assertEquals(Arrays.asList(first + " 1", second + " 1"),
+                rows(db, "SELECT habit_id, tag_id FROM habit_tags ORDER BY habit_id"));
+
+        // New spellings now resolve to the merged tag
+        dbHelper.setHabitTags(second, Collections.singletonList("mOrNiNg"));
+        assertEquals(1, dbHelper.getTags().size());
+        assertEquals(Collections.singletonList("Morning"), dbHelper.getHabitTagNames(second));
+    }
+
+    private static List<String> rows(SQLiteDatabase db, String sql) {
+        Cursor cursor = db.rawQuery(sql, null);
+        String[] rows = new String[cursor.getCount()];
+        for (int i = 0; cursor.moveToNext(); i++) {
+            StringBuilder row = new StringBuilder();
+            for (int c = 0; c < cursor.getColumnCount(); c++) {
+                if (c > 0) row.append(' ');
+                row.append(cursor.getString(c));
+            }
+            rows[i] = row.toString();
+        }
+        cursor.close();
+        return Arrays.asList(rows);
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.myapplication;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * HistoryColumnsTest:
+ * -------------------
+ * Per-year blobs shifted into a window that does not start on a word or year
+ * boundary: days outside the window are dropped, days inside keep their position.
+ */
+public class HistoryColumnsTest {
+
+    private static final int DEC_1 = DayMath.epochDay(2023, 12, 1);
+    private static final int JAN_31 = DayMath.epochDay(2024, 1, 31);
+
+    @Test
+    public void windowAcrossNewYearTakesBothYears() {
+        HistoryColumns columns = new HistoryColumns(DEC_1, JAN_31 - DEC_1 + 1, 1);
+        int index = columns.addHabit(7);
+        // Nov 15 – Dec 31 and Jan 1 – Feb 10: only Dec 1 – Jan 31 fall inside the window
+        columns.addYear(index, 2023, days(DayMath.epochDay(2023, 11, 15), DayMath.epochDay(2023, 12, 31)));
+        columns.addYear(index, 2024, days(DayMath.epochDay(2024, 1, 1), DayMath.epochDay(2024, 2, 10)));
+
+        assertEquals(7, columns.habitId(index));
+        assertEquals(62, columns.count(index));
+        assertTrue(columns.isSet(index, DEC_1));
+        assertTrue(columns.isSet(index, DayMath.epochDay(2023, 12, 31)));
+        assertTrue(columns.isSet(index, JAN_31));
+        assertFalse(columns.isSet(index, DEC_1 - 1));
+        assertFalse(columns.isSet(index, JAN_31 + 1));
+    }
+
+    @Test
+    public void singleDaysLandOnTheirBits() {
+        HistoryColumns columns = new HistoryColumns(DEC_1, 365, 1);
+        int index = columns.addHabit(1);
+        int[] done = {DEC_1, DEC_1 + 63, DEC_1 + 64, DEC_1 + 200, DEC_1 + 364};   // word edges and the last day
+        byte[] days2023 = null;
+        byte[] days2024 = null;
+        for (int day : done) {
+            if (DayMath.year(day) == 2023) days2023 = CompletionBitmap.set(days2023, DayMath.dayOfYear(day), true);
+            else days2024 = CompletionBitmap.set(days2024, DayMath.dayOfYear(day), true);
+        }
+        columns.addYear(index, 2023, days2023);
+        columns.addYear(index, 2024, days2024);
+
+        assertEquals(done.length, columns.count(index));
+        for (int day : done) assertTrue("day " + (day - DEC_1), columns.isSet(index, day));
+        assertFalse(columns.isSet(index, DEC_1 + 1));
+    }
+
+    @Test
+    public void habitsGrowPastTheInitialCapacity() {
+        HistoryColumns columns = new HistoryColumns(DEC_1, 31, 2);
+        for (int i = 0; i < 20; i++) {
+            int index = columns.addHabit(100 + i);
+            columns.addYear(index, 2023, days(DEC_1, DEC_1 + i));
+        }
+
+        assertEquals(20, columns.size());
+        for (int i = 0; i < 20; i++) {
+            assertEquals(100 + i, columns.habitId(i));
+            assertEquals(i + 1, columns.count(i));
+        }
+    }
+
+    /**
+     * Blob with the epoch days [from, to] (all in one year) completed.
+     */
+    static byte[] days(int from, int to) {
+        byte[] days = null;
+        for (int day = from; day <= to; day++) {
+            days = CompletionBitmap.set(days, DayMath.dayOfYear(day), true);
+        }
+        return days;
+    }
+}
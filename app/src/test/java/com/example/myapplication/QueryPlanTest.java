@@ -0,0 +1,272 @@
+package com.example.myapplication;
+
+import static org.junit.Assert.assertTrue;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * QueryPlanTest:
+ * --------------
+ * Guards HabitDatabaseHelper against query-plan regressions. It builds the real
+ * schema (HabitDatabaseHelper.onCreate) in an in-memory database, seeds a large
+ * dataset, and for every DAO query:
+ *   - runs EXPLAIN QUERY PLAN and requires the expected index,
+ *   - fails on any full SCAN of the habit, category, history, tag or archive tables,
+ *   - fails on a temp B-tree sort (ordered lists must come out of an index).
+ * Plans are checked both before and after ANALYZE, since fresh installs run
+ * without statistics. Query times are only reported against their budgets:
+ * they depend on the machine running the tests, the plans do not.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class QueryPlanTest {
+
+    // Seeded dataset size: USERS × HABITS_PER_USER habits, a share of them soft-deleted
+    private static final int USERS = 20;
+    private static final int HABITS_PER_USER = 500;
+    private static final int TOMBSTONE_EVERY = 20;
+    private static final String SAMPLE_USER = "user7";
+    private static final int HISTORY_YEARS = 3;
+    private static final int TAGS_PER_USER = 12;
+
+    // Matches full scans in both old ("SCAN TABLE habits AS h") and new ("SCAN h") plan formats
+    private static final Pattern FULL_SCAN =
+            Pattern.compile("^SCAN (TABLE )?(habits|categories|completion_history|habits_archive|tags|habit_tags|h|c|a|t|ht)\\b");
+    private static final String TEMP_SORT = "USE TEMP B-TREE FOR ORDER BY";
+
+    /**
+     * A DAO query with sample arguments, the index its plan must use and its latency budget.
+     */
+    static final class PlannedQuery {
+        final String name;
+        final String sql;
+        final Object[] args;
+        final String expectedIndex;
+        final long budgetMillis;
+        boolean sortsFewRows;   // a temp sort is accepted: the result is a handful of rows per user
+
+        PlannedQuery(String name, String sql, Object[] args, String expectedIndex, long budgetMillis) {
+            this.name = name;
+            this.sql = sql;
+            this.args = args;
+            this.expectedIndex = expectedIndex;
+            this.budgetMillis = budgetMillis;
+        }
+
+        PlannedQuery sortsFewRows() {
+            sortsFewRows = true;
+            return this;
+        }
+    }
+
+    private SQLiteDatabase db;
+
+    /**
+     * Every query HabitDatabaseHelper issues. Add new DAO queries here.
+     */
+    static List<PlannedQuery> plannedQueries() {
+        List<PlannedQuery> queries = new ArrayList<>();
+        queries.add(new PlannedQuery("loadHabitSnapshot", HabitDatabaseHelper.SQL_HABITS_FOR_USER,
+                new Object[]{SAMPLE_USER}, "idx_habits_user_sort", 30));
+        queries.add(new PlannedQuery("searchHabits", HabitDatabaseHelper.SQL_SEARCH_HABITS,
+                new Object[]{SAMPLE_USER, "%Habit 1%"}, "idx_habits_user_sort", 30));
+        queries.add(new PlannedQuery("searchHabits(category)", HabitDatabaseHelper.SQL_SEARCH_HABITS_IN_CATEGORY,
+                new Object[]{SAMPLE_USER, 3, "%Habit%"}, "idx_habits_user_category", 30));
+        queries.add(new PlannedQuery("getHabit", HabitDatabaseHelper.SQL_HABIT_BY_ID,
+                new Object[]{42}, "INTEGER PRIMARY KEY", 5));
+        queries.add(new PlannedQuery("getHabitCategoryId", HabitDatabaseHelper.SQL_HABIT_CATEGORY_ID,
+                new Object[]{42}, "INTEGER PRIMARY KEY", 5));
+        // Creation order (id) of a user's few categories: sorting them is cheaper than another index
+        queries.add(new PlannedQuery("getCategories", HabitDatabaseHelper.SQL_CATEGORIES_FOR_USER,
+                new Object[]{SAMPLE_USER}, "sqlite_autoindex_categories_1", 5).sortsFewRows());
+        queries.add(new PlannedQuery("getOrCreateCategoryId", HabitDatabaseHelper.SQL_CATEGORY_ID_BY_NAME,
+                new Object[]{SAMPLE_USER, "Health"}, "sqlite_autoindex_categories_1", 5));
+        queries.add(new PlannedQuery("purgeDeletedHabits", HabitDatabaseHelper.SQL_TOMBSTONE_BATCH,
+                new Object[]{Long.MAX_VALUE, 100}, "idx_habits_tombstones", 50));
+        queries.add(new PlannedQuery("setHabitImage", HabitDatabaseHelper.SQL_HABIT_IMAGE_NAME,
+                new Object[]{42}, "INTEGER PRIMARY KEY", 5));
+        queries.add(new PlannedQuery("addHabit(sort key)", HabitDatabaseHelper.SQL_MAX_SORT_KEY,
+                new Object[]{SAMPLE_USER}, "idx_habits_user_sort", 5));
+        queries.add(new PlannedQuery("moveHabit", HabitDatabaseHelper.SQL_HABIT_SORT_KEY,
+                new Object[]{42}, "INTEGER PRIMARY KEY", 5));
+        queries.add(new PlannedQuery("rebalanceSortKeys", HabitDatabaseHelper.SQL_SORT_KEYS_FOR_USER,
+                new Object[]{SAMPLE_USER}, "idx_habits_user_sort", 10));
+        queries.add(new PlannedQuery("rebalanceSortKeys(batch)", HabitDatabaseHelper.SQL_SORT_KEY_BATCH,
+                new Object[]{SAMPLE_USER, SortKeys.at(100), 101}, "idx_habits_user_sort", 5));
+        queries.add(new PlannedQuery("getArchivedHabits", HabitDatabaseHelper.SQL_ARCHIVED_HABITS,
+                new Object[]{SAMPLE_USER}, "idx_habits_archive_user", 10));
+        queries.add(new PlannedQuery("setCompletedOn", HabitDatabaseHelper.SQL_HISTORY_DAYS,
+                new Object[]{42, 2024}, "PRIMARY KEY", 5));
+        queries.add(new PlannedQuery("getCurrentStreak", HabitDatabaseHelper.SQL_HISTORY_FOR_HABIT,
+                new Object[]{42, 0, 2025}, "PRIMARY KEY", 5));
+        // Unordered: the habits side may use either user index; history must be a key search per habit
+        queries.add(new PlannedQuery("loadHistoryColumns", HabitDatabaseHelper.SQL_HISTORY_FOR_USER,
+                new Object[]{2024, 2025, SAMPLE_USER}, "USING PRIMARY KEY (habit_id=? AND year", 30));
+        queries.add(new PlannedQuery("getTags", HabitDatabaseHelper.SQL_TAGS_FOR_USER,
+                new Object[]{SAMPLE_USER}, "sqlite_autoindex_tags_1", 5));
+        queries.add(new PlannedQuery("getOrCreateTagId", HabitDatabaseHelper.SQL_TAG_ID_BY_NAME,
+                new Object[]{SAMPLE_USER, "tag3"}, "sqlite_autoindex_tags_1", 5));
+        queries.add(new PlannedQuery("getHabitTagNames", HabitDatabaseHelper.SQL_TAG_NAMES_FOR_HABIT,
+                new Object[]{42}, "PRIMARY KEY", 5));
+        // The habits side may use either user index; the link lookup must be a key search per habit
+        queries.add(new PlannedQuery("loadTagIndex", HabitDatabaseHelper.SQL_TAG_LINKS_FOR_USER,
+                new Object[]{SAMPLE_USER}, "USING PRIMARY KEY (habit_id=?)", 30));
+        return queries;
+    }
+
+    @Before
+    public void setUp() {
+        db = SQLiteDatabase.create(null);
+        new HabitDatabaseHelper(RuntimeEnvironment.getApplication()).onCreate(db);
+        seed(db);
+    }
+
+    @After
+    public void tearDown() {
+        db.close();
+    }
+
+    @Test
+    public void plansUseTheirIndexesWithoutStatistics() {
+        assertPlans("without statistics");
+    }
+
+    @Test
+    public void plansUseTheirIndexesAfterAnalyze() {
+        db.execSQL("ANALYZE");
+        assertPlans("after ANALYZE");
+    }
+
+    /**
+     * Runs every query to the last row and prints its time next to its budget.
+     * Advisory only: a slow CI machine must not fail the build.
+     */
+    @Test
+    public void queriesRunWithinBudgetReport() {
+        db.execSQL("ANALYZE");
+        for (PlannedQuery query : plannedQueries()) {
+            long took = time(query);
+            System.out.println("QueryPlanTest: " + query.name + " took " + took + " ms (budget "
+                    + query.budgetMillis + " ms)" + (took > query.budgetMillis ? "  ← over budget" : ""));
+        }
+    }
+
+    private void assertPlans(String phase) {
+        List<String> failures = new ArrayList<>();
+        for (PlannedQuery query : plannedQueries()) {
+            List<String> plan = explain(query);
+            boolean usesIndex = false;
+            for (String step : plan) {
+                if (FULL_SCAN.matcher(step).find()) {
+                    failures.add(query.name + " (" + phase + ") does a full scan: " + step);
+                }
+                if (step.startsWith(TEMP_SORT) && !query.sortsFewRows) {
+                    failures.add(query.name + " (" + phase + ") sorts in a temp B-tree: " + plan);
+                }
+                if (step.contains(query.expectedIndex)) usesIndex = true;
+            }
+            if (!usesIndex) {
+                failures.add(query.name + " (" + phase + ") does not use " + query.expectedIndex + ": " + plan);
+            }
+        }
+        assertTrue(String.join("\n", failures), failures.isEmpty());
+    }
+
+    private List<String> explain(PlannedQuery query) {
+        List<String> plan = new ArrayList<>();
+        Cursor cursor = db.rawQuery("EXPLAIN QUERY PLAN " + query.sql, toStrings(query.args));
+        int detail = cursor.getColumnIndexOrThrow("detail");
+        while (cursor.moveToNext()) plan.add(cursor.getString(detail));
+        cursor.close();
+        return plan;
+    }
+
+    private long time(PlannedQuery query) {
+        long start = System.nanoTime();
+        Cursor cursor = db.rawQuery(query.sql, toStrings(query.args));
+        while (cursor.moveToNext()) {
+            // force every row to be produced
+        }
+        cursor.close();
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    private static void seed(SQLiteDatabase db) {
+        String[] categories = {"General", "Health", "Fitness", "Study", "Work", "Personal", "Other"};
+        db.beginTransaction();
+        try {
+            SQLiteStatement category = db.compileStatement(
+                    "INSERT INTO categories (username, name) VALUES (?, ?)");
+            SQLiteStatement habit = db.compileStatement(
+                    "INSERT INTO habits (name, frequency, description, category_id, completed, username, deleted_at, sort_key)" +
+                    " VALUES (?, 'Daily', '', ?, ?, ?, ?, ?)");
+            SQLiteStatement history = db.compileStatement(
+                    "INSERT INTO completion_history (habit_id, year, days) VALUES (?, ?, ?)");
+            SQLiteStatement tag = db.compileStatement(
+                    "INSERT INTO tags (username, name) VALUES (?, ?)");
+            SQLiteStatement link = db.compileStatement(
+                    "INSERT INTO habit_tags (habit_id, tag_id) VALUES (?, ?)");
+            byte[] days = new byte[46];
+            for (int i = 0; i < days.length; i++) days[i] = (byte) 0xB7; // ~75% of days completed
+            for (int u = 0; u < USERS; u++) {
+                String user = "user" + u;
+                for (String name : categories) {
+                    category.bindString(1, user);
+                    category.bindString(2, name);
+                    category.executeInsert();
+                }
+                for (int t = 0; t < TAGS_PER_USER; t++) {
+                    tag.bindString(1, user);
+                    tag.bindString(2, "tag" + t);
+                    tag.executeInsert();
+                }
+                for (int i = 0; i < HABITS_PER_USER; i++) {
+                    habit.bindString(1, "Habit " + i);
+                    habit.bindLong(2, u * categories.length + (i % categories.length) + 1);
+                    habit.bindLong(3, i % 2);
+                    habit.bindString(4, user);
+                    habit.bindLong(5, i % TOMBSTONE_EVERY == 0 ? 1_000_000L + i : 0);
+                    habit.bindDouble(6, SortKeys.at(HABITS_PER_USER - i)); // reverse of insertion order
+                    long habitId = habit.executeInsert();
+                    for (int y = 0; y < HISTORY_YEARS; y++) {
+                        history.bindLong(1, habitId);
+                        history.bindLong(2, 2023 + y);
+                        history.bindBlob(3, days);
+                        history.executeInsert();
+                    }
+                    for (int t = i % 3; t < TAGS_PER_USER; t += 5) { // two or three tags per habit
+                        link.bindLong(1, habitId);
+                        link.bindLong(2, (long) u * TAGS_PER_USER + t + 1);
+                        link.executeInsert();
+                    }
+                }
+            }
+            category.close();
+            habit.close();
+            history.close();
+            tag.close();
+            link.close();
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    private static String[] toStrings(Object[] args) {
+        String[] strings = new String[args.length];
+        for (int i = 0; i < args.length; i++) strings[i] = String.valueOf(args[i]);
+        return strings;
+    }
+}
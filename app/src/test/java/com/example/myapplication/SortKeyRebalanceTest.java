@@ -0,0 +1,112 @@
+package com.example.myapplication;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * SortKeyRebalanceTest:
+ * ---------------------
+ * Sort keys squeezed by repeated moves are renumbered in key-ordered batches,
+ * one transaction each: the order is valid after every batch, a habit moved
+ * between two batches keeps its new place, and the last batch leaves every
+ * gap at least MIN_GAP wide.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class SortKeyRebalanceTest {
+
+    private static final int HABITS = 50;
+    private static final int SQUEEZED_MOVES = 30;   // each halves the same gap: 2^-30 < MIN_GAP
+    private static final int BATCH = 7;             // does not divide the list, so batches end mid-cluster
+
+    private HabitDatabaseHelper dbHelper;
+    private List<Integer> ids;
+
+    @Before
+    public void setUp() {
+        Context context = RuntimeEnvironment.getApplication();
+        context.getSharedPreferences("UserPrefs", Context.MODE_PRIVATE)
+                .edit().putString("username", "tester").commit();
+        dbHelper = new HabitDatabaseHelper(context);
+        for (int i = 0; i < HABITS; i++) {
+            dbHelper.addHabit(new Habit("Habit " + i, "Daily", "", "General", false));
+        }
+
+        // Drop the last habits one after another right below the tenth one
+        ids = orderedIds();
+        for (int i = 0; i < SQUEEZED_MOVES; i++) {
+            int moved = ids.remove(ids.size() - 1);
+            int before = ids.get(9 + i);
+            int after = ids.get(10 + i);
+            dbHelper.moveHabit(moved, before, after);
+            ids.add(10 + i, moved);
+        }
+        assertEquals(ids, orderedIds());
+    }
+
+    @After
+    public void tearDown() {
+        dbHelper.close();
+    }
+
+    @Test
+    public void batchesKeepTheOrderAndWidenEveryGap() {
+        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        assertTrue(dbHelper.needsSortKeyRebalance(db, SortKeys.MIN_GAP));
+
+        double after = -Double.MAX_VALUE;
+        int batches = 0;
+        do {
+            after = dbHelper.rebalanceSortKeys(db, after, BATCH);
+            batches++;
+            assertEquals("order after batch " + batches, ids, orderedIds(db));
+        } while (!Double.isNaN(after));
+
+        assertEquals((HABITS + BATCH - 1) / BATCH, batches);
+        assertFalse(dbHelper.needsSortKeyRebalance(db, SortKeys.MIN_GAP));
+    }
+
+    @Test
+    public void habitMovedBetweenBatchesKeepsItsPlace() {
+        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        double after = dbHelper.rebalanceSortKeys(db, -Double.MAX_VALUE, BATCH);
+
+        // The user moves the first habit to the end while the rebalance is paused
+        int moved = ids.remove(0);
+        dbHelper.moveHabit(moved, ids.get(ids.size() - 1), 0);
+        ids.add(moved);
+        db = dbHelper.getWritableDatabase();   // moveHabit closed the connection
+
+        while (!Double.isNaN(after)) {
+            after = dbHelper.rebalanceSortKeys(db, after, BATCH);
+            assertEquals(ids, orderedIds(db));
+        }
+        assertFalse(dbHelper.needsSortKeyRebalance(db, SortKeys.MIN_GAP));
+    }
+
+    private List<Integer> orderedIds() {
+        return orderedIds(dbHelper.getReadableDatabase());
+    }
+
+    private static List<Integer> orderedIds(SQLiteDatabase db) {
+        Cursor cursor = db.rawQuery(HabitDatabaseHelper.SQL_SORT_KEYS_FOR_USER, new String[]{"tester"});
+        List<Integer> ids = new ArrayList<>();
+        while (cursor.moveToNext()) ids.add(cursor.getInt(0));
+        cursor.close();
+        return ids;
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.myapplication;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * SparseBitSetTest:
+ * -----------------
+ * Renumbering row bitmaps after a drag-and-drop: moving a bitset (or a whole
+ * TagBitmapIndex) gives the same rows as rebuilding it over the moved snapshot.
+ */
+public class SparseBitSetTest {
+
+    @Test
+    public void movedRenumbersBothWays() {
+        SparseBitSet bits = bits(0, 2, 3, 64, 130);
+
+        assertEquals(positions(bits(1, 2, 63, 64, 130)), positions(bits.moved(0, 64)));
+        assertEquals(positions(bits(0, 2, 3, 4, 65)), positions(bits.moved(130, 2)));
+        assertEquals(positions(bits(0, 2, 3, 64, 130)), positions(bits.moved(5, 5)));
+        assertEquals(positions(bits(0, 2, 3, 64, 129)), positions(bits.moved(129, 130)));
+    }
+
+    @Test
+    public void movedTagIndexMatchesARebuiltOne() {
+        int rows = 150;
+        HabitSnapshot.Builder builder = new HabitSnapshot.Builder("tester", rows);
+        for (int i = 0; i < rows; i++) {
+            builder.add(i + 1, "Habit " + i, "Daily", "", "General", 1, false, 0, (i + 1) * 10.0, 0, null);
+        }
+        HabitSnapshot snapshot = builder.build();
+        TagBitmapIndex index = new TagBitmapIndex(snapshot);
+        for (int id = 1; id <= rows; id++) {
+            if (id % 3 == 0) index.addLink(id, 7);
+            if (id % 5 == 0) index.addLink(id, 8);
+        }
+
+        int[][] moves = {{0, 149}, {149, 0}, {10, 70}, {100, 64}};
+        for (int[] move : moves) {
+            HabitSnapshot moved = snapshot.moved(move[0], move[1], snapshot.sortKeyAt(move[0]));
+            TagBitmapIndex rebuilt = new TagBitmapIndex(moved);
+            for (int id = 1; id <= rows; id++) {
+                if (id % 3 == 0) rebuilt.addLink(id, 7);
+                if (id % 5 == 0) rebuilt.addLink(id, 8);
+            }
+            TagBitmapIndex remapped = index.moved(moved, move[0], move[1]);
+            for (int tag = 7; tag <= 8; tag++) {
+                List<Integer> tags = Collections.singletonList(tag);
+                assertEquals(positions(rebuilt.query(tags, true)), positions(remapped.query(tags, true)));
+            }
+        }
+    }
+
+    private static SparseBitSet bits(int... positions) {
+        SparseBitSet bits = new SparseBitSet();
+        for (int p : positions) bits.set(p);
+        return bits;
+    }
+
+    private static List<Integer> positions(SparseBitSet bits) {
+        List<Integer> positions = new ArrayList<>();
+        for (int p = bits.nextSetBit(0); p >= 0; p = bits.nextSetBit(p + 1)) positions.add(p);
+        return positions;
+    }
+}